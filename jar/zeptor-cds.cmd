@@ -0,0 +1,59 @@
+@echo off
+rem
+rem Copyright (c) 2022 by William F. Gilreath (will@zepton.xyz)
+rem All rights reserved.
+rem
+rem This code is free software; you can redistribute it and/or modify it
+rem under the terms of the GNU General Public License version 3 as published
+rem by the Free Software Foundation.
+rem
+rem Start Zeptor with an application class-data sharing (AppCDS) archive, as
+rem zeptor-cds.sh does. A training run that fails is not tried again until the
+rem JDK or a jar changes; delete the .stamp file beside the archive to try it
+rem again. Rebuild Zeptor.jdk17.jar after changing the sources, the training
+rem run, ZeptorTraining, must be in it.
+rem
+rem   ZEPTOR_LIB          the directory of the look and feel jars, ..\lib
+rem   ZEPTOR_CDS_ARCHIVE  the archive, %USERPROFILE%\.zeptor\zeptor.jsa
+rem   JAVA_HOME           the JDK, 17 or later, else java on the PATH
+rem
+setlocal enabledelayedexpansion
+
+set "DIR=%~dp0"
+if not defined ZEPTOR_LIB set "ZEPTOR_LIB=%DIR%..\lib"
+if not defined ZEPTOR_CDS_ARCHIVE set "ZEPTOR_CDS_ARCHIVE=%USERPROFILE%\.zeptor\zeptor.jsa"
+set "JAVA=java"
+if defined JAVA_HOME set "JAVA=%JAVA_HOME%\bin\java"
+
+rem the jars are on the classpath themselves, and their size and time the stamp
+set "ZEPTOR_CP=%DIR%Zeptor.jdk17.jar"
+for %%J in ("%DIR%Zeptor.jdk17.jar") do set "STAMP=%%~zJ %%~tJ"
+for %%J in ("%ZEPTOR_LIB%\*.jar") do (
+    set "ZEPTOR_CP=!ZEPTOR_CP!;%%~fJ"
+    set "STAMP=!STAMP! %%~nxJ %%~zJ %%~tJ"
+)
+for /f "delims=" %%V in ('"%JAVA%" -version 2^>^&1') do set "STAMP=!STAMP! %%V"
+
+set "OLD="
+if exist "%ZEPTOR_CDS_ARCHIVE%.stamp" set /p OLD=<"%ZEPTOR_CDS_ARCHIVE%.stamp"
+
+if not "!OLD!"=="!STAMP!" goto train
+goto start
+
+:train
+for %%A in ("%ZEPTOR_CDS_ARCHIVE%") do if not exist "%%~dpA" mkdir "%%~dpA"
+del /q "%ZEPTOR_CDS_ARCHIVE%" "%ZEPTOR_CDS_ARCHIVE%.stamp" 2>nul
+"%JAVA%" -XX:ArchiveClassesAtExit="%ZEPTOR_CDS_ARCHIVE%" -Xlog:cds=error -cp "!ZEPTOR_CP!" xyz.zepton.zeptor.editor.ZeptorTraining
+if errorlevel 1 (
+    echo zeptor-cds: the training run failed, starting without an archive 1>&2
+    del /q "%ZEPTOR_CDS_ARCHIVE%" 2>nul
+)
+>"%ZEPTOR_CDS_ARCHIVE%.stamp" echo !STAMP!
+
+:start
+if exist "%ZEPTOR_CDS_ARCHIVE%" (
+    "%JAVA%" -XX:SharedArchiveFile="%ZEPTOR_CDS_ARCHIVE%" -Xshare:auto -cp "!ZEPTOR_CP!" xyz.zepton.zeptor.editor.Zeptor %*
+) else (
+    "%JAVA%" -cp "!ZEPTOR_CP!" xyz.zepton.zeptor.editor.Zeptor %*
+)
+endlocal
@@ -0,0 +1,63 @@
+#!/bin/sh
+#
+# Copyright (c) 2022 by William F. Gilreath (will@zepton.xyz)
+# All rights reserved.
+#
+# This code is free software; you can redistribute it and/or modify it
+# under the terms of the GNU General Public License version 3 as published
+# by the Free Software Foundation.
+#
+# Start Zeptor with an application class-data sharing (AppCDS) archive, so
+# the classes of the editor and its look and feel jars are mapped from the
+# archive rather than loaded, verified and linked on each start.
+#
+# On first start, or once the JDK or a jar changes, a training run opens the
+# editor, highlights and compiles a sample program, and exits, and the JVM
+# writes the archive. Each start after that uses it. The JVM checks the
+# archive itself, and starts without it if it does not match. A training run
+# that fails is not tried again until the JDK or a jar changes; remove the
+# .stamp file beside the archive to try it again.
+#
+# The training run is xyz.zepton.zeptor.editor.ZeptorTraining, which must be
+# in Zeptor.jdk17.jar: rebuild the jar from the sources after changing them.
+#
+#   ZEPTOR_LIB          the directory of the look and feel jars, ../lib
+#   ZEPTOR_CDS_ARCHIVE  the archive, $HOME/.zeptor/zeptor.jsa
+#   JAVA_HOME           the JDK, 17 or later, else java on the PATH
+#
+
+dir=$(cd "$(dirname "$0")" && pwd)
+lib=${ZEPTOR_LIB:-$dir/../lib}
+archive=${ZEPTOR_CDS_ARCHIVE:-$HOME/.zeptor/zeptor.jsa}
+java=java
+if [ -n "$JAVA_HOME" ]; then
+    java=$JAVA_HOME/bin/java
+fi
+
+# the jars are on the classpath themselves, as the JVM only archives classes
+# of the class path, not those of the jars inside Zeptor.jdk17.jar
+classpath=$dir/Zeptor.jdk17.jar
+for jar in "$lib"/*.jar; do
+    classpath=$classpath:$jar
+done
+
+# the archive is made again when the JDK or the size or time of a jar changes,
+# the stamp is written after the training whether or not it worked
+stamp=$( ("$java" -version 2>&1; ls -ln "$dir/Zeptor.jdk17.jar" "$lib"/*.jar) | cksum)
+
+if [ "$(cat "$archive.stamp" 2>/dev/null)" != "$stamp" ]; then
+    mkdir -p "$(dirname "$archive")"
+    rm -f "$archive" "$archive.stamp"
+    if ! "$java" -XX:ArchiveClassesAtExit="$archive" -Xlog:cds=error -cp "$classpath" \
+            xyz.zepton.zeptor.editor.ZeptorTraining; then
+        echo "zeptor-cds: the training run failed, starting without an archive" >&2
+        rm -f "$archive"
+    fi
+    echo "$stamp" > "$archive.stamp"
+fi
+
+if [ -f "$archive" ]; then
+    exec "$java" -XX:SharedArchiveFile="$archive" -Xshare:auto -cp "$classpath" \
+        xyz.zepton.zeptor.editor.Zeptor "$@"
+fi
+exec "$java" -cp "$classpath" xyz.zepton.zeptor.editor.Zeptor "$@"
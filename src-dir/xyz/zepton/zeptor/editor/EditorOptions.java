@@ -43,7 +43,14 @@ public class EditorOptions {
     public static final Color DEFAULT_BACKGROUND_COLOR = Color.BLUE.darker();
     public static final int DEFAULT_FONT_SIZE = 18;
     public static final Color DEFAULT_HIGHLIGHT_COLOR = Color.PINK;
+    public static final int DEFAULT_SCROLLBACK_KB = 2048;
+    public static final int DEFAULT_SCROLLBACK_LINES = 10000;
     public static final int DEFAULT_TAB_SIZE = 2;
+    public static final int DEFAULT_UNDO_BUDGET_KB = 4096;
+    public static final int DEFAULT_WORKER_POOL_SIZE = 2;
+    public static final int RUN_IN_PROCESS = 2;
+    public static final int RUN_NEW_JVM = 0;
+    public static final int RUN_WORKER_POOL = 1;
     public static final SyntaxStyle STYLE_BLOCK_COMMENT = new SyntaxStyle(Color.PINK, true, true);
     public static final SyntaxStyle STYLE_CHARACTER = new SyntaxStyle(Color.CYAN, false, true);
     public static final SyntaxStyle STYLE_HEX = new SyntaxStyle(Color.ORANGE, false, false);
@@ -347,6 +354,48 @@ public class EditorOptions {
         return s;
     }
 
+    /**
+     * @return how programs are started, RUN_NEW_JVM, RUN_WORKER_POOL or
+     * RUN_IN_PROCESS
+     */
+    public int getRunMode() {
+        Integer mode = configMap.get("runmode");
+        if (mode == null) {
+            mode = RUN_NEW_JVM;
+        }
+        return mode;
+    }
+
+    /**
+     * @return the most text the console keeps, in characters
+     */
+    public int getScrollbackChars() {
+        Integer kb = configMap.get("scrollkb");
+        if (kb == null) {
+            kb = DEFAULT_SCROLLBACK_KB;
+        }
+        return (int) Math.min(Integer.MAX_VALUE / 2, kb * 1024L);
+    }
+
+    /**
+     * @return the most lines the console keeps
+     */
+    public int getScrollbackLines() {
+        Integer lines = configMap.get("scrollback");
+        if (lines == null) {
+            lines = DEFAULT_SCROLLBACK_LINES;
+        }
+        return lines;
+    }
+
+    /**
+     * @return whether the console also writes all of its output to a file
+     */
+    public boolean getScrollbackSpill() {
+        Integer spill = configMap.get("spill");
+        return spill != null && spill != 0;
+    }
+
     /**
      * @return the string style
      */
@@ -363,6 +412,28 @@ public class EditorOptions {
         return value;
     }
 
+    /**
+     * @return the undo history budget of each document in bytes
+     */
+    public long getUndoBudget() {
+        Integer kb = configMap.get("undo");
+        if (kb == null) {
+            kb = DEFAULT_UNDO_BUDGET_KB;
+        }
+        return kb * 1024L;
+    }
+
+    /**
+     * @return the number of idle worker JVMs kept for RUN_WORKER_POOL
+     */
+    public int getWorkerPoolSize() {
+        Integer workers = configMap.get("workers");
+        if (workers == null) {
+            workers = DEFAULT_WORKER_POOL_SIZE;
+        }
+        return workers;
+    }
+
     /**
      * set all options to default values
      */
@@ -520,6 +591,42 @@ public class EditorOptions {
         EditorOptions.styleMap.put("reserved", s);
     }
 
+    /**
+     * set how programs are started
+     *
+     * @param mode RUN_NEW_JVM, RUN_WORKER_POOL or RUN_IN_PROCESS
+     */
+    public void setRunMode(final int mode) {
+        configMap.put("runmode", mode);
+    }
+
+    /**
+     * set the most text the console keeps
+     *
+     * @param kb the limit in kilobytes of characters
+     */
+    public void setScrollbackChars(final int kb) {
+        configMap.put("scrollkb", kb);
+    }
+
+    /**
+     * set the most lines the console keeps
+     *
+     * @param lines the limit in lines
+     */
+    public void setScrollbackLines(final int lines) {
+        configMap.put("scrollback", lines);
+    }
+
+    /**
+     * set whether the console also writes all of its output to a file
+     *
+     * @param spill whether to write the output to a file
+     */
+    public void setScrollbackSpill(final boolean spill) {
+        configMap.put("spill", spill ? 1 : 0);
+    }
+
     /**
      * set string style
      *
@@ -538,4 +645,22 @@ public class EditorOptions {
         configMap.put("tab", size);
     }
 
+    /**
+     * set the undo history budget of each document
+     *
+     * @param kb the budget in kilobytes
+     */
+    public void setUndoBudget(final int kb) {
+        configMap.put("undo", kb);
+    }
+
+    /**
+     * set the number of idle worker JVMs kept for RUN_WORKER_POOL
+     *
+     * @param workers the number of workers
+     */
+    public void setWorkerPoolSize(final int workers) {
+        configMap.put("workers", workers);
+    }
+
 }//end class EditorOptions
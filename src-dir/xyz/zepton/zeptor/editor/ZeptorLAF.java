@@ -24,27 +24,27 @@ import javax.swing.UIManager;
 
 public enum ZeptorLAF {
 	
-    ACRYL("com.jtattoo.plaf.acryl.AcrylLookAndFeel", 0),
-    AERO("com.jtattoo.plaf.aero.AeroLookAndFeel", 1),
-    ALUMINUM("com.jtattoo.plaf.aluminium.AluminiumLookAndFeel", 2),
+    ACRYL("Acryl", "com.jtattoo.plaf.acryl.AcrylLookAndFeel", 0),
+    AERO("Aero", "com.jtattoo.plaf.aero.AeroLookAndFeel", 1),
+    ALUMINUM("Aluminum", "com.jtattoo.plaf.aluminium.AluminiumLookAndFeel", 2),
     //DARCULA("com.formdev.flatlaf.FlatDarculaLaf", 4),
-    FAST("com.jtattoo.plaf.fast.FastLookAndFeel", 3),
-    GRAPHITE("com.jtattoo.plaf.graphite.GraphiteLookAndFeel", 4),
-    HIFI("com.jtattoo.plaf.hifi.HiFiLookAndFeel", 5),
-    INFONODE("net.infonode.gui.laf.InfoNodeLookAndFeel", 6),
-    INTELLIJ("com.formdev.flatlaf.FlatIntelliJLaf", 7),
-    LIGHT("com.formdev.flatlaf.FlatLightLaf", 8),
-    LUNA("com.jtattoo.plaf.luna.LunaLookAndFeel", 9),
-    MCWIN("com.jtattoo.plaf.mcwin.McWinLookAndFeel", 10),
-    METAL("javax.swing.plaf.metal.MetalLookAndFeel", 11),
-    MINT("com.jtattoo.plaf.mint.MintLookAndFeel", 12),
-    MOTIF("com.sun.java.swing.plaf.motif.MotifLookAndFeel", 13),
-    NOIRE("com.jtattoo.plaf.noire.NoireLookAndFeel", 14),
-    PGS("com.pagosoft.plaf.PgsLookAndFeel", 15),
-    PLASTIC("com.jgoodies.looks.plastic.PlasticLookAndFeel", 16),
-    PLATFORM(UIManager.getSystemLookAndFeelClassName(), 17),
-    SMART("com.jtattoo.plaf.smart.SmartLookAndFeel", 18),
-    TEXTURE("com.jtattoo.plaf.texture.TextureLookAndFeel", 19);
+    FAST("Fast", "com.jtattoo.plaf.fast.FastLookAndFeel", 3),
+    GRAPHITE("Graphite", "com.jtattoo.plaf.graphite.GraphiteLookAndFeel", 4),
+    HIFI("HiFi", "com.jtattoo.plaf.hifi.HiFiLookAndFeel", 5),
+    INFONODE("InfoNode", "net.infonode.gui.laf.InfoNodeLookAndFeel", 6),
+    INTELLIJ("IntelliJ", "com.formdev.flatlaf.FlatIntelliJLaf", 7),
+    LIGHT("Light", "com.formdev.flatlaf.FlatLightLaf", 8),
+    LUNA("Luna", "com.jtattoo.plaf.luna.LunaLookAndFeel", 9),
+    MCWIN("McWin", "com.jtattoo.plaf.mcwin.McWinLookAndFeel", 10),
+    METAL("Metal", "javax.swing.plaf.metal.MetalLookAndFeel", 11),
+    MINT("Mint", "com.jtattoo.plaf.mint.MintLookAndFeel", 12),
+    MOTIF("Motif", "com.sun.java.swing.plaf.motif.MotifLookAndFeel", 13),
+    NOIRE("Noire", "com.jtattoo.plaf.noire.NoireLookAndFeel", 14),
+    PGS("PGS", "com.pagosoft.plaf.PgsLookAndFeel", 15),
+    PLASTIC("Plastic", "com.jgoodies.looks.plastic.PlasticLookAndFeel", 16),
+    PLATFORM("Platform", UIManager.getSystemLookAndFeelClassName(), 17),
+    SMART("Smart", "com.jtattoo.plaf.smart.SmartLookAndFeel", 18),
+    TEXTURE("Texture", "com.jtattoo.plaf.texture.TextureLookAndFeel", 19);
 
     private static final Map<Integer, ZeptorLAF> mapIZ = new HashMap<>();
     public static final ZeptorLAF getZeptorLAF(final Integer idx) {
@@ -68,7 +68,10 @@ public enum ZeptorLAF {
 
     private Integer lafIndex = 17;
 
-    private ZeptorLAF(final String laf, final int idx) {
+    private String lafLabel = "Platform";
+
+    private ZeptorLAF(final String label, final String laf, final int idx) {
+        this.lafLabel = label;
         this.lafImage = laf;
         this.lafIndex = idx;
     }//end constructor
@@ -77,6 +80,22 @@ public enum ZeptorLAF {
         return this.lafImage;
     }
 
+    public String getLabel() {
+        return this.lafLabel;
+    }
+
+    /**
+     * @return whether the look and feel class is found, without loading it
+     */
+    public boolean isAvailable() {
+        try {
+            Class.forName(this.lafImage, false, ZeptorLAF.class.getClassLoader());
+            return true;
+        } catch (ClassNotFoundException | LinkageError ex) {
+            return false;
+        }//end try
+    }//end isAvailable
+
     public Integer getIndex() {
         return this.lafIndex;
     }
@@ -0,0 +1,120 @@
+/*
+ * Copyright (c) 2022 by William F. Gilreath (will@zepton.xyz)
+ * All rights reserved.
+ *
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 3 as published
+ * by the Free Software Foundation.  
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 3 for more details. The license is available at the following 
+ * link:  https://www.gnu.org/licenses/gpl-3.0.txt.
+ *
+ */
+package xyz.zepton.zeptor.editor;
+
+import java.awt.EventQueue;
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import xyz.zepton.zeptor.log.Logger;
+import xyz.zepton.zeptor.util.Directories;
+
+/**
+ * The training run of the class-data sharing launch mode, jar/zeptor-cds.sh.
+ * It opens the editor as main does, opens a sample program so it is
+ * highlighted, compiles it, and exits, so the JVM writes the classes of a
+ * usual start to the archive it dumps at exit.
+ */
+public final class ZeptorTraining {
+
+    /**
+     * the longest wait for the sample to compile
+     */
+    private static final long COMPILE_TIMEOUT_SEC = 120;
+
+    /**
+     * the sample program
+     */
+    private static final String SAMPLE = String.join("\n",
+            "package zepton.program.training;",
+            "",
+            "prog Training {",
+            "",
+            "  begin {",
+            "    int total = 0;",
+            "    for (int i = 0; i < 10; i++) {",
+            "      total += i * i;",
+            "    }//end for",
+            "    String text = \"total\";",
+            "    println(text + \" = \" + total);",
+            "    exit(0);",
+            "  }//end begin",
+            "}//end prog Training",
+            "");
+
+    /**
+     * Run the training
+     *
+     * @param args not used
+     */
+    public static void main(final String[] args) {
+
+        int status = 0;
+        Path dir = null;
+
+        try {
+
+            dir = Files.createTempDirectory("zeptor-cds");
+            final File sample = dir.resolve("Training.zep").toFile();
+            Files.writeString(sample.toPath(), SAMPLE);
+
+            //no recovery of journals nor about dialog, nothing may wait for a user
+            final Zeptor zep = Zeptor.open(false);
+
+            final CompletableFuture<Boolean> compiled = new CompletableFuture<>();
+            EventQueue.invokeAndWait(() -> {
+                if (zep.openFile(sample, false, false)) {
+                    zep.make().whenComplete((statusFlag, trap) -> {
+                        if (trap != null) {
+                            compiled.completeExceptionally(trap);
+                        } else {
+                            compiled.complete(statusFlag);
+                        }
+                    });
+                } else {
+                    compiled.complete(false);
+                }
+            });
+
+            if (!compiled.get(COMPILE_TIMEOUT_SEC, TimeUnit.SECONDS)) {
+                Logger.LOG.logText("Class-data sharing training: the sample did not compile.");
+            }
+
+            EventQueue.invokeAndWait(zep::dispose);
+
+        } catch (Exception ex) {
+            Logger.LOG.logTrap(ex);
+            status = 1;
+        }//end try
+
+        if (dir != null) {
+            Directories.delete(dir);
+        }
+
+        Logger.LOG.closeLog();
+        System.exit(status);
+
+    }//end main
+
+    private ZeptorTraining() {
+    }
+
+}//end class ZeptorTraining
@@ -0,0 +1,257 @@
+/*
+ * Copyright (c) 2022 by William F. Gilreath (will@zepton.xyz)
+ * All rights reserved.
+ *
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 3 as published
+ * by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 3 for more details. The license is available at the following
+ * link:  https://www.gnu.org/licenses/gpl-3.0.txt.
+ *
+ */
+package xyz.zepton.zeptor.gui;
+
+import java.awt.EventQueue;
+import java.awt.Window;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import xyz.zepton.zeptor.log.Logger;
+import xyz.zepton.zeptor.metrics.LatencyHistogram;
+import xyz.zepton.zeptor.metrics.Metrics;
+
+/**
+ * Watches the event dispatch thread for freezes. A heartbeat is posted to
+ * the event queue every HEARTBEAT_MSEC, and when one is not handled within
+ * THRESHOLD_MSEC the EDT is frozen: its stack is sampled every SAMPLE_MSEC
+ * until the heartbeat is handled, and the freeze is logged with how long it
+ * lasted and the stacks, which show where the EDT was stuck.
+ * <p>
+ * The freezes are counted in the edt.freeze histogram, and in bands of
+ * their length for the Properties dialog.
+ */
+public final class EdtWatchdog {
+
+    /**
+     * the lower bounds of the bands of freeze lengths, in milliseconds
+     */
+    private static final long[] BAND_MSEC = {500, 1000, 2000, 5000};
+
+    /**
+     * the freezes of each band
+     */
+    private static final AtomicLongArray bands = new AtomicLongArray(BAND_MSEC.length);
+
+    /**
+     * the time between heartbeats
+     */
+    private static final long HEARTBEAT_MSEC = 100;
+
+    /**
+     * the freezes
+     */
+    private static final LatencyHistogram FREEZES = Metrics.histogram("edt.freeze");
+
+    /**
+     * the most frames of a sample logged
+     */
+    private static final int MAX_FRAMES = 40;
+
+    /**
+     * the most samples kept of a freeze, every other is dropped past it
+     */
+    private static final int MAX_SAMPLES = 16;
+
+    /**
+     * the time between samples of a frozen EDT
+     */
+    private static final long SAMPLE_MSEC = 100;
+
+    /**
+     * the time a heartbeat waits before the EDT is frozen, the shortest
+     * freeze, as BAND_MSEC[0]
+     */
+    private static final long THRESHOLD_MSEC = BAND_MSEC[0];
+
+    /**
+     * the event dispatch thread, as of the last heartbeat handled
+     */
+    private static volatile Thread edt;
+
+    /**
+     * the watchdog, null until started
+     */
+    private static Thread watchdog;
+
+    /**
+     * a heartbeat, handled on the EDT
+     */
+    private static final class Heartbeat implements Runnable {
+
+        private final CountDownLatch handled = new CountDownLatch(1);
+        private volatile long handledAt;
+        private final long postedAt = System.nanoTime();
+
+        @Override
+        public void run() {
+            edt = Thread.currentThread();
+            handledAt = System.nanoTime();
+            handled.countDown();
+        }
+
+        /**
+         * @return whether the heartbeat was handled within msec
+         */
+        boolean await(final long msec) throws InterruptedException {
+            return handled.await(msec, TimeUnit.MILLISECONDS);
+        }
+
+    }//end class Heartbeat
+
+    /**
+     * @return the rows of the freezes for the Properties dialog, name and
+     * value
+     */
+    public static String[][] getFreezeRows() {
+        ArrayList<String[]> rows = new ArrayList<>();
+        rows.add(new String[]{"zeptor.edt.freezes", Long.toString(FREEZES.getCount())});
+        for (int i = 0; i < BAND_MSEC.length; i++) {
+            String band = i + 1 < BAND_MSEC.length
+                    ? String.format("%d-%d ms", BAND_MSEC[i], BAND_MSEC[i + 1]) : String.format("%d+ ms", BAND_MSEC[i]);
+            rows.add(new String[]{"zeptor.edt.freezes " + band, Long.toString(bands.get(i))});
+        }
+        rows.add(new String[]{"zeptor.edt.freeze.lengths", String.format(Locale.ROOT,
+            "p50 %.0f ms, p90 %.0f ms, p99 %.0f ms, max %.0f ms",
+            FREEZES.getP50Millis(), FREEZES.getP90Millis(), FREEZES.getP99Millis(), FREEZES.getMaxMillis())});
+        return rows.toArray(new String[0][]);
+    }//end getFreezeRows
+
+    /**
+     * @return the event dispatch thread, looked up by name before the first
+     * heartbeat is handled, null if there is none
+     */
+    private static Thread findEdt() {
+        if (edt != null) {
+            return edt;
+        }
+        for (Thread t : Thread.getAllStackTraces().keySet()) {
+            if (t.getName().startsWith("AWT-EventQueue")) {
+                return t;
+            }
+        }
+        return null;
+    }//end findEdt
+
+    /**
+     * @return whether a window is displayable, as the EDT is needed then
+     */
+    private static boolean isShowing() {
+        for (Window w : Window.getWindows()) {
+            if (w.isDisplayable()) {
+                return true;
+            }
+        }
+        return false;
+    }//end isShowing
+
+    /**
+     * log a freeze, its samples that are the same one after another as one
+     */
+    private static void report(final long freezeMsec, final ArrayList<StackTraceElement[]> samples, final long sampleMsec) {
+        StringBuilder text = new StringBuilder();
+        text.append(String.format("EDT frozen for %d ms, %d stack samples %d ms apart:%n", freezeMsec, samples.size(), sampleMsec));
+        int i = 0;
+        while (i < samples.size()) {
+            int same = 1;
+            while (i + same < samples.size() && Arrays.equals(samples.get(i), samples.get(i + same))) {
+                same++;
+            }
+            StackTraceElement[] stack = samples.get(i);
+            text.append(String.format("%n      %d sample(s) from +%d ms:%n", same, THRESHOLD_MSEC + i * sampleMsec));
+            for (int f = 0; f < Math.min(stack.length, MAX_FRAMES); f++) {
+                text.append("        at ").append(stack[f]).append(System.lineSeparator());
+            }
+            if (stack.length > MAX_FRAMES) {
+                text.append(String.format("        ... %d more%n", stack.length - MAX_FRAMES));
+            }
+            i += same;
+        }
+        Logger.LOG.log(Logger.Level.WARN, text.toString());
+    }//end report
+
+    /**
+     * Start the watchdog, once
+     */
+    public static synchronized void start() {
+        if (watchdog != null) {
+            return;
+        }
+        watchdog = new Thread(EdtWatchdog::watch, "EdtWatchdog");
+        watchdog.setDaemon(true);
+        watchdog.start();
+    }//end start
+
+    /**
+     * the watchdog, a heartbeat at a time
+     */
+    private static void watch() {
+        try {
+            while (true) {
+                if (!isShowing()) {
+                    Thread.sleep(HEARTBEAT_MSEC); //no heartbeats, so AWT can shut down with no windows
+                    continue;
+                }
+                Heartbeat beat = new Heartbeat();
+                EventQueue.invokeLater(beat);
+
+                if (!beat.await(THRESHOLD_MSEC)) {
+                    //frozen, sample until the heartbeat is handled, halving the samples kept as they fill
+                    ArrayList<StackTraceElement[]> samples = new ArrayList<>();
+                    long sampleMsec = SAMPLE_MSEC;
+                    int skipped = 0;
+                    do {
+                        Thread t = findEdt();
+                        if (t != null && skipped++ % (sampleMsec / SAMPLE_MSEC) == 0) {
+                            samples.add(t.getStackTrace());
+                        }
+                        if (samples.size() == MAX_SAMPLES) {
+                            for (int i = MAX_SAMPLES - 1; i > 0; i -= 2) {
+                                samples.remove(i);
+                            }
+                            sampleMsec *= 2;
+                        }
+                    } while (!beat.await(SAMPLE_MSEC));
+
+                    long freezeNanos = beat.handledAt - beat.postedAt;
+                    long freezeMsec = TimeUnit.NANOSECONDS.toMillis(freezeNanos);
+                    FREEZES.record(freezeNanos);
+                    for (int i = BAND_MSEC.length - 1; i >= 0; i--) {
+                        if (freezeMsec >= BAND_MSEC[i]) {
+                            bands.incrementAndGet(i);
+                            break;
+                        }
+                    }
+                    report(freezeMsec, samples, sampleMsec);
+                }//end if
+
+                Thread.sleep(HEARTBEAT_MSEC);
+            }//end while
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }//end try
+    }//end watch
+
+    private EdtWatchdog() {
+    }
+
+}//end class EdtWatchdog
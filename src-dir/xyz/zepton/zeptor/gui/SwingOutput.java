@@ -0,0 +1,92 @@
+/*
+ * Copyright (c) 2022 by William F. Gilreath (will@zepton.xyz)
+ * All rights reserved.
+ *
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 3 as published
+ * by the Free Software Foundation.  
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 3 for more details. The license is available at the following 
+ * link:  https://www.gnu.org/licenses/gpl-3.0.txt.
+ *
+ */
+package xyz.zepton.zeptor.gui;
+
+import java.awt.EventQueue;
+
+import xyz.zepton.zeptor.util.IOutput;
+
+/**
+ * Passes output written on another thread to an output on the event dispatch
+ * thread, such as a CompilerDialog, in the order it was written.
+ */
+public final class SwingOutput implements IOutput {
+
+    /**
+     * the output written to
+     */
+    private final IOutput target;
+
+    /**
+     * Constructor
+     *
+     * @param out the output written to, on the event dispatch thread
+     */
+    public SwingOutput(final IOutput out) {
+        target = out;
+    }
+
+    public void print(final String str) {
+        EventQueue.invokeLater(() -> target.print(str));
+    }
+
+    public void printf(final String fmt, final Object... args) {
+        print(String.format(fmt, args));
+    }
+
+    public void printFailure(final String str) {
+        EventQueue.invokeLater(() -> target.printFailure(str));
+    }
+
+    public void printfFailure(final String fmt, final Object... args) {
+        printFailure(String.format(fmt, args));
+    }
+
+    public void printfSuccess(final String fmt, final Object... args) {
+        printSuccess(String.format(fmt, args));
+    }
+
+    public void println() {
+        EventQueue.invokeLater(() -> target.println());
+    }
+
+    public void println(final String str) {
+        EventQueue.invokeLater(() -> target.println(str));
+    }
+
+    public void printlnFailure() {
+        EventQueue.invokeLater(() -> target.printlnFailure());
+    }
+
+    public void printlnFailure(final String str) {
+        EventQueue.invokeLater(() -> target.printlnFailure(str));
+    }
+
+    public void printlnSuccess() {
+        EventQueue.invokeLater(() -> target.printlnSuccess());
+    }
+
+    public void printlnSuccess(final String str) {
+        EventQueue.invokeLater(() -> target.printlnSuccess(str));
+    }
+
+    public void printSuccess(final String str) {
+        EventQueue.invokeLater(() -> target.printSuccess(str));
+    }
+
+}//end class SwingOutput
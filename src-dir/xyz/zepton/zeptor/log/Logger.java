@@ -28,57 +28,112 @@ package xyz.zepton.zeptor.log;
  * message, for the exception, the trap, trap message, and then the stack trace
  * of the call sequence.
  *
+ * The caller only puts the record in a bounded ring buffer, a single writer
+ * thread formats the records and writes them in batches to the one open
+ * channel of the log file, so no caller, the EDT least of all, waits on the
+ * file. A record below the level is discarded, a record that finds the buffer
+ * full is dropped and counted, and the count is written to the log. The file
+ * is rotated once it reaches MAX_FILE_BYTES, keeping BACKUP_FILES backups.
+ *
  * Copyright: Copyright (c) October 2021. All Rights Reserved.
  * @author William F. Gilreath (wfgilreath@yahoo.com)
- * @version 1.1
+ * @version 1.2
  *
  */
-import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileWriter;
+import java.io.IOException;
 import java.io.PrintWriter;
 import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
 import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
 
 public final class Logger {
 
+    /**
+     * The levels of a record, a record below the level of the logger is
+     * discarded
+     */
+    public enum Level {
+        DEBUG, INFO, WARN, ERROR
+    }//end enum Level
+
+    /**
+     * a record, formatted by the writer thread
+     */
+    private static final class Record {
+
+        private final Level level;
+        private final long millis;
+        private final int number;
+        private final String text;
+        private final Throwable trap;
+
+        private Record(final Level lvl, final int num, final String txt, final Throwable t) {
+            this.level = lvl;
+            this.millis = System.currentTimeMillis();
+            this.number = num;
+            this.text = txt;
+            this.trap = t;
+        }
+
+    }//end class Record
+
+    private static final int BACKUP_FILES = 3;
+
     private static final DateTimeFormatter DATE_TIME_FMT = DateTimeFormatter.ofPattern("MMM dd yyyy HH:mm:ss");
 
     private static final String FILE_PREFIX = "zeptor";
     private static final String FILE_SUFFIX = ".log";
 
+    private static final long FLUSH_TIMEOUT_MSEC = 2000;
+
+    private static final boolean LOGFILE_NAME_DATE_TIME_FLAG = false;
+
+    private static final long MAX_FILE_BYTES = 4L * 1024 * 1024;
+
+    private static final int QUEUE_CAPACITY = 1024; //a power of 2
+
     public static final Logger LOG = new Logger();
 
     private static int logEntryCount = 0;
 
     private static int logErrorCount = 0;
-    private static final boolean LOGFILE_NAME_DATE_TIME_FLAG = false;
 
-    private static final void appendFile(final String textData, final String fileNamePath) {
+    private FileChannel channel = null;
 
-        try {
+    private boolean debugFlag = false;
 
-            File file = new File(fileNamePath);
+    private long dropped = 0;
 
-            if (!file.exists()) {
-                file.createNewFile();
-            }//end if
+    private long droppedReported = 0;
 
-            FileWriter fw = new FileWriter(file.getName(), true);
-            BufferedWriter bw = new BufferedWriter(fw);
-            bw.write(textData);
-            bw.close();
+    private long enqueued = 0;
 
-        } catch (Exception ignore) {
-        }//end try
+    private int head = 0;
 
-    }//end appendFile
+    private volatile Level level = Level.INFO;
 
-    private boolean debugFlag = false;
+    private final Object lock = new Object();
+
+    private File logFile = null;
 
     private String logFileName = null;
 
+    private final Record[] ring = new Record[QUEUE_CAPACITY];
+
+    private int size = 0;
+
+    private long written = 0;
+
     public Logger() {
 
         try {
@@ -88,110 +143,184 @@ public final class Logger {
                 logFileName = FILE_PREFIX + FILE_SUFFIX;
             }//end if
 
-            //create new log file, clobber existing one
-            File file = new File(this.logFileName);
+            //create new log file, clobber existing one and its backups
+            this.logFile = new File(this.logFileName).getAbsoluteFile();
 
-            if (file.exists()) {
-                file.delete();
-            }//end if
+            for (int i = 0; i <= BACKUP_FILES; i++) {
+                Files.deleteIfExists(this.backupFile(i).toPath());
+            }//end for
 
         } catch (Exception ignore) {
         }//end try
 
-    }//end constructor
+        Thread writer = new Thread(this::writeLoop, "ZeptorLog");
+        writer.setDaemon(true);
+        writer.start();
 
-    public void beginLog() {
+        //the records still queued are written as the JVM exits
+        Runtime.getRuntime().addShutdownHook(new Thread(this::flush, "ZeptorLogFlush"));
 
-        try {
-            Logger.appendFile(String.format("%n"), this.logFileName);
+    }//end constructor
 
-            Logger.appendFile(String.format("+>>>>---------- Begin Log: %s ----------<<<<+%n", LocalDateTime.now().format(DATE_TIME_FMT)), this.logFileName);
+    /**
+     * @return the log file, or its i-th backup
+     */
+    private File backupFile(final int i) {
+        return i == 0 ? this.logFile : new File(this.logFile.getPath() + "." + i);
+    }//end backupFile
 
-            Logger.appendFile(String.format("%n"), this.logFileName);
+    public void beginLog() {
 
-            Logger.appendFile(String.format("    Create Log File: %s.%n", logFileName), this.logFileName);
+        this.enqueue(Level.ERROR, -1, String.format("%n+>>>>---------- Begin Log: %s ----------<<<<+%n%n    Create Log File: %s.%n%n",
+                LocalDateTime.now().format(DATE_TIME_FMT), logFileName), null);
 
-            Logger.appendFile(String.format("%n"), this.logFileName);
+    }//end beginLog
 
-            if (this.debugFlag) {
-                System.out.println();
-                System.out.printf("+>>>>---------- Begin Log: %s ----------<<<<+%n", LocalDateTime.now().format(DATE_TIME_FMT));
-                System.out.println();
-                System.out.printf("    Create Log File: %s.%n", logFileName);
-                System.out.println();
-            }//end if
+    public void closeLog() {
 
-        } catch (Exception ignore) {
-        }
+        this.enqueue(Level.ERROR, -1, String.format("    -----------------------------------------------------------%n%n    Closed Log File: %s.%n%n+>>>>---------- Close Log: %s ----------<<<<+%n%n",
+                logFileName, LocalDateTime.now().format(DATE_TIME_FMT)), null);
 
-    }//end beginLog
+        this.flush();
 
-    public void closeLog() {
+    }//end closeLog
 
-        try {
-            Logger.appendFile(String.format("    -----------------------------------------------------------%n%n"), this.logFileName);
+    /**
+     * put a record in the ring buffer, or count it as dropped if it is full
+     */
+    private void enqueue(final Level lvl, final int number, final String text, final Throwable trap) {
 
-            Logger.appendFile(String.format("    Closed Log File: %s.%n", logFileName), this.logFileName);
-            Logger.appendFile(String.format("%n"), this.logFileName);
-            Logger.appendFile(String.format("+>>>>---------- Close Log: %s ----------<<<<+%n", LocalDateTime.now().format(DATE_TIME_FMT)), this.logFileName);
-            Logger.appendFile(String.format("%n"), this.logFileName);
+        Record r = new Record(lvl, number, text, trap);
 
-            if (this.debugFlag) {
-                System.out.printf("    -----------------------------------------------------------%n%n");
-                System.out.printf("    Closed Log File: %s.%n", logFileName);
-                System.out.println();
-                System.out.printf("+>>>>---------- Close Log: %s ----------<<<<+%n", LocalDateTime.now().format(DATE_TIME_FMT));
-                System.out.println();
+        synchronized (this.lock) {
+            if (this.size == QUEUE_CAPACITY) {
+                this.dropped++;
+                return;
+            }//end if
 
+            this.ring[(this.head + this.size) & (QUEUE_CAPACITY - 1)] = r;
+            this.size++;
+            this.enqueued++;
+            if (this.size == 1) {
+                this.lock.notifyAll();
             }//end if
+        }//end synchronized
+
+    }//end enqueue
+
+    /**
+     * Wait until the records queued so far are written, or FLUSH_TIMEOUT_MSEC
+     * has passed
+     */
+    public void flush() {
+
+        long deadline = System.currentTimeMillis() + FLUSH_TIMEOUT_MSEC;
+
+        synchronized (this.lock) {
+            long target = this.enqueued;
+            long now;
+            while (this.written < target && (now = System.currentTimeMillis()) < deadline) {
+                try {
+                    this.lock.wait(deadline - now);
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }//end try
+            }//end while
+        }//end synchronized
+
+    }//end flush
+
+    /**
+     * @return the text of a record as it is written to the log
+     */
+    private String format(final Record r) {
+
+        if (r.number < 0) {
+            return r.text; //begin and close
+        }//end if
 
-        } catch (Exception ignore) {
-        }
-    }//end closeLog
+        String time = LocalDateTime.ofInstant(Instant.ofEpochMilli(r.millis), ZoneId.systemDefault()).format(DATE_TIME_FMT);
 
-    //append to text file -- rewrite
-    public void logText(final String text) {
+        if (r.trap == null) {
+            String label = r.level == Level.INFO ? "ENTRY" : r.level.name();
+            return String.format("%n    -----------------------------------------------------------%n%n    [%s] %s #%d: %s%n%n",
+                    time, label, r.number, r.text);
+        }//end if
 
-        Logger.appendFile(String.format("%n"), this.logFileName);
+        StringWriter trace = new StringWriter();
+        r.trap.printStackTrace(new PrintWriter(trace));
+        return String.format("    -----------------------------------------------------------%n%n    [%s] ERROR #%d ; Trap: %s ; Error: %s %n%n    Stack Trace: %s%n",
+                time, r.number, r.trap.getClass().getName(), r.trap.getMessage(), trace);
+
+    }//end format
+
+    /**
+     * @return the number of records dropped as the ring buffer was full
+     */
+    public long getDropCount() {
+        synchronized (this.lock) {
+            return this.dropped;
+        }//end synchronized
+    }//end getDropCount
+
+    public Level getLevel() {
+        return this.level;
+    }//end getLevel
+
+    /**
+     * Log a message at a level
+     *
+     * @param lvl the level of the message
+     * @param text the message
+     */
+    public void log(final Level lvl, final String text) {
+
+        if (lvl.compareTo(this.level) < 0) {
+            return;
+        }//end if
 
-        Logger.appendFile(String.format("    -----------------------------------------------------------%n%n"), this.logFileName);
+        int number;
+        synchronized (this.lock) {
+            number = Logger.logEntryCount++;
+        }//end synchronized
 
-        Logger.appendFile(String.format("    [%s] ENTRY #%d: %s%n", LocalDateTime.now().format(DATE_TIME_FMT), Logger.logEntryCount++, text), this.logFileName);
-        Logger.appendFile(String.format("%n"), this.logFileName);
+        this.enqueue(lvl, number, text, null);
 
-        if (this.debugFlag) {
-            System.out.printf("    -----------------------------------------------------------%n%n");
-            System.out.printf("    [%s] ENTRY #%d: %s%n", LocalDateTime.now().format(DATE_TIME_FMT), Logger.logEntryCount, text);
-            System.out.println();
-        }//end if
+    }//end log
 
+    public void logText(final String text) {
+        this.log(Level.INFO, text);
     }//end logText
 
-    //append to text file -- rewrite
     public void logTrap(final Exception trap) {
 
-        Logger.appendFile(String.format("    -----------------------------------------------------------%n%n"), this.logFileName);
+        int number;
+        synchronized (this.lock) {
+            number = Logger.logErrorCount++;
+        }//end synchronized
 
-        Logger.appendFile(String.format("    [%s] ERROR #%d ; Trap: %s ; Error: %s %n%n", LocalDateTime.now().format(DATE_TIME_FMT), Logger.logErrorCount++, trap.getClass().getName(), trap.getMessage()), this.logFileName);
-        Logger.appendFile(String.format("    Stack Trace: "), this.logFileName);
+        this.enqueue(Level.ERROR, number, null, trap);
 
-        StringWriter trace = new StringWriter();
-        trap.printStackTrace(new PrintWriter(trace));
-        Logger.appendFile(String.format("%s", trace.toString()), this.logFileName);
+    }//end logTrap
 
-        Logger.appendFile(String.format("%n"), this.logFileName);
+    /**
+     * rotate the log file once it is full, the oldest backup is deleted
+     */
+    private void rotate() throws IOException {
 
-        if (this.debugFlag) {
-            System.out.printf("    -----------------------------------------------------------%n%n");
-            System.out.printf("    [%s] ERROR #%d ; Trap: %s ; Error: %s %n%n", LocalDateTime.now().format(DATE_TIME_FMT), Logger.logErrorCount, trap.getClass().getName(), trap.getMessage());
-            System.out.printf("    Stack Trace: ");
+        this.channel.close();
+        this.channel = null;
 
-            trap.printStackTrace(System.out);
-            System.out.println();
-
-        }//end if
+        Files.deleteIfExists(this.backupFile(BACKUP_FILES).toPath());
+        for (int i = BACKUP_FILES - 1; i >= 0; i--) {
+            File f = this.backupFile(i);
+            if (f.exists()) {
+                Files.move(f.toPath(), this.backupFile(i + 1).toPath(), StandardCopyOption.REPLACE_EXISTING);
+            }//end if
+        }//end for
 
-    }//end logTrap
+    }//end rotate
 
     public void setDebug() {
         this.setDebug(true);
@@ -201,4 +330,92 @@ public final class Logger {
         this.debugFlag = flag;
     }//end setDebug
 
+    public void setLevel(final Level lvl) {
+        this.level = lvl;
+    }//end setLevel
+
+    /**
+     * write a batch of text to the log file, in one write
+     */
+    private void write(final String text) throws IOException {
+
+        ByteBuffer bytes = ByteBuffer.wrap(text.getBytes(StandardCharsets.UTF_8));
+
+        if (this.channel != null && this.channel.size() > 0 && this.channel.size() + bytes.remaining() > MAX_FILE_BYTES) {
+            this.rotate();
+        }//end if
+
+        if (this.channel == null) {
+            this.channel = FileChannel.open(this.logFile.toPath(),
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        }//end if
+
+        while (bytes.hasRemaining()) {
+            this.channel.write(bytes);
+        }//end while
+
+        if (this.debugFlag) {
+            System.out.print(text);
+        }//end if
+
+    }//end write
+
+    /**
+     * the writer thread, takes every queued record at once and writes them
+     */
+    private void writeLoop() {
+
+        ArrayList<Record> batch = new ArrayList<>();
+        StringBuilder text = new StringBuilder();
+
+        while (true) {
+
+            long drops;
+            synchronized (this.lock) {
+                while (this.size == 0) {
+                    try {
+                        this.lock.wait();
+                    } catch (InterruptedException ex) {
+                        return;
+                    }//end try
+                }//end while
+
+                while (this.size > 0) {
+                    batch.add(this.ring[this.head]);
+                    this.ring[this.head] = null;
+                    this.head = (this.head + 1) & (QUEUE_CAPACITY - 1);
+                    this.size--;
+                }//end while
+
+                drops = this.dropped - this.droppedReported;
+                this.droppedReported = this.dropped;
+            }//end synchronized
+
+            for (Record r : batch) {
+                text.append(this.format(r));
+            }//end for
+
+            if (drops > 0) {
+                text.append(String.format("%n    [%s] DROPPED %d entries, the log queue was full.%n%n",
+                        LocalDateTime.now().format(DATE_TIME_FMT), drops));
+            }//end if
+
+            try {
+                this.write(text.toString());
+            } catch (IOException ignore) {
+                //the log has nowhere to report its own failure
+            }//end try
+
+            synchronized (this.lock) {
+                this.written += batch.size();
+                this.lock.notifyAll();
+            }//end synchronized
+
+            batch.clear();
+            text.setLength(0);
+
+        }//end while
+
+    }//end writeLoop
+
 }//end class Logger
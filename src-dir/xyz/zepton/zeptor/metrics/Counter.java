@@ -0,0 +1,112 @@
+/*
+ * Copyright (c) 2022 by William F. Gilreath (will@zepton.xyz)
+ * All rights reserved.
+ *
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 3 as published
+ * by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 3 for more details. The license is available at the following
+ * link:  https://www.gnu.org/licenses/gpl-3.0.txt.
+ *
+ */
+package xyz.zepton.zeptor.metrics;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A count that only goes up, and its rate over the last whole second.
+ * <p>
+ * The count of each second is kept in a small ring of buckets stamped with
+ * their second, rolled as the count is added to, so the rate is that of the
+ * last second however long ago it was read, and 0 after an idle second.
+ */
+public final class Counter implements CounterMBean {
+
+    /**
+     * the number of seconds counted, the one being counted and those before
+     */
+    private static final int BUCKETS = 4;
+
+    private static final long SECOND_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    /**
+     * the total
+     */
+    private final AtomicLong count = new AtomicLong();
+
+    /**
+     * the count of each second in the ring
+     */
+    private final long[] counts = new long[BUCKETS];
+
+    /**
+     * the second, of System.nanoTime(), each bucket counts
+     */
+    private final long[] seconds = new long[BUCKETS];
+
+    Counter() {
+    }
+
+    /**
+     * Count n more
+     *
+     * @param n the number to add
+     */
+    public void add(final long n) {
+        count.addAndGet(n);
+        addToSecond(n);
+    }
+
+    /**
+     * add to the bucket of this second, emptying it if it last counted an
+     * older second
+     */
+    private synchronized void addToSecond(final long n) {
+        long second = Math.floorDiv(System.nanoTime(), SECOND_NANOS);
+        int i = (int) Math.floorMod(second, (long) BUCKETS);
+        if (seconds[i] != second) {
+            seconds[i] = second;
+            counts[i] = 0;
+        }
+        counts[i] += n;
+    }//end addToSecond
+
+    /**
+     * As defined in CounterMBean
+     */
+    @Override
+    public long getCount() {
+        return count.get();
+    }
+
+    /**
+     * As defined in CounterMBean
+     */
+    @Override
+    public synchronized double getRatePerSecond() {
+        long last = Math.floorDiv(System.nanoTime(), SECOND_NANOS) - 1;
+        int i = (int) Math.floorMod(last, (long) BUCKETS);
+        return seconds[i] == last ? counts[i] : 0;
+    }//end getRatePerSecond
+
+    /**
+     * Count one more
+     */
+    public void increment() {
+        add(1);
+    }
+
+    @Override
+    public String toString() {
+        return String.format(Locale.ROOT, "count=%d rate=%.1f/s", getCount(), getRatePerSecond());
+    }
+
+}//end class Counter
@@ -0,0 +1,231 @@
+/*
+ * Copyright (c) 2022 by William F. Gilreath (will@zepton.xyz)
+ * All rights reserved.
+ *
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 3 as published
+ * by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 3 for more details. The license is available at the following
+ * link:  https://www.gnu.org/licenses/gpl-3.0.txt.
+ *
+ */
+package xyz.zepton.zeptor.metrics;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A histogram of latencies in nanoseconds, its buckets as those of an
+ * HdrHistogram: each power of two is split into SUB_BUCKETS buckets, so a
+ * percentile is within 1 / SUB_BUCKETS of the latency, from nanoseconds to
+ * hours, in a fixed array. Recording is lock free, a few atomic adds.
+ */
+public final class LatencyHistogram implements LatencyHistogramMBean {
+
+    /**
+     * the bits of a latency kept below its highest bit
+     */
+    private static final int SUB_BITS = 5;
+
+    /**
+     * the buckets of each power of two
+     */
+    private static final int SUB_BUCKETS = 1 << SUB_BITS;
+
+    /**
+     * the buckets, the latencies below SUB_BUCKETS one each, and SUB_BUCKETS
+     * for each power of two above
+     */
+    private static final int BUCKETS = SUB_BUCKETS + (Long.SIZE - 1 - SUB_BITS) * SUB_BUCKETS;
+
+    /**
+     * the latencies in each bucket
+     */
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+
+    /**
+     * the number of latencies
+     */
+    private final AtomicLong count = new AtomicLong();
+
+    /**
+     * the longest latency
+     */
+    private final AtomicLong max = new AtomicLong(Long.MIN_VALUE);
+
+    /**
+     * the shortest latency
+     */
+    private final AtomicLong min = new AtomicLong(Long.MAX_VALUE);
+
+    /**
+     * the sum of the latencies
+     */
+    private final AtomicLong sum = new AtomicLong();
+
+    LatencyHistogram() {
+    }
+
+    /**
+     * @return the bucket of a latency
+     */
+    static int bucketOf(final long nanos) {
+        if (nanos < SUB_BUCKETS) {
+            return (int) Math.max(nanos, 0);
+        }
+        int shift = Long.SIZE - 1 - Long.numberOfLeadingZeros(nanos) - SUB_BITS;
+        return SUB_BUCKETS + shift * SUB_BUCKETS + (int) ((nanos >>> shift) & (SUB_BUCKETS - 1));
+    }//end bucketOf
+
+    /**
+     * @return the middle of the latencies of a bucket
+     */
+    static long valueOf(final int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int shift = (bucket - SUB_BUCKETS) / SUB_BUCKETS;
+        long low = (long) (SUB_BUCKETS + (bucket - SUB_BUCKETS) % SUB_BUCKETS) << shift;
+        return low + ((1L << shift) >>> 1);
+    }//end valueOf
+
+    /**
+     * As defined in LatencyHistogramMBean
+     */
+    @Override
+    public long getCount() {
+        return count.get();
+    }
+
+    /**
+     * As defined in LatencyHistogramMBean
+     */
+    @Override
+    public double getMaxMillis() {
+        return count.get() == 0 ? 0 : max.get() / 1.0e6;
+    }
+
+    /**
+     * As defined in LatencyHistogramMBean
+     */
+    @Override
+    public double getMeanMillis() {
+        long n = count.get();
+        return n == 0 ? 0 : sum.get() / 1.0e6 / n;
+    }
+
+    /**
+     * As defined in LatencyHistogramMBean
+     */
+    @Override
+    public double getMinMillis() {
+        return count.get() == 0 ? 0 : min.get() / 1.0e6;
+    }
+
+    /**
+     * As defined in LatencyHistogramMBean
+     */
+    @Override
+    public double getP50Millis() {
+        return percentile(50.0) / 1.0e6;
+    }
+
+    /**
+     * As defined in LatencyHistogramMBean
+     */
+    @Override
+    public double getP90Millis() {
+        return percentile(90.0) / 1.0e6;
+    }
+
+    /**
+     * As defined in LatencyHistogramMBean
+     */
+    @Override
+    public double getP99Millis() {
+        return percentile(99.0) / 1.0e6;
+    }
+
+    /**
+     * As defined in LatencyHistogramMBean
+     */
+    @Override
+    public double getP999Millis() {
+        return percentile(99.9) / 1.0e6;
+    }
+
+    /**
+     * @param p the percentile, from 0 to 100
+     * @return the latency at or below which p percent of the latencies are,
+     * in nanoseconds, 0 if there are none
+     */
+    public long percentile(final double p) {
+        long n = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            n += buckets.get(i);
+        }
+        if (n == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(p / 100.0 * n));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += buckets.get(i);
+            if (seen >= rank) {
+                return Math.min(Math.max(valueOf(i), min.get()), max.get());
+            }
+        }
+        return max.get();
+    }//end percentile
+
+    /**
+     * Record a latency
+     *
+     * @param nanos the latency, in nanoseconds
+     */
+    public void record(final long nanos) {
+        buckets.incrementAndGet(bucketOf(nanos));
+        sum.addAndGet(nanos);
+        min.accumulateAndGet(nanos, Math::min);
+        max.accumulateAndGet(nanos, Math::max);
+        count.incrementAndGet();
+    }//end record
+
+    /**
+     * Record the latency since a System.nanoTime()
+     *
+     * @param startNanos the System.nanoTime() at the start
+     */
+    public void recordSince(final long startNanos) {
+        record(System.nanoTime() - startNanos);
+    }
+
+    /**
+     * As defined in LatencyHistogramMBean
+     */
+    @Override
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            buckets.set(i, 0);
+        }
+        count.set(0);
+        sum.set(0);
+        min.set(Long.MAX_VALUE);
+        max.set(Long.MIN_VALUE);
+    }//end reset
+
+    @Override
+    public String toString() {
+        return String.format(Locale.ROOT, "count=%d min=%.3f p50=%.3f p90=%.3f p99=%.3f p999=%.3f max=%.3f mean=%.3f ms",
+                getCount(), getMinMillis(), getP50Millis(), getP90Millis(), getP99Millis(), getP999Millis(),
+                getMaxMillis(), getMeanMillis());
+    }//end toString
+
+}//end class LatencyHistogram
@@ -0,0 +1,177 @@
+/*
+ * Copyright (c) 2022 by William F. Gilreath (will@zepton.xyz)
+ * All rights reserved.
+ *
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 3 as published
+ * by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 3 for more details. The license is available at the following
+ * link:  https://www.gnu.org/licenses/gpl-3.0.txt.
+ *
+ */
+package xyz.zepton.zeptor.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import xyz.zepton.zeptor.log.Logger;
+
+/**
+ * The registry of the metrics of the editor and the compiler. Each metric is
+ * published as an MBean of the platform MBean server, under DOMAIN with its
+ * type and name, so jconsole shows them as they change, and all of them are
+ * in the snapshot.
+ * <p>
+ * A metric is made on first use and then kept, so a class keeps its metrics
+ * in constants. The MBeans are registered on a thread of their own, so the
+ * first use of a metric, at startup most often, does not wait for the MBean
+ * server to start.
+ */
+public final class Metrics {
+
+    /**
+     * the domain of the MBeans
+     */
+    public static final String DOMAIN = "xyz.zepton.zeptor";
+
+    /**
+     * the metrics, by name
+     */
+    private static final ConcurrentSkipListMap<String, Object> metrics = new ConcurrentSkipListMap<>();
+
+    /**
+     * registers and unregisters the MBeans, in order
+     */
+    private static final ExecutorService publisher = Executors.newSingleThreadExecutor((Runnable r) -> {
+        Thread t = new Thread(r, "Metrics");
+        t.setDaemon(true);
+        return t;
+    });
+
+    /**
+     * @param name the name of the counter
+     * @return the counter, made if there is none
+     */
+    public static Counter counter(final String name) {
+        return (Counter) getOrAdd(name, Counter::new);
+    }
+
+    /**
+     * Add a gauge, or replace the gauge of the same name
+     *
+     * @param name the name of the gauge
+     * @param supplier reads the value
+     * @return the gauge
+     */
+    public static Gauge gauge(final String name, final LongSupplier supplier) {
+        Gauge g = new Gauge(supplier);
+        if (metrics.put(name, g) != null) {
+            unpublish(name);
+        }
+        return publish(name, g);
+    }//end gauge
+
+    /**
+     * @return the metric of a name, made and published if there is none
+     */
+    private static Object getOrAdd(final String name, final Supplier<Object> maker) {
+        Object metric = metrics.get(name);
+        if (metric == null) {
+            Object made = maker.get();
+            metric = metrics.putIfAbsent(name, made);
+            if (metric == null) {
+                metric = publish(name, made);
+            }
+        }
+        return metric;
+    }//end getOrAdd
+
+    /**
+     * @param name the name of the histogram
+     * @return the latency histogram, made if there is none
+     */
+    public static LatencyHistogram histogram(final String name) {
+        return (LatencyHistogram) getOrAdd(name, LatencyHistogram::new);
+    }
+
+    /**
+     * @return the name of the MBean of a metric
+     */
+    private static ObjectName objectName(final String name, final Object metric) throws JMException {
+        return new ObjectName(DOMAIN + ":type=" + metric.getClass().getSimpleName() + ",name=" + ObjectName.quote(name));
+    }
+
+    /**
+     * @return the metric, its MBean registered in the background
+     */
+    private static <M> M publish(final String name, final M metric) {
+        publisher.execute(() -> {
+            try {
+                ManagementFactory.getPlatformMBeanServer().registerMBean(metric, objectName(name, metric));
+            } catch (JMException ex) {
+                Logger.LOG.logTrap(ex);
+            }
+        });
+        return metric;
+    }//end publish
+
+    /**
+     * Remove a metric, as the gauges of a document once it is closed
+     *
+     * @param name the name of the metric
+     */
+    public static void remove(final String name) {
+        if (metrics.remove(name) != null) {
+            unpublish(name);
+        }
+    }//end remove
+
+    /**
+     * @return every metric and its values, one a line, in the order of their
+     * names
+     */
+    public static String snapshot() {
+        StringBuilder text = new StringBuilder();
+        text.append("Zeptor metrics at ").append(LocalDateTime.now()).append(System.lineSeparator());
+        for (Map.Entry<String, Object> e : metrics.entrySet()) {
+            text.append(String.format("%-40s %s%n", e.getKey(), e.getValue()));
+        }
+        return text.toString();
+    }//end snapshot
+
+    /**
+     * unregister the MBean of a metric in the background
+     */
+    private static void unpublish(final String name) {
+        publisher.execute(() -> {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            try {
+                for (ObjectName n : server.queryNames(new ObjectName(DOMAIN + ":name=" + ObjectName.quote(name) + ",*"), null)) {
+                    server.unregisterMBean(n);
+                }
+            } catch (JMException ex) {
+                Logger.LOG.logTrap(ex);
+            }
+        });
+    }//end unpublish
+
+    private Metrics() {
+    }
+
+}//end class Metrics
@@ -0,0 +1,159 @@
+/*
+ * Copyright (c) 2022 by William F. Gilreath (will@zepton.xyz)
+ * All rights reserved.
+ *
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 3 as published
+ * by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 3 for more details. The license is available at the following
+ * link:  https://www.gnu.org/licenses/gpl-3.0.txt.
+ *
+ */
+package xyz.zepton.zeptor.metrics;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * The JFR events of the editor and the compiler, shown under Zeptor in JDK
+ * Mission Control.
+ * <p>
+ * An event is made, begun before the work and committed after it, and its
+ * fields are only set once shouldCommit() says a recording wants it, so
+ * without a recording an event is a few instructions the JIT removes.
+ */
+public final class ZeptorEvents {
+
+    @Name("xyz.zepton.zeptor.Transpile")
+    @Label("Transpile")
+    @Category({"Zeptor", "Compiler"})
+    @Description("ZeptoN source transpiled to Java")
+    public static final class Transpile extends Event {
+
+        @Label("File")
+        public String file;
+
+        @Label("Size")
+        @DataAmount
+        public long size;
+
+        @Label("Tokens")
+        public int tokens;
+
+        @Label("Success")
+        public boolean success;
+
+    }//end class Transpile
+
+    @Name("xyz.zepton.zeptor.Compile")
+    @Label("Compile")
+    @Category({"Zeptor", "Compiler"})
+    @Description("Transpiled Java compiled by javac")
+    public static final class Compile extends Event {
+
+        @Label("File")
+        public String file;
+
+        @Label("Java Size")
+        @Description("The characters of the transpiled Java")
+        public int javaChars;
+
+        @Label("Diagnostics")
+        public int diagnostics;
+
+        @Label("Success")
+        public boolean success;
+
+    }//end class Compile
+
+    @Name("xyz.zepton.zeptor.Highlight")
+    @Label("Highlight")
+    @Category({"Zeptor", "Editor"})
+    @Description("Lines of a document highlighted")
+    @StackTrace(false)
+    public static final class Highlight extends Event {
+
+        @Label("Start Line")
+        public int startLine;
+
+        @Label("End Line")
+        public int endLine;
+
+        @Label("Characters")
+        public int chars;
+
+    }//end class Highlight
+
+    @Name("xyz.zepton.zeptor.Find")
+    @Label("Find")
+    @Category({"Zeptor", "Editor"})
+    @Description("Text searched for in a range")
+    @StackTrace(false)
+    public static final class Find extends Event {
+
+        @Label("Pattern Length")
+        public int patternLength;
+
+        @Label("Range")
+        @Description("The characters searched")
+        public int range;
+
+        @Label("Case Sensitive")
+        public boolean caseSensitive;
+
+        @Label("Whole Word")
+        public boolean whole;
+
+        @Label("Regular Expression")
+        public boolean regex;
+
+        @Label("Found At")
+        @Description("The position of the match, the first one for all matches, -1 if none")
+        public int foundAt;
+
+        @Label("Matches")
+        @Description("The matches found, for a search of all of them")
+        public int matches;
+
+    }//end class Find
+
+    @Name("xyz.zepton.zeptor.Save")
+    @Label("Save")
+    @Category({"Zeptor", "Editor"})
+    @Description("A document written to its file")
+    public static final class Save extends Event {
+
+        @Label("File")
+        public String file;
+
+        @Label("Characters")
+        public int chars;
+
+    }//end class Save
+
+    @Name("xyz.zepton.zeptor.Launch")
+    @Label("Console Launch")
+    @Category({"Zeptor", "Console"})
+    @Description("A program started for the console, until its process is running")
+    public static final class Launch extends Event {
+
+        @Label("Command")
+        public String command;
+
+    }//end class Launch
+
+    private ZeptorEvents() {
+    }
+
+}//end class ZeptorEvents
@@ -0,0 +1,632 @@
+/*
+ * Copyright (c) 2022 by William F. Gilreath (will@zepton.xyz)
+ * All rights reserved.
+ *
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 3 as published
+ * by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 3 for more details. The license is available at the following
+ * link:  https://www.gnu.org/licenses/gpl-3.0.txt.
+ *
+ */
+package xyz.zepton.zeptor.run;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.reflect.InvocationTargetException;
+import java.nio.channels.Channels;
+import java.nio.channels.Pipe;
+import java.nio.charset.Charset;
+import java.util.Locale;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A compiled ZeptoN program run inside the editor, on its own thread with
+ * its classes in a fresh ProgramLoader, so a run costs a class load rather
+ * than a JVM start. It is a Process, so the console shows it as it shows a
+ * program it launched.
+ * <p>
+ * The runtime of a program binds its streams to System.out, System.err and
+ * System.in when its class is initialized, so those are replaced, once, with
+ * streams that pass to the streams of the run the current thread belongs to,
+ * and to the streams of the editor otherwise. The threads a program starts
+ * belong to its run too. An exit of the program ends the run, by way of the
+ * ProgramExit thrown from the exit methods its classes are redirected to.
+ * <p>
+ * A thread of the program that ignores being interrupted cannot be stopped,
+ * it runs on after its run has ended, with its output no longer shown.
+ */
+public final class InProcessProgram extends Process {
+
+    /**
+     * Thrown to end a run where the program would have exited. An Error, as
+     * the runtime catches Exception around the program.
+     */
+    static final class ProgramExit extends Error {
+
+        private static final long serialVersionUID = -6052519331683155281L;
+
+        /**
+         * the exit status
+         */
+        private final int status;
+
+        /**
+         * Constructor
+         *
+         * @param s the exit status
+         */
+        ProgramExit(final int s) {
+            super("exit " + s, null, false, false);
+            status = s;
+        }
+    }//end class ProgramExit
+
+    /**
+     * the size of the output buffers
+     */
+    private static final int BUFFER_SIZE = 8192;
+
+    /**
+     * the exit status of a destroyed run, as of a process sent SIGTERM
+     */
+    private static final int EXIT_DESTROYED = 143;
+
+    /**
+     * the exit status of an uncaught exception
+     */
+    private static final int EXIT_FAILURE = 1;
+
+    /**
+     * the run of the current thread, inherited by the threads it starts
+     */
+    private static final InheritableThreadLocal<InProcessProgram> CURRENT = new InheritableThreadLocal<>();
+
+    /**
+     * whether the System streams are routed
+     */
+    private static boolean routed;
+
+    /**
+     * the name of the main class
+     */
+    private final String className;
+
+    /**
+     * the output directory of the program
+     */
+    private final File dir;
+
+    /**
+     * counted down when the run ends
+     */
+    private final CountDownLatch done = new CountDownLatch(1);
+
+    /**
+     * the exit status
+     */
+    private volatile int exitValue;
+
+    /**
+     * the threads of the program
+     */
+    private final ThreadGroup group;
+
+    /**
+     * the main thread of the program
+     */
+    private final Thread main;
+
+    /**
+     * the standard error, standard input and standard output pipes
+     */
+    private final Pipe errPipe, inPipe, outPipe;
+
+    /**
+     * the standard error of the program
+     */
+    private final PrintStream stderr;
+
+    /**
+     * the standard input of the program
+     */
+    private final InputStream stdin;
+
+    /**
+     * the standard output of the program
+     */
+    private final PrintStream stdout;
+
+    /**
+     * Constructor
+     *
+     * @param d the output directory of the program
+     * @param name the name of the main class
+     * @param charset the charset of the output
+     * @throws IOException if the pipes cannot be opened
+     */
+    private InProcessProgram(final File d, final String name, final Charset charset) throws IOException {
+        dir = d;
+        className = name;
+
+        outPipe = Pipe.open();
+        errPipe = Pipe.open();
+        inPipe = Pipe.open();
+        stdout = new PrintStream(new BufferedOutputStream(Channels.newOutputStream(outPipe.sink()), BUFFER_SIZE), true, charset);
+        stderr = new PrintStream(new BufferedOutputStream(Channels.newOutputStream(errPipe.sink()), BUFFER_SIZE), true, charset);
+        stdin = Channels.newInputStream(inPipe.source());
+
+        group = new ThreadGroup(name) {
+            @Override
+            public void uncaughtException(Thread t, Throwable e) {
+                if (e instanceof ProgramExit) {
+                    finish(((ProgramExit) e).status); //exited on a thread of its own
+                } else {
+                    super.uncaughtException(t, e);
+                }
+            }
+        };
+        main = new Thread(group, this::runMain, "main");
+    }
+
+    /**
+     * Run a compiled program
+     *
+     * @param dir the output directory of the program
+     * @param className the name of the main class
+     * @param charset the charset the output is written in
+     * @return the running program
+     * @throws IOException if the pipes cannot be opened
+     */
+    public static InProcessProgram start(final File dir, final String className, final Charset charset) throws IOException {
+        route();
+        InProcessProgram p = new InProcessProgram(dir, className, charset);
+        p.main.start();
+        return p;
+    }
+
+    /**
+     * System.exit, as redirected in the program
+     *
+     * @param status the exit status
+     */
+    public static void exit(final int status) {
+        throw new ProgramExit(status);
+    }
+
+    /**
+     * Runtime.exit, as redirected in the program
+     *
+     * @param r the runtime
+     * @param status the exit status
+     */
+    public static void exit(final Runtime r, final int status) {
+        throw new ProgramExit(status);
+    }
+
+    /**
+     * Runtime.halt, as redirected in the program
+     *
+     * @param r the runtime
+     * @param status the exit status
+     */
+    public static void halt(final Runtime r, final int status) {
+        throw new ProgramExit(status);
+    }
+
+    /**
+     * @return the run of the current thread, null if none or it has ended
+     */
+    private static InProcessProgram current() {
+        InProcessProgram p = CURRENT.get();
+        return p == null || p.done.getCount() == 0 ? null : p;
+    }
+
+    /**
+     * replace the System streams with the routing streams, once
+     */
+    private static synchronized void route() {
+        if (routed) {
+            return;
+        }
+        final PrintStream out = System.out;
+        final PrintStream err = System.err;
+        final InputStream in = System.in;
+        System.setOut(new RoutedPrintStream(out, false));
+        System.setErr(new RoutedPrintStream(err, true));
+        System.setIn(new InputStream() {
+            private InputStream target() {
+                InProcessProgram p = current();
+                if (p == null) {
+                    return in;
+                }
+                p.stdout.flush(); //show a prompt before waiting for the answer
+                return p.stdin;
+            }
+
+            @Override
+            public int available() throws IOException {
+                return target().available();
+            }
+
+            @Override
+            public void close() throws IOException {
+                InProcessProgram p = current();
+                if (p != null) {
+                    p.stdin.close();
+                }
+            }
+
+            @Override
+            public int read() throws IOException {
+                return target().read();
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                return target().read(b, off, len);
+            }
+        });
+        routed = true;
+    }//end route
+
+    /**
+     * As defined in Process
+     */
+    @Override
+    public void destroy() {
+        finish(EXIT_DESTROYED);
+    }
+
+    /**
+     * As defined in Process
+     */
+    @Override
+    public int exitValue() {
+        if (done.getCount() != 0) {
+            throw new IllegalThreadStateException("program is still running");
+        }
+        return exitValue;
+    }
+
+    /**
+     * end the run, the first time only
+     *
+     * @param status the exit status
+     */
+    private void finish(final int status) {
+        synchronized (done) {
+            if (done.getCount() == 0) {
+                return;
+            }
+            exitValue = status;
+            stdout.close(); //the console reads to the end of the output
+            stderr.close();
+            try {
+                stdin.close();
+            } catch (IOException ignore) {
+            }
+            done.countDown();
+        }
+        group.interrupt();
+    }//end finish
+
+    /**
+     * As defined in Process
+     */
+    @Override
+    public InputStream getErrorStream() {
+        return Channels.newInputStream(errPipe.source());
+    }
+
+    /**
+     * As defined in Process
+     */
+    @Override
+    public InputStream getInputStream() {
+        return Channels.newInputStream(outPipe.source());
+    }
+
+    /**
+     * As defined in Process
+     */
+    @Override
+    public OutputStream getOutputStream() {
+        return Channels.newOutputStream(inPipe.sink());
+    }
+
+    /**
+     * As defined in Process
+     */
+    @Override
+    public boolean isAlive() {
+        return done.getCount() != 0;
+    }
+
+    /**
+     * wait for the threads of the program that keep a JVM running
+     */
+    private void joinThreads() throws InterruptedException {
+        boolean waited = true;
+        while (waited) {
+            waited = false;
+            Thread[] threads = new Thread[group.activeCount() + 1];
+            int n = group.enumerate(threads);
+            for (int i = 0; i < n; i++) {
+                if (threads[i] != Thread.currentThread() && !threads[i].isDaemon()) {
+                    threads[i].join();
+                    waited = true;
+                }
+            }
+        }
+    }//end joinThreads
+
+    /**
+     * load the program and run its main method, on the main thread of the
+     * program
+     */
+    private void runMain() {
+        CURRENT.set(this);
+        int status = 0;
+        try {
+            ProgramLoader loader = new ProgramLoader(dir, InProcessProgram.class.getClassLoader());
+            Class<?> c = Class.forName(className, true, loader);
+            c.getMethod("main", String[].class).invoke(null, (Object) new String[0]);
+            joinThreads();
+        } catch (InvocationTargetException ex) {
+            status = uncaught(ex.getCause());
+        } catch (ExceptionInInitializerError ex) {
+            status = uncaught(ex.getCause());
+        } catch (InterruptedException ex) {
+            status = EXIT_DESTROYED;
+        } catch (ReflectiveOperationException | LinkageError ex) {
+            stderr.printf(Locale.ROOT, "Error: Could not run main class %s%nCaused by: %s%n", className, ex);
+            status = EXIT_FAILURE;
+        }
+        finish(status);
+    }//end runMain
+
+    /**
+     * @return the exit status of an exception thrown out of main
+     */
+    private int uncaught(final Throwable t) {
+        if (t instanceof ProgramExit) {
+            return ((ProgramExit) t).status;
+        }
+        stderr.print("Exception in thread \"main\" ");
+        t.printStackTrace(stderr);
+        return EXIT_FAILURE;
+    }//end uncaught
+
+    /**
+     * As defined in Process
+     */
+    @Override
+    public int waitFor() throws InterruptedException {
+        done.await();
+        return exitValue;
+    }
+
+    /**
+     * As defined in Process
+     */
+    @Override
+    public boolean waitFor(final long timeout, final TimeUnit unit) throws InterruptedException {
+        return done.await(timeout, unit);
+    }
+
+    /**
+     * The System.out or System.err of the editor, passing what a program
+     * writes to the stream of its run
+     */
+    private static final class RoutedPrintStream extends PrintStream {
+
+        /**
+         * whether this is System.err
+         */
+        private final boolean error;
+
+        /**
+         * the stream of the editor
+         */
+        private final PrintStream system;
+
+        /**
+         * Constructor
+         *
+         * @param s the stream of the editor
+         * @param err whether this is System.err
+         */
+        RoutedPrintStream(final PrintStream s, final boolean err) {
+            super(s, true);
+            system = s;
+            error = err;
+        }
+
+        /**
+         * @return the stream of the run of the current thread, or of the editor
+         */
+        private PrintStream target() {
+            InProcessProgram p = current();
+            return p == null ? system : error ? p.stderr : p.stdout;
+        }
+
+        @Override
+        public PrintStream append(char c) {
+            target().append(c);
+            return this;
+        }
+
+        @Override
+        public PrintStream append(CharSequence csq) {
+            target().append(csq);
+            return this;
+        }
+
+        @Override
+        public PrintStream append(CharSequence csq, int start, int end) {
+            target().append(csq, start, end);
+            return this;
+        }
+
+        @Override
+        public boolean checkError() {
+            return target().checkError();
+        }
+
+        //a program closes its own stream, never the stream of the editor
+        @Override
+        public void close() {
+            InProcessProgram p = current();
+            if (p != null) {
+                (error ? p.stderr : p.stdout).close();
+            }
+        }
+
+        @Override
+        public void flush() {
+            target().flush();
+        }
+
+        @Override
+        public PrintStream format(String format, Object... args) {
+            target().format(format, args);
+            return this;
+        }
+
+        @Override
+        public PrintStream format(Locale l, String format, Object... args) {
+            target().format(l, format, args);
+            return this;
+        }
+
+        @Override
+        public void print(boolean b) {
+            target().print(b);
+        }
+
+        @Override
+        public void print(char c) {
+            target().print(c);
+        }
+
+        @Override
+        public void print(char[] s) {
+            target().print(s);
+        }
+
+        @Override
+        public void print(double d) {
+            target().print(d);
+        }
+
+        @Override
+        public void print(float f) {
+            target().print(f);
+        }
+
+        @Override
+        public void print(int i) {
+            target().print(i);
+        }
+
+        @Override
+        public void print(long l) {
+            target().print(l);
+        }
+
+        @Override
+        public void print(Object obj) {
+            target().print(obj);
+        }
+
+        @Override
+        public void print(String s) {
+            target().print(s);
+        }
+
+        @Override
+        public PrintStream printf(String format, Object... args) {
+            target().printf(format, args);
+            return this;
+        }
+
+        @Override
+        public PrintStream printf(Locale l, String format, Object... args) {
+            target().printf(l, format, args);
+            return this;
+        }
+
+        @Override
+        public void println() {
+            target().println();
+        }
+
+        @Override
+        public void println(boolean x) {
+            target().println(x);
+        }
+
+        @Override
+        public void println(char x) {
+            target().println(x);
+        }
+
+        @Override
+        public void println(char[] x) {
+            target().println(x);
+        }
+
+        @Override
+        public void println(double x) {
+            target().println(x);
+        }
+
+        @Override
+        public void println(float x) {
+            target().println(x);
+        }
+
+        @Override
+        public void println(int x) {
+            target().println(x);
+        }
+
+        @Override
+        public void println(long x) {
+            target().println(x);
+        }
+
+        @Override
+        public void println(Object x) {
+            target().println(x);
+        }
+
+        @Override
+        public void println(String x) {
+            target().println(x);
+        }
+
+        @Override
+        public void write(byte[] buf, int off, int len) {
+            target().write(buf, off, len);
+        }
+
+        @Override
+        public void write(int b) {
+            target().write(b);
+        }
+    }//end class RoutedPrintStream
+
+}//end class InProcessProgram
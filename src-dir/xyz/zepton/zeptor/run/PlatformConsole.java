@@ -24,8 +24,6 @@ import xyz.zepton.zeptor.log.Logger;
 
 public class PlatformConsole {
 
-    private final static int DELAY_BEGIN_MSEC = 1100; //1.10 sec
-
     public static final boolean isLinux = (System.getProperty("os.name").toLowerCase().indexOf("nux") >= 0);
 
     public static final boolean isMacOS = (System.getProperty("os.name").toLowerCase().indexOf("mac") >= 0);
@@ -61,17 +59,20 @@ public class PlatformConsole {
             execCmd = outPath + " " + packageName + "." + programName;
         }//end if
 
-        try {
-            Thread.sleep(DELAY_BEGIN_MSEC); //DELAY_BEGIN_MSEC
-        } catch (Exception ignore) {
-        }
+        final String command = "java -cp " + execCmd;
 
-        try {
-            PlatformConsole.runInConsole("java -cp " + execCmd);
+        //the make that wrote the classes has completed, so start at once, and
+        //wait for the terminal off the calling thread
+        Thread runner = new Thread(() -> {
+            try {
+                PlatformConsole.runInConsole(command);
 
-        } catch (Exception ex) {
-            Logger.LOG.logTrap(ex);
-        }
+            } catch (Exception ex) {
+                Logger.LOG.logTrap(ex);
+            }
+        }, "PlatformConsole");
+        runner.setDaemon(true);
+        runner.start();
 
     }//end runCommand
 
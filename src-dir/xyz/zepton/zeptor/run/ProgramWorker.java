@@ -0,0 +1,159 @@
+/*
+ * Copyright (c) 2022 by William F. Gilreath (will@zepton.xyz)
+ * All rights reserved.
+ *
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 3 as published
+ * by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 3 for more details. The license is available at the following
+ * link:  https://www.gnu.org/licenses/gpl-3.0.txt.
+ *
+ */
+package xyz.zepton.zeptor.run;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.Scanner;
+import java.util.function.IntFunction;
+
+/**
+ * The main class of a worker JVM of the WorkerPool. A worker warms up the
+ * classes the ZeptoN runtime uses, writes READY to its standard output, and
+ * waits on its standard input for one line, the classpath and main class of
+ * a program separated by a tab. It then runs the program as the java
+ * launcher would, the rest of its standard input and all of its output are
+ * the program's, and it exits when the program does.
+ * <p>
+ * A worker whose standard input is closed before a program is sent, as when
+ * the editor exits, exits too.
+ */
+public final class ProgramWorker {
+
+    /**
+     * written by a worker once it is warm, read by the pool before the line
+     */
+    static final byte[] READY = "\u0000zeptor-worker\n".getBytes(StandardCharsets.UTF_8);
+
+    /**
+     * the exit status of a program that failed
+     */
+    private static final int EXIT_FAILURE = 1;
+
+    /**
+     * Run a worker
+     *
+     * @param args not used
+     * @throws IOException if the line cannot be read
+     */
+    public static void main(final String[] args) throws IOException {
+        warmUp();
+
+        System.out.write(READY);
+        System.out.flush();
+
+        String line = readLine(System.in);
+        int tab = line == null ? -1 : line.indexOf('\t');
+        if (tab < 0) {
+            return; //the pool is closed
+        }
+        String className = line.substring(tab + 1);
+
+        ArrayList<URL> urls = new ArrayList<>();
+        for (String path : line.substring(0, tab).split(File.pathSeparator)) {
+            urls.add(new File(path).toURI().toURL());
+        }
+        ClassLoader loader = new URLClassLoader(urls.toArray(new URL[0]), ClassLoader.getSystemClassLoader());
+        Thread.currentThread().setContextClassLoader(loader);
+
+        Method main;
+        try {
+            main = Class.forName(className, false, loader).getMethod("main", String[].class);
+            main.setAccessible(true);
+        } catch (ReflectiveOperationException | LinkageError ex) {
+            System.err.printf("Error: Could not find or load main class %s%nCaused by: %s%n", className, ex);
+            System.exit(EXIT_FAILURE);
+            return;
+        }
+
+        try {
+            main.invoke(null, (Object) new String[0]);
+        } catch (InvocationTargetException ex) {
+            uncaught(ex.getCause());
+        } catch (ExceptionInInitializerError ex) {
+            uncaught(ex.getCause());
+        } catch (IllegalAccessException ex) {
+            uncaught(ex);
+        }
+        //as the java launcher, the JVM exits once the threads of the program end
+    }//end main
+
+    /**
+     * @return a line of UTF-8, read a byte at a time so that the rest is left
+     * to the program, null at the end of the input
+     */
+    private static String readLine(final InputStream in) throws IOException {
+        ByteArrayOutputStream line = new ByteArrayOutputStream();
+        int b;
+        while ((b = in.read()) != '\n') {
+            if (b == -1) {
+                return null;
+            }
+            line.write(b);
+        }
+        return line.toString(StandardCharsets.UTF_8);
+    }//end readLine
+
+    /**
+     * report an exception thrown out of main, and exit
+     */
+    private static void uncaught(final Throwable t) {
+        System.err.print("Exception in thread \"main\" ");
+        t.printStackTrace();
+        System.exit(EXIT_FAILURE);
+    }//end uncaught
+
+    /**
+     * use what the runtime of a ZeptoN program uses, so the program does not
+     * pay for loading and linking it
+     */
+    private static void warmUp() {
+        Scanner scan = new Scanner(new ByteArrayInputStream("zeptor 42 4.2\n".getBytes(StandardCharsets.UTF_8)));
+        scan.useLocale(Locale.ROOT);
+        String word = scan.next() + scan.nextInt() + scan.nextDouble(); //indy string concatenation too
+        scan.close();
+
+        IntFunction<String> format = (int i) -> String.format("%s %d %.2f %c%n", word, i, i / 3.0, 'z');
+        String text = format.apply(7);
+
+        BigDecimal d = new BigDecimal("1.5").multiply(BigDecimal.TEN).add(BigDecimal.ONE);
+        BigInteger n = BigInteger.valueOf(text.length()).pow(20).mod(BigInteger.valueOf(97));
+
+        text = Arrays.toString(new int[]{n.intValue()}) + d.toPlainString() + Character.MIN_VALUE;
+        if (text.isEmpty()) { //never, keeps the work from being optimized away
+            System.out.println(text);
+        }
+    }//end warmUp
+
+    private ProgramWorker() {
+    }
+
+}//end class ProgramWorker
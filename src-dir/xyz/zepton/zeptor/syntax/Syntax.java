@@ -17,6 +17,8 @@
  */
 package xyz.zepton.zeptor.syntax;
 
+import java.util.List;
+
 /**
  * <p>
  * An interface to test a string.
@@ -54,6 +56,11 @@ public interface Syntax {
      */
     public String getCharQuote();
 
+    /**
+     * @return the key words, sorted
+     */
+    public List<String> getKeywords();
+
     /**
      * @return the string that indicate start of line comment
      */
@@ -64,6 +71,11 @@ public interface Syntax {
      */
     public int getLineCommentHeaderSize();
 
+    /**
+     * @return the reserved words, sorted
+     */
+    public List<String> getReserved();
+
     /**
      * @return the string that indicate start and end of string
      */
@@ -0,0 +1,519 @@
+/*
+ * Copyright (c) 2022 by William F. Gilreath (will@zepton.xyz)
+ * All rights reserved.
+ *
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 3 as published
+ * by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 3 for more details. The license is available at the following
+ * link:  https://www.gnu.org/licenses/gpl-3.0.txt.
+ *
+ */
+package xyz.zepton.zeptor.text;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Properties;
+import java.util.Random;
+
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Position;
+
+import xyz.zepton.zeptor.editor.EditorOptions;
+import xyz.zepton.zeptor.syntax.ZeptoNSyntax;
+
+/**
+ * A headless benchmark of how typing feels in a large file. It loads a ZeptoN
+ * file into a ProgrammingDocument, generated if none is given, and replays a
+ * synthetic trace of edits near a moving caret: typing, newlines with their
+ * auto-indent, block comment toggles, pastes and deletes. Each operation is
+ * timed, and its allocation is measured, and the p50, p99 and max latency and
+ * the allocation per keystroke of each kind are reported.
+ * <p>
+ * The trace is replayed for the operations asked for, and then only the kinds
+ * short of the samples asked for are replayed, in their shares of the trace,
+ * until each has them, so that the p99 of a rare kind is not the max of a
+ * handful of samples.
+ * <p>
+ * A run can be saved as a baseline, and a later run compared with it fails,
+ * exiting with status 1, if the p99 latency or the allocation of a kind is
+ * more than the tolerance over the baseline. A kind can also be given a limit
+ * of its own. A kind with fewer than MIN_COMPARED samples is neither saved
+ * nor compared. The options are:
+ * <pre>
+ *   -lines n        the lines of the generated file, 20000
+ *   -ops n          the operations replayed at least, 50, after a fifth as
+ *                   many to warm up
+ *   -samples n      the samples of each kind replayed at least, 100
+ *   -seed n         the seed of the trace, 1
+ *   -save file      save the run as a baseline
+ *   -baseline file  compare the run with a baseline
+ *   -tolerance %    how far over the baseline a run may be, 25
+ *   -limit k.p99=ms, -limit k.alloc=KiB
+ *                   a limit of kind k, one of type, newline, comment, paste,
+ *                   delete, over the baseline
+ *   file            a ZeptoN file to edit rather than a generated one
+ * </pre>
+ */
+public final class EditReplayBenchmark {
+
+    /**
+     * the fewest samples of a kind whose p99 is saved or compared
+     */
+    private static final int MIN_COMPARED = 100;
+
+    /**
+     * The kinds of operation, with their share of the trace and their limits
+     */
+    private enum Kind {
+        TYPE(60),
+        NEWLINE(15),
+        COMMENT(7),
+        PASTE(8),
+        DELETE(10);
+
+        private final int weight;
+        private double p99LimitMillis = Double.POSITIVE_INFINITY;
+        private double allocLimitKiB = Double.POSITIVE_INFINITY;
+
+        Kind(final int w) {
+            weight = w;
+        }
+
+        String label() {
+            return name().toLowerCase(Locale.ROOT);
+        }
+    }//end enum Kind
+
+    /**
+     * the measurements of one kind of operation
+     */
+    private static final class Samples {
+
+        private long[] nanos = new long[256];
+        private long allocBytes;
+        private int count;
+        private long keystrokes;
+
+        void add(final long n, final long bytes, final int keys) {
+            if (count == nanos.length) {
+                nanos = Arrays.copyOf(nanos, count * 2);
+            }
+            nanos[count++] = n;
+            allocBytes += bytes;
+            keystrokes += keys;
+        }
+
+        /**
+         * @return the latency at quantile q of the sorted samples, in
+         * milliseconds
+         */
+        double millis(final double q) {
+            return count == 0 ? 0 : nanos[Math.max(0, (int) Math.ceil(q * count) - 1)] / 1.0e6;
+        }
+    }//end class Samples
+
+    /**
+     * the words typed
+     */
+    private static final String[] WORDS = {
+        "total += i * i;", "println(\"value = \" + x);", "int count = 0;",
+        "if (x > max) { max = x; }", "String s = \"text\";", "count++;"};
+
+    /**
+     * measures the allocation of this thread
+     */
+    private static final com.sun.management.ThreadMXBean THREADS
+            = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    /**
+     * the caret
+     */
+    private int caret;
+
+    /**
+     * the document edited
+     */
+    private final ProgrammingDocument doc;
+
+    /**
+     * the start and end of the block comment toggled on, null if none
+     */
+    private Position commentStart;
+    private Position commentEnd;
+
+    /**
+     * the trace
+     */
+    private final Random random;
+
+    /**
+     * the measurements, null while warming up
+     */
+    private EnumMap<Kind, Samples> samples;
+
+    /**
+     * Constructor
+     *
+     * @param text the text edited
+     * @param seed the seed of the trace
+     */
+    private EditReplayBenchmark(final String text, final long seed) throws BadLocationException {
+        doc = new ProgrammingDocument(new ZeptoNSyntax(), new EditorOptions());
+        doc.insertString(0, text, null);
+        random = new Random(seed);
+        caret = text.length() / 2;
+    }
+
+    /**
+     * @return a ZeptoN program of about n lines
+     */
+    static String generate(final int n) {
+        StringBuilder b = new StringBuilder();
+        b.append("package zepton.program.bench;\n\nprog Bench {\n\n");
+        int m = 0;
+        while (b.length() / 24 < n) { //about 24 characters a line
+            b.append("  /* method ").append(m).append(" sums the squares */\n");
+            b.append("  int sum").append(m).append("(int n) {\n");
+            b.append("    int total = 0;\n");
+            b.append("    for (int i = 0; i < n; i++) {\n");
+            b.append("      total += i * i; // square\n");
+            b.append("    }//end for\n");
+            b.append("    println(\"sum").append(m).append(" = \" + total);\n");
+            b.append("    return total;\n");
+            b.append("  }//end sum").append(m).append("\n\n");
+            m++;
+        }
+        b.append("  begin {\n    println(sum0(10));\n  }//end begin\n}//end prog Bench\n");
+        return b.toString();
+    }//end generate
+
+    /**
+     * @return the start of the line of pos
+     */
+    private int lineStart(final int pos) {
+        return doc.getLinePos(doc.getLineNo(pos));
+    }
+
+    /**
+     * @return the end of the line of pos, before its newline
+     */
+    private int lineEnd(final int pos) throws BadLocationException {
+        int end = pos;
+        int length = doc.getLength();
+        while (end < length && !"\n".equals(doc.getText(end, 1))) {
+            end++;
+        }
+        return end;
+    }
+
+    /**
+     * time one edit of a kind
+     */
+    private void measure(final Kind kind, final int keys, final Edit edit) throws BadLocationException {
+        long thread = Thread.currentThread().getId();
+        long bytes = THREADS.getThreadAllocatedBytes(thread);
+        long begin = System.nanoTime();
+        edit.run();
+        long nanos = System.nanoTime() - begin;
+        bytes = THREADS.getThreadAllocatedBytes(thread) - bytes;
+        if (samples != null) {
+            samples.get(kind).add(nanos, bytes, keys);
+        }
+    }
+
+    /**
+     * an edit of the document
+     */
+    private interface Edit {
+
+        void run() throws BadLocationException;
+    }
+
+    /**
+     * replay n operations of the trace, then the kinds short of the samples
+     * until each has them
+     */
+    private void replay(final int n, final int minSamples) throws BadLocationException {
+        for (int i = 0;; i++) {
+            int total = 0;
+            for (Kind k : Kind.values()) {
+                total += weightOf(k, i < n, minSamples);
+            }
+            if (total == 0) {
+                return;
+            }
+            if (random.nextInt(20) == 0) { //the caret moves, most edits are near the last
+                caret = random.nextInt(doc.getLength());
+            }
+            caret = Math.min(caret, doc.getLength());
+            int pick = random.nextInt(total);
+            Kind kind = Kind.TYPE;
+            for (Kind k : Kind.values()) {
+                int weight = weightOf(k, i < n, minSamples);
+                if (pick < weight) {
+                    kind = k;
+                    break;
+                }
+                pick -= weight;
+            }
+            step(kind);
+        }
+    }//end replay
+
+    /**
+     * @return the share of a kind in the trace, in the operations asked for,
+     * and after them 0 for a kind with the samples asked for
+     */
+    private int weightOf(final Kind k, final boolean asked, final int minSamples) {
+        if (asked || (samples != null && samples.get(k).count < minSamples)) {
+            return k.weight;
+        }
+        return 0;
+    }
+
+    /**
+     * replay one operation
+     */
+    private void step(final Kind kind) throws BadLocationException {
+        switch (kind) {
+            case TYPE: {
+                String word = WORDS[random.nextInt(WORDS.length)];
+                for (int c = 0; c < word.length(); c++) { //a keystroke each
+                    final String key = word.substring(c, c + 1);
+                    final int at = caret;
+                    measure(kind, 1, () -> doc.insertString(at, key, null));
+                    caret++;
+                }
+                break;
+            }
+            case NEWLINE: {
+                caret = lineEnd(caret);
+                int before = doc.getLength();
+                final int at = caret;
+                measure(kind, 1, () -> doc.insertString(at, "\n", null));
+                caret += doc.getLength() - before; //past the indent
+                break;
+            }
+            case COMMENT: {
+                if (!isCommented()) {
+                    final int start = lineStart(caret);
+                    final int end = lineEnd(Math.min(doc.getLength(), start + 400)) + 2;
+                    measure(kind, 2, () -> {
+                        doc.insertString(start, "/*", null);
+                        doc.insertString(end, "*/", null);
+                    });
+                    commentStart = doc.createPosition(start);
+                    commentEnd = doc.createPosition(end);
+                } else {
+                    final int start = commentStart.getOffset();
+                    final int end = commentEnd.getOffset();
+                    measure(kind, 2, () -> {
+                        doc.remove(end, 2);
+                        doc.remove(start, 2);
+                    });
+                    commentStart = null;
+                }
+                break;
+            }
+            case PASTE: {
+                int from = lineStart(random.nextInt(doc.getLength()));
+                final String clip = doc.getText(from, Math.min(doc.getLength() - from, 100 + random.nextInt(600)));
+                final int at = lineStart(caret);
+                measure(kind, 1, () -> doc.insertString(at, clip, null));
+                caret = at + clip.length();
+                break;
+            }
+            case DELETE: {
+                final int len = Math.min(1 + random.nextInt(200), doc.getLength() - caret);
+                final int at = caret;
+                measure(kind, 1, () -> doc.remove(at, len));
+                break;
+            }
+            default:
+                break;
+        }//end switch
+    }//end step
+
+    /**
+     * @return whether the block comment toggled on is still there, as the
+     * other edits may have changed it
+     */
+    private boolean isCommented() throws BadLocationException {
+        if (commentStart == null) {
+            return false;
+        }
+        int start = commentStart.getOffset();
+        int end = commentEnd.getOffset();
+        return end > start + 2 && end + 2 <= doc.getLength()
+                && "/*".equals(doc.getText(start, 2)) && "*/".equals(doc.getText(end, 2));
+    }//end isCommented
+
+    /**
+     * @return whether every kind is within its limits, after printing the
+     * report, and the run as a baseline
+     */
+    private boolean report(final Properties run) {
+        System.out.printf("%d lines, %d characters%n%n", doc.getNoOfLines(), doc.getLength());
+        System.out.printf("%-8s %7s %9s %9s %9s %14s%n", "kind", "count", "p50 ms", "p99 ms", "max ms", "KiB/keystroke");
+        boolean pass = true;
+        StringBuilder notes = new StringBuilder();
+        for (Kind k : Kind.values()) {
+            Samples s = samples.get(k);
+            Arrays.sort(s.nanos, 0, s.count);
+            double kib = s.keystrokes == 0 ? 0 : s.allocBytes / 1024.0 / s.keystrokes;
+            double p99 = s.millis(0.99);
+            System.out.printf(Locale.ROOT, "%-8s %7d %9.3f %9.3f %9.3f %14.1f%n",
+                    k.label(), s.count, s.millis(0.5), p99, s.millis(1.0), kib);
+            if (s.count < MIN_COMPARED) {
+                //its p99 is about its max, noise rather than a regression
+                notes.append(String.format(Locale.ROOT, "SKIP %s: %d samples, fewer than %d, not saved nor compared%n",
+                        k.label(), s.count, MIN_COMPARED));
+                continue;
+            }
+            run.setProperty(k.label() + ".p99", String.format(Locale.ROOT, "%.3f", p99));
+            run.setProperty(k.label() + ".alloc", String.format(Locale.ROOT, "%.1f", kib));
+            if (p99 > k.p99LimitMillis) {
+                notes.append(String.format(Locale.ROOT, "FAIL %s p99 %.3f ms > %.3f ms%n", k.label(), p99, k.p99LimitMillis));
+                pass = false;
+            }
+            if (kib > k.allocLimitKiB) {
+                notes.append(String.format(Locale.ROOT, "FAIL %s %.1f KiB/keystroke > %.1f KiB%n", k.label(), kib, k.allocLimitKiB));
+                pass = false;
+            }
+        }
+        System.out.println();
+        System.out.print(notes);
+        if (pass) {
+            System.out.println("PASS");
+        }
+        return pass;
+    }//end report
+
+    /**
+     * set a limit, k.p99=ms or k.alloc=KiB
+     */
+    private static void setLimit(final String key, final double value) {
+        String[] parts = key.split("\\.");
+        Kind k = parts.length == 2 ? Kind.valueOf(parts[0].toUpperCase(Locale.ROOT)) : null;
+        if (k != null && "p99".equals(parts[1])) {
+            k.p99LimitMillis = value;
+        } else if (k != null && "alloc".equals(parts[1])) {
+            k.allocLimitKiB = value;
+        } else {
+            throw new IllegalArgumentException("a limit is kind.p99=ms or kind.alloc=KiB: " + key);
+        }
+    }//end setLimit
+
+    /**
+     * set the limits of a baseline, the tolerance over it
+     */
+    private static void setLimits(final String file, final double tolerance) throws IOException {
+        Properties baseline = new Properties();
+        try (Reader in = Files.newBufferedReader(Paths.get(file))) {
+            baseline.load(in);
+        }
+        for (String key : baseline.stringPropertyNames()) {
+            setLimit(key, Double.parseDouble(baseline.getProperty(key)) * (1 + tolerance / 100));
+        }
+    }//end setLimits
+
+    /**
+     * Run the benchmark
+     *
+     * @param args the options
+     * @throws Exception if the file cannot be read or an edit fails
+     */
+    public static void main(final String[] args) throws Exception {
+        int lines = 20000;
+        int ops = 50;
+        int minSamples = 100;
+        long seed = 1;
+        double tolerance = 25;
+        String baseline = null;
+        String save = null;
+        ArrayList<String> limits = new ArrayList<>();
+        String file = null;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "-lines":
+                    lines = Integer.parseInt(args[++i]);
+                    break;
+                case "-ops":
+                    ops = Integer.parseInt(args[++i]);
+                    break;
+                case "-samples":
+                    minSamples = Integer.parseInt(args[++i]);
+                    break;
+                case "-seed":
+                    seed = Long.parseLong(args[++i]);
+                    break;
+                case "-save":
+                    save = args[++i];
+                    break;
+                case "-baseline":
+                    baseline = args[++i];
+                    break;
+                case "-tolerance":
+                    tolerance = Double.parseDouble(args[++i]);
+                    break;
+                case "-limit":
+                    limits.add(args[++i]);
+                    break;
+                default:
+                    file = args[i];
+            }
+        }
+
+        if (baseline != null) {
+            setLimits(baseline, tolerance);
+        }
+        for (String limit : limits) {
+            int eq = limit.indexOf('=');
+            if (eq < 0) {
+                throw new IllegalArgumentException("a limit is kind.p99=ms or kind.alloc=KiB: " + limit);
+            }
+            setLimit(limit.substring(0, eq), Double.parseDouble(limit.substring(eq + 1)));
+        }
+
+        String text = file == null ? generate(lines) : readText(file);
+        EditReplayBenchmark bench = new EditReplayBenchmark(text, seed);
+        bench.replay(Math.max(1, ops / 5), 0); //warm up
+        bench.samples = new EnumMap<>(Kind.class);
+        for (Kind k : Kind.values()) {
+            bench.samples.put(k, new Samples());
+        }
+        bench.replay(ops, minSamples);
+
+        Properties run = new Properties();
+        boolean pass = bench.report(run);
+        if (save != null) {
+            try (Writer out = Files.newBufferedWriter(Paths.get(save))) {
+                run.store(out, String.format("EditReplayBenchmark -lines %d -ops %d -samples %d -seed %d", lines, ops, minSamples, seed));
+            }
+        }
+        System.exit(pass ? 0 : 1);
+    }//end main
+
+    /**
+     * @return the text of a file, with the line ends of the editor
+     */
+    private static String readText(final String file) throws IOException {
+        return Files.readString(Paths.get(file)).replace("\r\n", "\n");
+    }
+
+}//end class EditReplayBenchmark
@@ -276,18 +276,11 @@ public class FindReplaceDialog extends JDialog implements KeyListener {
      * User pressed replace all
      */
     public void replaceAll() {
-        current = 0;
-        int pos = textPane.find(getSearchString(), isCaseSensitive(), isWholeWord(), current);
-        while (pos != -1) {
-            //select the text
-            current = pos + getSearchString().length();
-            textPane.highlight(pos, current);
-            textPane.select(current - getSearchString().length(), current);
-            current = textPane.replace(getReplaceString());
-            pos = textPane.find(getSearchString(), isCaseSensitive(), isWholeWord(), current);
-        }
+        long begin = System.nanoTime();
+        int count = textPane.replaceAll(getSearchString(), isCaseSensitive(), isWholeWord(), getReplaceString());
+        long msec = (System.nanoTime() - begin) / 1000000;
 
-        JOptionPane.showMessageDialog(this, "Done", "Information", JOptionPane.PLAIN_MESSAGE, null);
+        JOptionPane.showMessageDialog(this, "Replaced " + count + (count == 1 ? " occurrence" : " occurrences") + " in " + msec + " ms.", "Information", JOptionPane.PLAIN_MESSAGE, null);
 
         hideDialog();
     }
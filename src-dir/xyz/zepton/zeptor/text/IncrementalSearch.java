@@ -0,0 +1,426 @@
+/*
+ * Copyright (c) 2022 by William F. Gilreath (will@zepton.xyz)
+ * All rights reserved.
+ *
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 3 as published
+ * by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 3 for more details. The license is available at the following
+ * link:  https://www.gnu.org/licenses/gpl-3.0.txt.
+ *
+ */
+package xyz.zepton.zeptor.text;
+
+import java.util.Arrays;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+import javax.swing.SwingWorker;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Document;
+
+import xyz.zepton.zeptor.log.Logger;
+import xyz.zepton.zeptor.metrics.ZeptorEvents;
+
+/**
+ * Runs the searches of a find dialog off the event dispatch thread.
+ * <p>
+ * A search works on a snapshot of the document, taken once per document
+ * version, so the user can keep typing while it runs. Starting a search
+ * cancels the one still running, and a search that runs past the time budget
+ * gives up, so a slow regular expression on a large file cannot hang the
+ * editor.
+ */
+class IncrementalSearch implements DocumentListener {
+
+    /**
+     * The outcome of one search, delivered on the event dispatch thread
+     */
+    static final class Result {
+
+        /**
+         * the end of the match, exclusive
+         */
+        private final int end;
+        /**
+         * why the search failed, null if it ran to completion
+         */
+        private final String error;
+        /**
+         * the start of every match of a plain search, null for a regex
+         */
+        private final int[] occurrences;
+        /**
+         * the plain search, null for a regex
+         */
+        private final TextSearch search;
+        /**
+         * the start of the match, -1 if there is none
+         */
+        private final int start;
+
+        private Result(final int start, final int end, final String error) {
+            this(start, end, error, null, null);
+        }
+
+        private Result(final int start, final int end, final String error, final TextSearch search, final int[] occurrences) {
+            this.start = start;
+            this.end = end;
+            this.error = error;
+            this.search = search;
+            this.occurrences = occurrences;
+        }
+
+        /**
+         * @return the end of the match, exclusive
+         */
+        int getEnd() {
+            return end;
+        }
+
+        /**
+         * @return why the search failed, null if it ran to completion
+         */
+        String getError() {
+            return error;
+        }
+
+        /**
+         * @return the start of every match of a plain search, null for a regex
+         */
+        int[] getOccurrences() {
+            return occurrences;
+        }
+
+        /**
+         * @return the plain search, null for a regex
+         */
+        TextSearch getSearch() {
+            return search;
+        }
+
+        /**
+         * @return the start of the match, -1 if there is none
+         */
+        int getStart() {
+            return start;
+        }
+
+        /**
+         * @return whether a match was found
+         */
+        boolean isFound() {
+            return start != -1;
+        }
+    }//end class Result
+
+    /**
+     * Thrown from within a scan to abandon it
+     */
+    private static final class ScanAbortedException extends RuntimeException {
+
+        private static final long serialVersionUID = 6017290839536519046L;
+
+        private ScanAbortedException(final String message) {
+            super(message, null, false, false);
+        }
+    }//end class ScanAbortedException
+
+    /**
+     * The snapshot as seen by one scan. Every so many characters it checks
+     * whether the scan was cancelled or is over budget, which also stops a
+     * regular expression that is backtracking.
+     */
+    private static final class GuardedText implements CharSequence {
+
+        private final long deadline;
+        private final String text;
+        private final Scan scan;
+        private int reads;
+
+        private GuardedText(final String text, final Scan scan, final long deadline) {
+            this.text = text;
+            this.scan = scan;
+            this.deadline = deadline;
+        }
+
+        @Override
+        public char charAt(final int index) {
+            if ((++reads & CHECK_INTERVAL) == 0) {
+                if (scan.isCancelled()) {
+                    throw new ScanAbortedException(null);
+                }
+                if (System.nanoTime() > deadline) {
+                    throw new ScanAbortedException("Search gave up after " + TIME_BUDGET_MSEC / 1000.0 + " s");
+                }
+            }
+            return text.charAt(index);
+        }
+
+        @Override
+        public int length() {
+            return text.length();
+        }
+
+        @Override
+        public CharSequence subSequence(final int start, final int end) {
+            return new GuardedText(text.substring(start, end), scan, deadline);
+        }
+
+        @Override
+        public String toString() {
+            return text;
+        }
+    }//end class GuardedText
+
+    /**
+     * One search running in the background
+     */
+    private final class Scan extends SwingWorker<Result, Void> {
+
+        private final Consumer<Result> callback;
+        private final boolean caseSensitive;
+        private final int from;
+        private final Pattern pattern;
+        private final boolean regex;
+        private final TextSearch search;
+        private final String searchText;
+        private final String text;
+        private final boolean whole;
+
+        private Scan(final String text, final String searchText, final boolean regex, final boolean caseSensitive,
+                final boolean whole, final int from, final Pattern pattern, final TextSearch search,
+                final Consumer<Result> callback) {
+            this.text = text;
+            this.searchText = searchText;
+            this.regex = regex;
+            this.caseSensitive = caseSensitive;
+            this.whole = whole;
+            this.from = from;
+            this.pattern = pattern;
+            this.search = search;
+            this.callback = callback;
+        }
+
+        @Override
+        protected Result doInBackground() {
+            ZeptorEvents.Find event = new ZeptorEvents.Find();
+            event.begin();
+            Result r = scan();
+            if (event.shouldCommit()) {
+                event.patternLength = searchText.length();
+                event.range = text.length(); //from the position to the end, and from the start as it wraps
+                event.caseSensitive = caseSensitive;
+                event.whole = whole;
+                event.regex = pattern != null;
+                event.foundAt = r.getStart();
+                event.matches = r.getOccurrences() != null ? r.getOccurrences().length : r.isFound() ? 1 : 0;
+                event.commit();
+            }
+            return r;
+        }
+
+        /**
+         * @return the match from the position, wrapping to the start
+         */
+        private Result scan() {
+            GuardedText guarded = new GuardedText(text, this, System.nanoTime() + TIME_BUDGET_MSEC * 1000000L);
+            try {
+                if (pattern != null) {
+                    Matcher m = pattern.matcher(guarded);
+                    //wrap to the start, as the plain search does
+                    if (m.find(Math.min(from, text.length())) || (from > 0 && m.find(0))) {
+                        return new Result(m.start(), m.end(), null);
+                    }
+                } else {
+                    //all of them, for the highlights and the count
+                    int[] found = search.findAll(guarded, 0, text.length());
+                    int i = Arrays.binarySearch(found, from);
+                    if (i < 0) {
+                        i = -i - 1;
+                    }
+                    if (found.length > 0) {
+                        i = i < found.length ? i : 0; //wrap to the first
+                        return new Result(found[i], found[i] + search.getLength(), null, search, found);
+                    }
+                    return new Result(-1, -1, null, search, found);
+                }
+                return new Result(-1, -1, null);
+            } catch (ScanAbortedException ex) {
+                return new Result(-1, -1, ex.getMessage());
+            } catch (StackOverflowError ex) {
+                return new Result(-1, -1, "Pattern is too complex");
+            }
+        }//end scan
+
+        @Override
+        protected void done() {
+            if (isCancelled() || running != this) {
+                return;
+            }
+            running = null;
+            if (snapshot != text) {
+                //edited while searching, the positions would be off
+                search(searchText, regex, caseSensitive, whole, from, callback);
+                return;
+            }
+            try {
+                callback.accept(get());
+            } catch (InterruptedException | ExecutionException ex) {
+                Logger.LOG.logTrap(ex);
+            }
+        }
+    }//end class Scan
+
+    /**
+     * a scan checks for cancellation every this many characters plus one
+     */
+    private static final int CHECK_INTERVAL = 0xFFF;
+
+    /**
+     * how long a search may run before it gives up
+     */
+    static final long TIME_BUDGET_MSEC = 2000;
+
+    /**
+     * the document searched
+     */
+    private final Document doc;
+
+    /**
+     * the search that is running, null if none
+     */
+    private Scan running;
+
+    /**
+     * the text of the document, null when it has changed since
+     */
+    private String snapshot;
+
+    /**
+     * Constructor
+     *
+     * @param d the document to search
+     */
+    IncrementalSearch(final Document d) {
+        doc = d;
+        doc.addDocumentListener(this);
+    }
+
+    /**
+     * Cancel the search that is running, if any
+     */
+    void cancel() {
+        if (running != null) {
+            running.cancel(false); //the scan notices at its next check
+            running = null;
+        }
+    }
+
+    /**
+     * As defined in DocumentListener
+     */
+    @Override
+    public void changedUpdate(final DocumentEvent e) {
+        //style changes leave the text alone
+    }
+
+    /**
+     * As defined in DocumentListener
+     */
+    @Override
+    public void insertUpdate(final DocumentEvent e) {
+        snapshot = null;
+    }
+
+    /**
+     * @return whether a search is running
+     */
+    boolean isRunning() {
+        return running != null;
+    }
+
+    /**
+     * As defined in DocumentListener
+     */
+    @Override
+    public void removeUpdate(final DocumentEvent e) {
+        snapshot = null;
+    }
+
+    /**
+     * Start a search, cancelling the one running. Must be called on the
+     * event dispatch thread, where the callback is also run.
+     *
+     * @param searchText the text or regular expression to find
+     * @param regex whether the search text is a regular expression
+     * @param caseSensitive whether to be case sensitive
+     * @param whole whether to find whole words only
+     * @param from the position to search from, wrapping to the start
+     * @param callback receives the result unless the search is cancelled
+     */
+    void search(final String searchText, final boolean regex, final boolean caseSensitive, final boolean whole,
+            final int from, final Consumer<Result> callback) {
+
+        cancel();
+
+        if (searchText.isEmpty()) {
+            callback.accept(new Result(-1, -1, null));
+            return;
+        }
+
+        Pattern pattern = null;
+        TextSearch search = null;
+        if (regex) {
+            try {
+                pattern = compile(searchText, caseSensitive, whole);
+            } catch (PatternSyntaxException ex) {
+                callback.accept(new Result(-1, -1, "Invalid pattern: " + ex.getDescription()));
+                return;
+            }
+        } else {
+            search = TextSearch.compile(searchText, caseSensitive, whole);
+        }
+
+        if (snapshot == null) {
+            try {
+                snapshot = doc.getText(0, doc.getLength());
+            } catch (BadLocationException ex) {
+                Logger.LOG.logTrap(ex);
+                return;
+            }
+        }
+
+        running = new Scan(snapshot, searchText, regex, caseSensitive, whole, from, pattern, search, callback);
+        running.execute();
+
+    }//end search
+
+    /**
+     * @return the regular expression, whole word meaning neither neighbour
+     * is a letter or a digit as for a plain search
+     */
+    private static Pattern compile(final String regex, final boolean caseSensitive, final boolean whole) {
+        int flags = Pattern.MULTILINE;
+        if (!caseSensitive) {
+            flags |= Pattern.CASE_INSENSITIVE | Pattern.UNICODE_CASE;
+        }
+        String p = regex;
+        if (whole) {
+            p = "(?<![\\p{L}\\p{Nd}])(?:" + regex + ")(?![\\p{L}\\p{Nd}])";
+        }
+        return Pattern.compile(p, flags);
+    }//end compile
+
+}//end class IncrementalSearch
@@ -30,6 +30,7 @@ import javax.swing.text.BadLocationException;
 import xyz.zepton.zeptor.editor.EditorOptions;
 import xyz.zepton.zeptor.gui.WordWrapOptional;
 import xyz.zepton.zeptor.log.Logger;
+import xyz.zepton.zeptor.metrics.ZeptorEvents;
 import xyz.zepton.zeptor.syntax.ZeptoNSyntax;
 
 /**
@@ -46,6 +47,10 @@ class MyJTextPane extends WordWrapOptional {
      */
     private boolean colourHighlight;
     private boolean compileFlag = false;
+    /**
+     * the completion popup, created on first use
+     */
+    private CompletionPopup completion;
     /**
      * the document
      */
@@ -54,6 +59,10 @@ class MyJTextPane extends WordWrapOptional {
      * the editor options
      */
     private EditorOptions options;
+    /**
+     * the last search, reused while the query is unchanged
+     */
+    private TextSearch search;
 
     public MyJTextPane(EditorOptions o) {
         super(false);
@@ -79,6 +88,16 @@ class MyJTextPane extends WordWrapOptional {
         doc.addUndoableEditListener(listener);
     }
 
+    /**
+     * Complete the identifier before the caret
+     */
+    public void complete() {
+        if (completion == null) {
+            completion = new CompletionPopup(this, doc.getCompletions());
+        }
+        completion.show();
+    }
+
     /**
      * Method to delete selected text
      */
@@ -101,7 +120,20 @@ class MyJTextPane extends WordWrapOptional {
      * @return position of search string
      */
     public int find(String searchText, boolean caseSensitive, boolean whole, int start) {
-        return MyTextUtil.find(getText(), searchText, caseSensitive, whole, start, getText().length() - 1);
+        ZeptorEvents.Find event = new ZeptorEvents.Find();
+        event.begin();
+        CharSequence content = TextSearch.contentOf(doc);
+        int found = getSearch(searchText, caseSensitive, whole).find(content, start);
+        if (event.shouldCommit()) {
+            event.patternLength = searchText.length();
+            event.range = content.length() - Math.max(0, start);
+            event.caseSensitive = caseSensitive;
+            event.whole = whole;
+            event.foundAt = found;
+            event.matches = found < 0 ? 0 : 1;
+            event.commit();
+        }
+        return found;
     }
 
     /**
@@ -115,6 +147,23 @@ class MyJTextPane extends WordWrapOptional {
         return this.compileFlag;
     }
 
+    /**
+     * @return the search for the query, compiled only when the query changes
+     */
+    TextSearch getSearch(String searchText, boolean caseSensitive, boolean whole) {
+        if (search == null || !search.matches(searchText, caseSensitive, whole)) {
+            search = TextSearch.compile(searchText, caseSensitive, whole);
+        }
+        return search;
+    }
+
+    /**
+     * @return the color for highlighting found text
+     */
+    Color getHighlightColor() {
+        return options.getHighlightColor();
+    }
+
     /**
      * @return the current line number
      */
@@ -231,6 +280,55 @@ class MyJTextPane extends WordWrapOptional {
         }
     }
 
+    /**
+     * Replace every match in one pass, as a single undoable edit
+     *
+     * @param searchText the search text
+     * @param caseSensitive wether to be case sensitive
+     * @param whole whether to find whole word only
+     * @param replace The text to replace with
+     * @return the number of matches replaced
+     */
+    public int replaceAll(String searchText, boolean caseSensitive, boolean whole, String replace) {
+        ZeptorEvents.Find event = new ZeptorEvents.Find();
+        event.begin();
+        TextSearch s = getSearch(searchText, caseSensitive, whole);
+        CharSequence content = TextSearch.contentOf(doc);
+        int[] found = s.findAll(content, 0, content.length());
+        if (event.shouldCommit()) {
+            event.patternLength = searchText.length();
+            event.range = content.length();
+            event.caseSensitive = caseSensitive;
+            event.whole = whole;
+            event.foundAt = found.length == 0 ? -1 : found[0];
+            event.matches = found.length;
+            event.commit();
+        }
+        if (found.length == 0) {
+            return 0;
+        }
+
+        //only the span from the first to the last match changes
+        int m = s.getLength();
+        int start = found[0];
+        int end = found[found.length - 1] + m;
+        StringBuilder b = new StringBuilder(end - start + found.length * Math.max(0, replace.length() - m));
+        int pos = start;
+        for (int f : found) {
+            b.append(content, pos, f).append(replace);
+            pos = f + m;
+        }
+
+        try {
+            doc.replaceRange(b.toString(), start, end);
+            setCaretPosition(start + b.length());
+        } catch (BadLocationException ex) {
+            Logger.LOG.logTrap(ex);
+            return 0;
+        }
+        return found.length;
+    }
+
     /**
      * Select all the text
      */
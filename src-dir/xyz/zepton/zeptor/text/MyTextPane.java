@@ -18,6 +18,7 @@
 package xyz.zepton.zeptor.text;
 
 import java.awt.BorderLayout;
+import java.awt.event.HierarchyEvent;
 import java.io.File;
 import java.io.FileReader;
 import java.io.FileWriter;
@@ -38,7 +39,6 @@ import javax.swing.event.DocumentListener;
 import javax.swing.event.UndoableEditEvent;
 import javax.swing.event.UndoableEditListener;
 import javax.swing.undo.CannotUndoException;
-import javax.swing.undo.UndoManager;
 import javax.swing.undo.UndoableEdit;
 
 import xyz.zepton.zeptor.editor.EditorOptions;
@@ -46,6 +46,9 @@ import xyz.zepton.zeptor.editor.Zeptor;
 import xyz.zepton.zeptor.gui.MyFileFilter;
 import xyz.zepton.zeptor.listener.MyFileChangedListener;
 import xyz.zepton.zeptor.log.Logger;
+import xyz.zepton.zeptor.metrics.LatencyHistogram;
+import xyz.zepton.zeptor.metrics.Metrics;
+import xyz.zepton.zeptor.metrics.ZeptorEvents;
 import xyz.zepton.zeptor.transpiler.ZepT;
 
 /**
@@ -60,8 +63,17 @@ public class MyTextPane extends JPanel implements
         UndoableEditListener {
 
     private static final String LINE_COL_FMT = " %d : %d | %s ";
+    /**
+     * the time to save a file
+     */
+    private static final LatencyHistogram SAVE_TIME = Metrics.histogram("save.time");
     private static final long serialVersionUID = 978034438378288255L;
 
+    /**
+     * the number of text panes made, numbers the gauges of their documents
+     */
+    private static int documentCount = 0;
+
     /**
      * The file that is being edited
      */
@@ -70,6 +82,14 @@ public class MyTextPane extends JPanel implements
      * the find dialog
      */
     private FindDialog findDialog;
+    /**
+     * the name of the gauge of the heap the document uses
+     */
+    private String heapGauge;
+    /**
+     * the journal of unsaved edits
+     */
+    private EditJournal journal;
     /**
      * The line label
      */
@@ -83,6 +103,10 @@ public class MyTextPane extends JPanel implements
      * indicate wether there is need to save
      */
     private boolean needToSave;
+    /**
+     * the file to read once the pane is first shown, null if read
+     */
+    private File pendingFile;
     /**
      * the find replace dialog
      */
@@ -98,7 +122,7 @@ public class MyTextPane extends JPanel implements
     /**
      * the undo manager
      */
-    private UndoManager undoManager;
+    private UndoHistory undoManager;
     /**
      * the editor frame
      */
@@ -181,9 +205,18 @@ public class MyTextPane extends JPanel implements
             }
         }
 
+        journal.discard();
+        Metrics.remove(heapGauge);
         zeptor.removeTextPane(this);
     }//end close()
 
+    /**
+     * complete the identifier before the caret
+     */
+    public void complete() {
+        textPane.complete();
+    }
+
     /**
      * copy the selected text to clipboard
      */
@@ -202,6 +235,9 @@ public class MyTextPane extends JPanel implements
      * find text
      */
     public void find() {
+        if (findDialog == null) {
+            findDialog = new FindDialog(zeptor, textPane);
+        }
         findDialog.setVisible(true);
     }
 
@@ -209,6 +245,9 @@ public class MyTextPane extends JPanel implements
      * find text
      */
     public void findReplace() {
+        if (replaceDialog == null) {
+            replaceDialog = new FindReplaceDialog(zeptor, textPane);
+        }
         replaceDialog.setVisible(true);
     }
 
@@ -219,10 +258,29 @@ public class MyTextPane extends JPanel implements
         return file;
     }
 
+    /**
+     * @return the text, empty while the file is pending
+     */
     public final String getText() {
         return this.textPane.getText();
     }
 
+    /**
+     * @return the identifier the caret is in or next to, empty if none
+     */
+    public String getWordAtCaret() {
+        CharSequence text = TextSearch.contentOf(textPane.getDocument());
+        int start = textPane.getCaretPosition();
+        int end = start;
+        while (start > 0 && Character.isJavaIdentifierPart(text.charAt(start - 1))) {
+            start--;
+        }
+        while (end < text.length() && Character.isJavaIdentifierPart(text.charAt(end))) {
+            end++;
+        }
+        return text.subSequence(start, end).toString();
+    }
+
     /**
      * @return the title
      */
@@ -281,11 +339,12 @@ public class MyTextPane extends JPanel implements
      */
     private void init() {
         listeners = new ArrayList<MyFileChangedListener>();
-        undoManager = new UndoManager();
+        undoManager = new UndoHistory(zeptor.getEditorOptions().getUndoBudget());
         needToSave = false;
         setLayout(new BorderLayout());
 
         textPane = new MyJTextPane(zeptor.getEditorOptions());
+        journal = new EditJournal(textPane.getDocument());
         JScrollPane scrollPane = new JScrollPane(textPane);
 
         add(scrollPane, BorderLayout.CENTER);
@@ -303,8 +362,16 @@ public class MyTextPane extends JPanel implements
 
         add(south, BorderLayout.SOUTH);
 
-        findDialog = new FindDialog(zeptor, textPane);
-        replaceDialog = new FindReplaceDialog(zeptor, textPane);
+        //the dialogs are made on first use, and a pending file is read once the pane is first shown
+        addHierarchyListener((HierarchyEvent event) -> {
+            if (pendingFile != null && (event.getChangeFlags() & HierarchyEvent.SHOWING_CHANGED) != 0 && isShowing()) {
+                readPending();
+            }
+        });
+
+        heapGauge = "document." + (++documentCount) + ".heapBytes";
+        Metrics.gauge(heapGauge, () -> textPane.getDocument() instanceof ProgrammingDocument
+                ? ((ProgrammingDocument) textPane.getDocument()).estimateHeapBytes() : 0);
 
     }
 
@@ -313,6 +380,15 @@ public class MyTextPane extends JPanel implements
      */
     public void insertUpdate(DocumentEvent e) {
         needToSave = true;
+        journal.recordInsert(e.getOffset(), e.getLength());
+    }
+
+    /**
+     * @return whether the file is not read yet, as the tab was not shown,
+     * so the file on disk is the text
+     */
+    public boolean isPending() {
+        return pendingFile != null;
     }
 
     public final boolean isCompiled() {
@@ -332,14 +408,45 @@ public class MyTextPane extends JPanel implements
      * @param f the file to be read
      */
     public void read(File f) throws IOException {
+        pendingFile = null;
         setFile(f);
         FileReader reader = new FileReader(f);
+        //the file itself is the base of the journal, do not record it
+        journal.setRecording(false);
         textPane.read(reader, null);
+        journal.setRecording(true);
+        journal.reset(f);
         needToSave = false;
         textPane.setCaretPosition(0);
         reader.close();
     }
 
+    /**
+     * read the file once the pane is first shown, until then the file is
+     * its text, as for a tab opened in the background
+     *
+     * @param f the file to be read
+     */
+    public void readLater(File f) {
+        setFile(f);
+        pendingFile = f;
+        if (isShowing()) {
+            readPending();
+        }
+    }
+
+    /**
+     * read the pending file
+     */
+    private void readPending() {
+        try {
+            read(pendingFile);
+        } catch (IOException ex) {
+            pendingFile = null;
+            Logger.LOG.logTrap(ex);
+        }
+    }//end readPending
+
     public void redo() {
         try {
             undoManager.redo();
@@ -383,6 +490,7 @@ public class MyTextPane extends JPanel implements
      */
     public void removeUpdate(DocumentEvent e) {
         needToSave = true;
+        journal.recordRemove(e.getOffset(), e.getLength());
     }
 
     /**
@@ -390,7 +498,13 @@ public class MyTextPane extends JPanel implements
      */
     public void save() {
 
+        if (pendingFile != null) {
+            return; //not read yet, the file is as it was
+        }
         if (file != null) {
+            ZeptorEvents.Save event = new ZeptorEvents.Save();
+            event.begin();
+            long begin = System.nanoTime();
             try {
                 FileWriter writer = new FileWriter(file, false);
                 //do not append
@@ -402,6 +516,13 @@ public class MyTextPane extends JPanel implements
                 needToSave = false;
                 writer.flush();
                 writer.close();
+                journal.reset(file);
+                SAVE_TIME.recordSince(begin);
+                if (event.shouldCommit()) {
+                    event.file = file.getPath();
+                    event.chars = s.length();
+                    event.commit();
+                }
             } catch (IOException ex) {
                 Logger.LOG.logTrap(ex);
                 JOptionPane.showConfirmDialog(this, "Error writing to file " + file, "Error", JOptionPane.WARNING_MESSAGE);
@@ -431,6 +552,10 @@ public class MyTextPane extends JPanel implements
 
         chooser.setMultiSelectionEnabled(false);
 
+        if (pendingFile != null) {
+            readPending();
+        }
+
         try {
             String zepSource = textPane.getText();
 
@@ -529,6 +654,7 @@ public class MyTextPane extends JPanel implements
      */
     public void setEditorOptions(EditorOptions o) {
         textPane.setEditorOptions(o);
+        undoManager.setBudget(o.getUndoBudget());
     }
 
     /**
@@ -546,6 +672,7 @@ public class MyTextPane extends JPanel implements
     }
 
     public final void setText(final String text) {
+        pendingFile = null;
         this.textPane.setText(text);
     }//end setText
 
@@ -582,7 +709,8 @@ public class MyTextPane extends JPanel implements
         UndoableEdit edit = e.getEdit();
         //brute force method
         String presentation = edit.getPresentationName();
-        if (presentation.equals("addition") || presentation.equals("deletion")) {
+        if (presentation.equals("addition") || presentation.equals("deletion")
+                || edit instanceof ProgrammingDocument.BatchEdit) {
             undoManager.addEdit(edit);
             zeptor.undoMenuItemSetEnabled(true);
             zeptor.redoMenuItemSetEnabled(true);
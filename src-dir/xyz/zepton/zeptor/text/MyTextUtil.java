@@ -17,6 +17,8 @@
  */
 package xyz.zepton.zeptor.text;
 
+import xyz.zepton.zeptor.metrics.ZeptorEvents;
+
 /**
  * A class that defines text utilities
  *
@@ -49,46 +51,22 @@ public class MyTextUtil {
      * @return position of search string
      */
     public static int find(String s, String searchText, boolean caseSensitive, boolean whole, int start, int end) {
-        int pos = findCaseInsensitive(s, searchText, start, end);
-        StringBuilder b = new StringBuilder(s);
-        if (pos == -1)//not found
-        {
-            return -1;
-        }
-        boolean temp = true;
-        //check if it is a whole word
-        if (whole) {
-            boolean leftIsSpace = true;
-            boolean rightIsSpace = true;
-            //check if it is whole word
-            if ((pos > 0) && (b.charAt(pos - 1) != ' ')) {
-                leftIsSpace = !Character.isLetterOrDigit(b.charAt(pos - 1));
-            }
-            if (pos + searchText.length() < b.length()) {
-                rightIsSpace = !Character.isLetterOrDigit(b.charAt(pos + searchText.length()));
-            }
-            if (!((leftIsSpace) && (rightIsSpace))) {
-                temp = false;
-            }
-        }
-        //either it matches whole word or do not need to check if it is whole word
-        if ((caseSensitive) && (temp)) {
-            //check the case
-            String str = b.substring(pos, pos + searchText.length());
-            if (!str.equals(searchText)) {
-                temp = false;
-            }
-        }
-        if (temp) {
-            return pos;
-        } else {
-            //continue searching
-            return find(s, searchText, caseSensitive, whole, pos + searchText.length());
+        ZeptorEvents.Find event = new ZeptorEvents.Find();
+        event.begin();
+        int found = TextSearch.compile(searchText, caseSensitive, whole).find(s, start, end + 1);
+        if (event.shouldCommit()) {
+            event.patternLength = searchText.length();
+            event.range = end - start + 1;
+            event.caseSensitive = caseSensitive;
+            event.whole = whole;
+            event.foundAt = found;
+            event.commit();
         }
+        return found;
     }
 
     /**
-     * Uses Knuth-Morris-Pratt algorithm
+     * Uses Boyer-Moore-Horspool, see TextSearch
      * <b>note<b> position >=start and <=end
      *
      * @param str the string being searched
@@ -97,75 +75,6 @@ public class MyTextUtil {
      * @return the start position where search string occur, -1 if cannot find
      */
     public static int findCaseInsensitive(String str, String searchText, int start, int end) {
-        StringBuilder t = new StringBuilder(str.toUpperCase());
-        StringBuilder p = new StringBuilder(searchText.toUpperCase());
-        int textLength = t.length();
-        int searchTextLength = p.length();
-        int[] fail = new int[searchTextLength];
-        if (start < 0) {
-            start = 0;
-            //recalculate the correct start position
-        }
-        if (end > (textLength - 1)) { //recaculate the correct end pos
-            end = textLength - 1;
-        }
-
-        if (start > end) { //cannot start search
-            return -1;
-        }
-
-        if ((end - start + 1) < searchTextLength) { //not possible to find string
-            return -1;
-        }
-        if (searchTextLength == 0) {
-            //there is nothing to search for
-            return -1;
-        }
-
-        int s;
-        //KMP setup
-        fail[0] = -1;//the first character doesn't match must restart
-        for (int k = 1; k < searchTextLength; k++) {
-            s = fail[k - 1];
-            boolean found = false;
-            while ((s >= 0) && (!found)) {
-                if (p.charAt(s) == p.charAt(k - 1)) {
-                    found = true;
-                } else {
-                    s = fail[s];
-                }
-            }
-            fail[k] = s + 1;
-        }
-        //loop 2
-        for (int k = 1; k < searchTextLength; k++) {
-            if (p.charAt(k) == p.charAt(fail[k])) {
-                fail[k] = fail[fail[k]];
-            }
-        }
-        //KMP scan
-        int j = start;//current character in t
-        int k = 0;//current character in p
-        while (j < textLength)//haven't reached end of text
-        {
-            if (k > (searchTextLength - 1)) {
-                return j - searchTextLength;//success
-            }
-            if (k == -1) {
-                j++;
-                k = 0;//start pattern over
-            } else if (t.charAt(j) == p.charAt(k)) {
-                j++;
-                k++;
-            } else {
-                k = fail[k];
-            }
-        }
-        //for cases where end of string reached and found 
-        if (k > (searchTextLength - 1)) {
-            return j - searchTextLength;//success
-        } else {
-            return -1;
-        }
+        return TextSearch.compile(searchText, false, false).find(str, start, end + 1);
     }
 }
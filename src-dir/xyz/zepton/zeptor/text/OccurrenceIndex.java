@@ -0,0 +1,359 @@
+/*
+ * Copyright (c) 2022 by William F. Gilreath (will@zepton.xyz)
+ * All rights reserved.
+ *
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 3 as published
+ * by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 3 for more details. The license is available at the following
+ * link:  https://www.gnu.org/licenses/gpl-3.0.txt.
+ *
+ */
+package xyz.zepton.zeptor.text;
+
+import java.awt.Color;
+import java.util.Arrays;
+
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.DefaultHighlighter;
+import javax.swing.text.Highlighter;
+
+import xyz.zepton.zeptor.log.Logger;
+
+/**
+ * Every occurrence of a plain search in a text pane, highlighted.
+ * <p>
+ * The start of each occurrence is kept in a sorted int array. When the
+ * document is edited the occurrences after the edit are shifted, and only the
+ * few characters around the edit are searched again, so the index stays
+ * current without a rescan. Going to the next or previous occurrence is a
+ * binary search.
+ */
+class OccurrenceIndex implements DocumentListener {
+
+    /**
+     * at most this many occurrences are painted, all of them are counted
+     */
+    private static final int MAX_PAINTED = 10000;
+
+    /**
+     * the number of occurrences
+     */
+    private int count;
+
+    /**
+     * the painter for the occurrences
+     */
+    private Highlighter.HighlightPainter painter;
+
+    /**
+     * the search the occurrences are of, null if none
+     */
+    private TextSearch search;
+
+    /**
+     * the start of each occurrence, in order
+     */
+    private int[] starts;
+
+    /**
+     * the highlight of each occurrence, null if not painted
+     */
+    private Object[] tags;
+
+    /**
+     * the text pane
+     */
+    private final MyJTextPane textPane;
+
+    /**
+     * Constructor
+     *
+     * @param t the text pane
+     */
+    OccurrenceIndex(final MyJTextPane t) {
+        textPane = t;
+        starts = new int[0];
+        tags = new Object[0];
+        count = 0;
+    }
+
+    /**
+     * As defined in DocumentListener
+     */
+    @Override
+    public void changedUpdate(final DocumentEvent e) {
+        //style changes leave the text alone
+    }
+
+    /**
+     * Forget the occurrences and remove their highlights
+     */
+    void clear() {
+        if (search != null) {
+            textPane.getDocument().removeDocumentListener(this);
+        }
+        for (int i = 0; i < count; i++) {
+            unpaint(i);
+        }
+        search = null;
+        starts = new int[0];
+        tags = new Object[0];
+        count = 0;
+    }//end clear
+
+    /**
+     * @return the number of occurrences
+     */
+    int getCount() {
+        return count;
+    }
+
+    /**
+     * @return the length of an occurrence
+     */
+    int getLength() {
+        return search == null ? 0 : search.getLength();
+    }
+
+    /**
+     * @param i the index of an occurrence
+     * @return the start of the occurrence
+     */
+    int getStart(final int i) {
+        return starts[i];
+    }
+
+    /**
+     * @param pos a position
+     * @return the index of the occurrence starting at pos, -1 if none
+     */
+    int indexOf(final int pos) {
+        int i = Arrays.binarySearch(starts, 0, count, pos);
+        return i < 0 ? -1 : i;
+    }
+
+    /**
+     * @param pos a position
+     * @return the index of the first occurrence at or after pos, wrapping to
+     * the first, -1 if there are none
+     */
+    int indexOfNext(final int pos) {
+        if (count == 0) {
+            return -1;
+        }
+        int i = lowerBound(pos);
+        return i < count ? i : 0;
+    }
+
+    /**
+     * @param pos a position
+     * @return the index of the last occurrence before pos, wrapping to the
+     * last, -1 if there are none
+     */
+    int indexOfPrevious(final int pos) {
+        if (count == 0) {
+            return -1;
+        }
+        int i = lowerBound(pos) - 1;
+        return i >= 0 ? i : count - 1;
+    }
+
+    /**
+     * As defined in DocumentListener
+     */
+    @Override
+    public void insertUpdate(final DocumentEvent e) {
+        int offs = e.getOffset();
+        int len = e.getLength();
+        shift(offs, len);
+        update(offs, offs + len);
+    }
+
+    /**
+     * @param searchText the search text
+     * @param caseSensitive wether to be case sensitive
+     * @param whole whether to find whole word only
+     * @return whether the occurrences are of the search
+     */
+    boolean isOf(final String searchText, final boolean caseSensitive, final boolean whole) {
+        return search != null && search.matches(searchText, caseSensitive, whole);
+    }
+
+    /**
+     * @return the index of the first start at or after pos, count if none
+     */
+    private int lowerBound(final int pos) {
+        int lo = 0;
+        int hi = count;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (starts[mid] < pos) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }//end lowerBound
+
+    /**
+     * highlight an occurrence if under the limit
+     */
+    private void paint(final int i) {
+        if (i >= MAX_PAINTED) {
+            tags[i] = null;
+            return;
+        }
+        try {
+            tags[i] = textPane.getHighlighter().addHighlight(starts[i], starts[i] + search.getLength(), painter);
+        } catch (BadLocationException ex) {
+            Logger.LOG.logTrap(ex);
+            tags[i] = null;
+        }
+    }//end paint
+
+    /**
+     * As defined in DocumentListener
+     */
+    @Override
+    public void removeUpdate(final DocumentEvent e) {
+        int offs = e.getOffset();
+        int len = e.getLength();
+
+        //the occurrences that started in the removed text are gone
+        int from = lowerBound(offs);
+        int to = lowerBound(offs + len);
+        for (int i = from; i < to; i++) {
+            unpaint(i);
+        }
+        System.arraycopy(starts, to, starts, from, count - to);
+        System.arraycopy(tags, to, tags, from, count - to);
+        count -= to - from;
+        Arrays.fill(tags, count, count + to - from, null);
+
+        shift(offs + len, -len);
+        update(offs, offs);
+    }
+
+    /**
+     * Set the occurrences and highlight them
+     *
+     * @param s the search
+     * @param found the start of each occurrence, in order
+     */
+    void set(final TextSearch s, final int[] found) {
+        clear();
+        search = s;
+        textPane.getDocument().addDocumentListener(this);
+
+        Color c = textPane.getHighlightColor();
+        painter = new DefaultHighlighter.DefaultHighlightPainter(new Color(c.getRed(), c.getGreen(), c.getBlue(), 128));
+
+        starts = found;
+        count = found.length;
+        tags = new Object[count];
+        for (int i = 0; i < count; i++) {
+            paint(i);
+        }
+    }//end set
+
+    /**
+     * shift the occurrences at or after a position
+     */
+    private void shift(final int from, final int delta) {
+        for (int i = lowerBound(from); i < count; i++) {
+            starts[i] += delta;
+        }
+    }//end shift
+
+    /**
+     * remove the highlight of an occurrence
+     */
+    private void unpaint(final int i) {
+        if (tags[i] != null) {
+            textPane.getHighlighter().removeHighlight(tags[i]);
+            tags[i] = null;
+        }
+    }//end unpaint
+
+    /**
+     * Search again around an edit, the text from a to b being new
+     */
+    private void update(final int a, final int b) {
+
+        int m = search.getLength();
+        CharSequence text = TextSearch.contentOf(textPane.getDocument());
+
+        //an occurrence this close may have been cut, or joined to a word
+        int from = lowerBound(a - m);
+        int to = lowerBound(b + 1);
+
+        int chainEnd = Math.max(0, a - m);
+        if (from > 0) {
+            chainEnd = Math.max(chainEnd, starts[from - 1] + m);
+        }
+        int[] found = search.findAll(text, chainEnd, Math.min(text.length(), b + m));
+        int n = found.length;
+        if (n > 0) {
+            chainEnd = found[n - 1] + m;
+        }
+
+        //occurrences overlap when the search text repeats itself, so a new
+        //one can displace those after it until the old ones line up again
+        while (true) {
+            while (to < count && starts[to] < chainEnd) {
+                to++;
+            }
+            int lo = Math.max(chainEnd, b + 1);
+            int hi = lo + m - 1;
+            if (to < count) {
+                hi = Math.min(hi, starts[to]);
+            }
+            int pos = lo < hi ? search.find(text, lo, Math.min(text.length(), hi - 1 + m)) : -1;
+            if (pos == -1) {
+                break;
+            }
+            if (n == found.length) {
+                found = Arrays.copyOf(found, n * 2 + 1);
+            }
+            found[n++] = pos;
+            chainEnd = pos + m;
+        }
+
+        for (int i = from; i < to; i++) {
+            unpaint(i);
+        }
+
+        int grow = n - (to - from);
+        if (grow != 0) {
+            int[] newStarts = grow > 0 && count + grow > starts.length
+                    ? Arrays.copyOf(starts, Math.max(count + grow, starts.length * 2)) : starts;
+            Object[] newTags = grow > 0 && count + grow > tags.length
+                    ? Arrays.copyOf(tags, Math.max(count + grow, tags.length * 2)) : tags;
+            System.arraycopy(starts, to, newStarts, to + grow, count - to);
+            System.arraycopy(tags, to, newTags, to + grow, count - to);
+            if (grow < 0) {
+                Arrays.fill(newTags, count + grow, count, null);
+            }
+            starts = newStarts;
+            tags = newTags;
+            count += grow;
+        }
+
+        for (int i = 0; i < n; i++) {
+            starts[from + i] = found[i];
+            paint(from + i);
+        }
+
+    }//end update
+
+}//end class OccurrenceIndex
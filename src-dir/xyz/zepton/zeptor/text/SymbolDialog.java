@@ -0,0 +1,240 @@
+/*
+ * Copyright (c) 2022 by William F. Gilreath (will@zepton.xyz)
+ * All rights reserved.
+ *
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 3 as published
+ * by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 3 for more details. The license is available at the following
+ * link:  https://www.gnu.org/licenses/gpl-3.0.txt.
+ *
+ */
+package xyz.zepton.zeptor.text;
+
+import java.awt.BorderLayout;
+import java.awt.Container;
+import java.awt.FlowLayout;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.awt.event.KeyAdapter;
+import java.awt.event.KeyEvent;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.io.File;
+import java.util.List;
+
+import javax.swing.DefaultListModel;
+import javax.swing.JCheckBox;
+import javax.swing.JDialog;
+import javax.swing.JLabel;
+import javax.swing.JList;
+import javax.swing.JPanel;
+import javax.swing.JScrollPane;
+import javax.swing.JTextField;
+import javax.swing.ListSelectionModel;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
+
+import xyz.zepton.zeptor.editor.Zeptor;
+
+/**
+ * A dialog to go to a symbol, or to find the usages of an identifier, in the
+ * ZeptoN files of a directory. Queries are answered from the SymbolIndex of
+ * the directory, which is brought up to date in the background.
+ */
+public class SymbolDialog extends JDialog implements DocumentListener {
+
+    private static final long serialVersionUID = 6622913848020946275L;
+
+    /**
+     * the most results listed
+     */
+    private static final int MAX_RESULTS = 5000;
+
+    /**
+     * the index of the directory
+     */
+    private SymbolIndex index;
+
+    /**
+     * the list of results
+     */
+    private JList<SymbolIndex.Symbol> list;
+
+    /**
+     * the results
+     */
+    private DefaultListModel<SymbolIndex.Symbol> results;
+
+    /**
+     * the status of the query
+     */
+    private JLabel statusLabel;
+
+    /**
+     * the text field
+     */
+    private JTextField textField;
+
+    /**
+     * the usages check box, otherwise declarations
+     */
+    private JCheckBox usagesCheckBox;
+
+    /**
+     * the editor
+     */
+    private final Zeptor zeptor;
+
+    /**
+     * Constructor
+     *
+     * @param z the editor
+     */
+    public SymbolDialog(Zeptor z) {
+        super(z);
+        setModal(false);
+        zeptor = z;
+        init();
+    }
+
+    /**
+     * As defined in DocumentListener
+     */
+    public void changedUpdate(DocumentEvent e) {
+    }
+
+    /**
+     * go to the selected result
+     */
+    private void gotoSymbol() {
+        SymbolIndex.Symbol s = list.getSelectedValue();
+        if (s != null) {
+            zeptor.highlightFile(s.getFile(), s.getLine());
+        }
+    }
+
+    /**
+     * Initialize the dialog
+     */
+    private void init() {
+        setDefaultCloseOperation(JDialog.HIDE_ON_CLOSE);
+        this.setSize(520, 400);
+        this.setResizable(true);
+        this.setLocation(FindDialog.centerWidget(getSize(), getToolkit().getScreenSize()));
+
+        Container pane = this.getContentPane();
+        pane.setLayout(new BorderLayout());
+
+        JPanel top = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        top.add(new JLabel("Name", JLabel.LEFT));
+        textField = new JTextField(24);
+        textField.getDocument().addDocumentListener(this);
+        textField.addKeyListener(new KeyAdapter() {
+            public void keyPressed(KeyEvent e) {
+                if (e.getKeyCode() == KeyEvent.VK_DOWN) {
+                    list.requestFocusInWindow();
+                    list.setSelectedIndex(0);
+                } else if (e.getKeyCode() == KeyEvent.VK_ENTER) {
+                    list.setSelectedIndex(Math.max(0, list.getSelectedIndex()));
+                    gotoSymbol();
+                } else if (e.getKeyCode() == KeyEvent.VK_ESCAPE) {
+                    setVisible(false);
+                }
+            }
+        });
+        top.add(textField);
+        usagesCheckBox = new JCheckBox("Usages");
+        usagesCheckBox.addActionListener(new ActionListener() {
+            public void actionPerformed(ActionEvent e) {
+                query();
+            }
+        });
+        top.add(usagesCheckBox);
+        pane.add(top, BorderLayout.NORTH);
+
+        results = new DefaultListModel<>();
+        list = new JList<>(results);
+        list.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        list.addMouseListener(new MouseAdapter() {
+            public void mouseClicked(MouseEvent e) {
+                if (e.getClickCount() == 2) {
+                    gotoSymbol();
+                }
+            }
+        });
+        list.addKeyListener(new KeyAdapter() {
+            public void keyPressed(KeyEvent e) {
+                if (e.getKeyCode() == KeyEvent.VK_ENTER) {
+                    gotoSymbol();
+                }
+            }
+        });
+        pane.add(new JScrollPane(list), BorderLayout.CENTER);
+
+        statusLabel = new JLabel(" ", JLabel.LEFT);
+        pane.add(statusLabel, BorderLayout.SOUTH);
+    }//end init
+
+    /**
+     * As defined in DocumentListener
+     */
+    public void insertUpdate(DocumentEvent e) {
+        query();
+    }
+
+    /**
+     * Answer the query from the index
+     */
+    private void query() {
+        results.clear();
+        String name = textField.getText().trim();
+        if (index == null || name.isEmpty()) {
+            statusLabel.setText(index == null ? " " : index.getFileCount() + " files indexed");
+            return;
+        }
+        long begin = System.nanoTime();
+        List<SymbolIndex.Symbol> found = usagesCheckBox.isSelected()
+                ? index.findUsages(name, MAX_RESULTS) : index.findDeclarations(name, MAX_RESULTS);
+        long usec = (System.nanoTime() - begin) / 1000;
+        results.addAll(found);
+        statusLabel.setText(found.size() + " found in " + usec / 1000.0 + " ms, " + index.getFileCount() + " files indexed");
+    }//end query
+
+    /**
+     * As defined in DocumentListener
+     */
+    public void removeUpdate(DocumentEvent e) {
+        query();
+    }
+
+    /**
+     * Show the dialog for a directory
+     *
+     * @param dir the directory of ZeptoN files
+     * @param name the name to start with
+     * @param usages whether to find usages, otherwise declarations
+     */
+    public void show(File dir, String name, boolean usages) {
+        setTitle((usages ? "Find Usages" : "Go to Symbol") + " - " + dir.getPath());
+        index = SymbolIndex.forDirectory(dir);
+        usagesCheckBox.setSelected(usages);
+        textField.setText(name); //queries what is already indexed
+        textField.selectAll();
+        setVisible(true);
+
+        final SymbolIndex refreshed = index;
+        refreshed.refreshLater(() -> {
+            if (index == refreshed && isVisible()) {
+                query();
+            }
+        });
+    }//end show
+
+}//end class SymbolDialog
@@ -0,0 +1,619 @@
+/*
+ * Copyright (c) 2022 by William F. Gilreath (will@zepton.xyz)
+ * All rights reserved.
+ *
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 3 as published
+ * by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 3 for more details. The license is available at the following
+ * link:  https://www.gnu.org/licenses/gpl-3.0.txt.
+ *
+ */
+package xyz.zepton.zeptor.text;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import javax.swing.SwingUtilities;
+
+import xyz.zepton.lexer.ILexer;
+import xyz.zepton.lexer.Lexer;
+import xyz.zepton.lexer.Token;
+import xyz.zepton.lexer.ZeptonLexerConstants.TokenType;
+import xyz.zepton.zeptor.log.Logger;
+
+/**
+ * An inverted index of the identifiers in the ZeptoN files under a directory,
+ * built from the tokens of the ZeptoN lexer and kept on disk between runs.
+ * <p>
+ * Every identifier maps to its occurrences, each packed in a long with the
+ * file, line, column and kind, so that go to symbol and find usages are map
+ * lookups. A refresh only lexes the files whose modification time or size
+ * changed since they were indexed.
+ */
+public final class SymbolIndex {
+
+    /**
+     * The kind of an occurrence
+     */
+    public enum Kind {
+        USAGE, PROG, METHOD, VAR
+    }
+
+    /**
+     * One occurrence of an identifier
+     */
+    public static final class Symbol {
+
+        private final int column;
+        private final File file;
+        private final Kind kind;
+        private final int line;
+        private final String name;
+
+        private Symbol(final String name, final Kind kind, final File file, final int line, final int column) {
+            this.name = name;
+            this.kind = kind;
+            this.file = file;
+            this.line = line;
+            this.column = column;
+        }
+
+        /**
+         * @return the column, from 1
+         */
+        public int getColumn() {
+            return column;
+        }
+
+        /**
+         * @return the file
+         */
+        public File getFile() {
+            return file;
+        }
+
+        /**
+         * @return the kind
+         */
+        public Kind getKind() {
+            return kind;
+        }
+
+        /**
+         * @return the line, from 1
+         */
+        public int getLine() {
+            return line;
+        }
+
+        /**
+         * @return the identifier
+         */
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public String toString() {
+            String k = kind == Kind.USAGE ? "" : kind.name().toLowerCase() + " ";
+            return k + name + "  -  " + file.getName() + ":" + line;
+        }
+    }//end class Symbol
+
+    /**
+     * A file in the index
+     */
+    private static final class Entry {
+
+        private final File file;
+        private final int id;
+        private long modified;
+        private long size;
+        private final Set<String> terms = new HashSet<>();
+
+        private Entry(final int id, final File file) {
+            this.id = id;
+            this.file = file;
+        }
+    }//end class Entry
+
+    /**
+     * The occurrences of one identifier
+     */
+    private static final class Postings {
+
+        private long[] items = new long[4];
+        private int count;
+
+        private void add(final long item) {
+            if (count == items.length) {
+                items = Arrays.copyOf(items, count * 2);
+            }
+            items[count++] = item;
+        }
+
+        private void removeFile(final int id) {
+            int n = 0;
+            for (int i = 0; i < count; i++) {
+                if (fileOf(items[i]) != id) {
+                    items[n++] = items[i];
+                }
+            }
+            count = n;
+        }
+    }//end class Postings
+
+    /**
+     * the directory the index files are kept in, in the home directory so
+     * that every editor finds them wherever it was started from
+     */
+    public static final File INDEX_DIR = new File(new File(System.getProperty("user.home"), "Zeptor"), "index");
+
+    /**
+     * the extension of the index files
+     */
+    private static final String INDEX_SUFFIX = ".idx";
+
+    private static final int MAGIC = 0x5A53594D;
+
+    private static final int VERSION = 1;
+
+    private static final Kind[] KINDS = Kind.values();
+
+    /**
+     * the tokens that can be the type before a declared name
+     */
+    private static final Set<TokenType> TYPES = EnumSet.of(TokenType.VOID, TokenType.BOOLEAN, TokenType.BYTE,
+            TokenType.CHAR, TokenType.SHORT, TokenType.INT, TokenType.LONG, TokenType.FLOAT, TokenType.DOUBLE,
+            TokenType.IDENTIFIER, TokenType.RBRACKET, TokenType.GT);
+
+    /**
+     * refreshes the indexes in the background, one at a time
+     */
+    private static final ExecutorService INDEXER = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "SymbolIndexer");
+        t.setDaemon(true);
+        t.setPriority(Thread.MIN_PRIORITY);
+        return t;
+    });
+
+    /**
+     * the open indexes, by directory
+     */
+    private static final Map<File, SymbolIndex> INDEXES = new HashMap<>();
+
+    private static int columnOf(final long item) {
+        return (int) ((item >>> 4) & 0xFFF);
+    }
+
+    private static int fileOf(final long item) {
+        return (int) (item >>> 40);
+    }
+
+    /**
+     * Get the index of a directory. The first time it is loaded from disk in
+     * the background, and is empty until then.
+     *
+     * @param dir the directory
+     * @return the index
+     */
+    public static SymbolIndex forDirectory(final File dir) {
+        File root = dir.getAbsoluteFile();
+        SymbolIndex index;
+        synchronized (INDEXES) {
+            index = INDEXES.get(root);
+            if (index != null) {
+                return index;
+            }
+            index = new SymbolIndex(root);
+            INDEXES.put(root, index);
+        }
+        //before any refresh, which runs on the same thread
+        INDEXER.execute(index::load);
+        return index;
+    }//end forDirectory
+
+    private static Kind kindOf(final long item) {
+        return KINDS[(int) (item & 0xF)];
+    }
+
+    private static int lineOf(final long item) {
+        return (int) ((item >>> 16) & 0xFFFFFF);
+    }
+
+    private static long pack(final int file, final int line, final int column, final Kind kind) {
+        return ((long) file << 40) | ((long) Math.min(line, 0xFFFFFF) << 16)
+                | ((long) Math.min(column, 0xFFF) << 4) | kind.ordinal();
+    }
+
+    /**
+     * the files in the index, by path
+     */
+    private final Map<File, Entry> entries = new HashMap<>();
+
+    /**
+     * the files in the index, by id
+     */
+    private final Map<Integer, Entry> ids = new HashMap<>();
+
+    /**
+     * the file the index is kept in
+     */
+    private final File indexFile;
+
+    /**
+     * the next file id
+     */
+    private int nextId;
+
+    /**
+     * the directory indexed
+     */
+    private final File root;
+
+    /**
+     * the occurrences of each identifier, in name order for prefix queries
+     */
+    private final TreeMap<String, Postings> terms = new TreeMap<>();
+
+    private SymbolIndex(final File dir) {
+        root = dir;
+        indexFile = new File(INDEX_DIR, Integer.toHexString(dir.getPath().hashCode()) + INDEX_SUFFIX);
+    }
+
+    /**
+     * add the occurrences of a lexed file
+     */
+    private void add(final Entry e, final List<long[]> found, final List<String> names) {
+        for (int i = 0; i < found.size(); i++) {
+            String name = names.get(i);
+            long[] f = found.get(i);
+            terms.computeIfAbsent(name, k -> new Postings()).add(pack(e.id, (int) f[0], (int) f[1], KINDS[(int) f[2]]));
+            e.terms.add(name);
+        }
+    }//end add
+
+    /**
+     * Find the declarations whose name starts with a prefix
+     *
+     * @param prefix the start of the name
+     * @param max the most to return
+     * @return the declarations, in name order
+     */
+    public synchronized List<Symbol> findDeclarations(final String prefix, final int max) {
+        ArrayList<Symbol> result = new ArrayList<>();
+        for (Map.Entry<String, Postings> t : terms.tailMap(prefix, true).entrySet()) {
+            if (!t.getKey().startsWith(prefix) || result.size() >= max) {
+                break;
+            }
+            Postings p = t.getValue();
+            for (int i = 0; i < p.count && result.size() < max; i++) {
+                if (kindOf(p.items[i]) != Kind.USAGE) {
+                    result.add(symbol(t.getKey(), p.items[i]));
+                }
+            }
+        }
+        return result;
+    }//end findDeclarations
+
+    /**
+     * Find every occurrence of an identifier
+     *
+     * @param name the identifier
+     * @param max the most to return
+     * @return the occurrences, declarations first
+     */
+    public synchronized List<Symbol> findUsages(final String name, final int max) {
+        ArrayList<Symbol> result = new ArrayList<>();
+        Postings p = terms.get(name);
+        if (p != null) {
+            for (int i = 0; i < p.count && result.size() < max; i++) {
+                result.add(symbol(name, p.items[i]));
+            }
+            result.sort((a, b) -> Boolean.compare(a.kind == Kind.USAGE, b.kind == Kind.USAGE));
+        }
+        return result;
+    }//end findUsages
+
+    /**
+     * @return the directory indexed
+     */
+    public File getRoot() {
+        return root;
+    }
+
+    /**
+     * @return the number of files indexed
+     */
+    public synchronized int getFileCount() {
+        return entries.size();
+    }
+
+    /**
+     * Lex a file into its identifiers
+     *
+     * @param f the file
+     * @param found receives the line, column and kind of each identifier
+     * @param names receives the identifier of each
+     */
+    private static void lex(final File f, final List<long[]> found, final List<String> names) {
+
+        ArrayList<Token> toks = new ArrayList<>();
+        ILexer lex = new Lexer(f);
+        while (lex.hasTok()) {
+            Token t = lex.getTok();
+            TokenType type = t.getType();
+            if (type != TokenType.SINGLE_LINE_COMMENT && type != TokenType.SINGLE_LINE_COMMENT_START
+                    && type != TokenType.MULTI_LINE_COMMENT && type != TokenType.MULTI_LINE_COMMENT_START) {
+                toks.add(t);
+            }
+        }
+
+        int depth = 0;
+        for (int i = 0; i < toks.size(); i++) {
+            Token t = toks.get(i);
+            TokenType type = t.getType();
+            if (type == TokenType.LBRACE) {
+                depth++;
+            } else if (type == TokenType.RBRACE) {
+                depth--;
+            }
+            if (type != TokenType.IDENTIFIER) {
+                continue;
+            }
+
+            TokenType prev = i > 0 ? toks.get(i - 1).getType() : null;
+            TokenType next = i + 1 < toks.size() ? toks.get(i + 1).getType() : null;
+
+            Kind kind = Kind.USAGE;
+            if (prev == TokenType.PROG) {
+                kind = Kind.PROG;
+            } else if (prev == TokenType.VAR) {
+                kind = Kind.VAR;
+            } else if (prev != null && TYPES.contains(prev)) {
+                //a method of the program, or a typed variable
+                if (next == TokenType.LPAREN && depth == 1) {
+                    kind = Kind.METHOD;
+                } else if (next == TokenType.ASSIGN || next == TokenType.SEMICOLON || next == TokenType.COMMA) {
+                    kind = Kind.VAR;
+                }
+            }
+
+            found.add(new long[]{t.getBeginLine(), t.getBeginColumn(), kind.ordinal()});
+            names.add(t.getImage());
+        }
+
+    }//end lex
+
+    /**
+     * read the index from disk, an unreadable index is rebuilt. The lock is
+     * only held to put in what was read, so lookups do not wait on the disk.
+     */
+    private void load() {
+        if (!indexFile.exists()) {
+            return;
+        }
+        HashMap<Integer, Entry> read = new HashMap<>();
+        TreeMap<String, Postings> readTerms = new TreeMap<>();
+        int next;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(indexFile)))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION || !in.readUTF().equals(root.getPath())) {
+                return;
+            }
+            next = in.readInt();
+            int files = in.readInt();
+            for (int i = 0; i < files; i++) {
+                Entry e = new Entry(in.readInt(), new File(in.readUTF()));
+                e.modified = in.readLong();
+                e.size = in.readLong();
+                read.put(e.id, e);
+            }
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                String name = in.readUTF();
+                Postings p = new Postings();
+                p.count = in.readInt();
+                p.items = new long[Math.max(4, p.count)];
+                for (int j = 0; j < p.count; j++) {
+                    p.items[j] = in.readLong();
+                    read.get(fileOf(p.items[j])).terms.add(name);
+                }
+                readTerms.put(name, p);
+            }
+        } catch (IOException | RuntimeException ex) {
+            Logger.LOG.logTrap(ex);
+            return;
+        }
+        synchronized (this) {
+            for (Entry e : read.values()) {
+                entries.put(e.file, e);
+                ids.put(e.id, e);
+            }
+            terms.putAll(readTerms);
+            nextId = next;
+        }
+    }//end load
+
+    /**
+     * Bring the index up to date with the files on disk, lexing only those
+     * that changed, and save it if anything did. Runs on the caller's thread,
+     * once the index is loaded, as refreshLater does.
+     *
+     * @return the number of files lexed or removed
+     */
+    public int refresh() {
+
+        //find the files, and which of them changed, without holding the lock
+        ArrayList<File> changed = new ArrayList<>();
+        HashSet<File> present = new HashSet<>();
+        ArrayDeque<File> dirs = new ArrayDeque<>();
+        dirs.push(root);
+        while (!dirs.isEmpty()) {
+            File[] list = dirs.pop().listFiles();
+            if (list == null) {
+                continue;
+            }
+            for (File f : list) {
+                if (f.isDirectory()) {
+                    if (!Files.isSymbolicLink(f.toPath())) {
+                        dirs.push(f);
+                    }
+                } else if (f.getName().endsWith(FileSearch.EXTENSION)) {
+                    present.add(f);
+                    synchronized (this) {
+                        Entry e = entries.get(f);
+                        if (e == null || e.modified != f.lastModified() || e.size != f.length()) {
+                            changed.add(f);
+                        }
+                    }
+                }
+            }
+        }
+
+        int updates = 0;
+        for (File f : changed) {
+            long modified = f.lastModified();
+            long size = f.length();
+            ArrayList<long[]> found = new ArrayList<>();
+            ArrayList<String> names = new ArrayList<>();
+            try {
+                lex(f, found, names);
+            } catch (RuntimeException ex) {
+                Logger.LOG.logTrap(ex);
+                continue;
+            }
+            synchronized (this) {
+                Entry e = entries.get(f);
+                int id = nextId;
+                if (e != null) {
+                    id = e.id; //keep the id so the ids stay compact
+                    remove(e);
+                } else {
+                    nextId++;
+                }
+                e = new Entry(id, f);
+                e.modified = modified;
+                e.size = size;
+                entries.put(f, e);
+                ids.put(e.id, e);
+                add(e, found, names);
+            }
+            updates++;
+        }
+
+        synchronized (this) {
+            for (Entry e : new ArrayList<>(entries.values())) {
+                if (!present.contains(e.file)) {
+                    remove(e);
+                    updates++;
+                }
+            }
+            if (updates > 0) {
+                save();
+            }
+        }
+
+        return updates;
+
+    }//end refresh
+
+    /**
+     * Refresh in the background
+     *
+     * @param done run on the event dispatch thread when finished
+     */
+    public void refreshLater(final Runnable done) {
+        INDEXER.execute(() -> {
+            try {
+                refresh();
+            } catch (RuntimeException ex) {
+                Logger.LOG.logTrap(ex);
+            }
+            SwingUtilities.invokeLater(done);
+        });
+    }//end refreshLater
+
+    /**
+     * drop a file from the index, touching only the identifiers it has
+     */
+    private void remove(final Entry e) {
+        for (String name : e.terms) {
+            Postings p = terms.get(name);
+            if (p != null) {
+                p.removeFile(e.id);
+                if (p.count == 0) {
+                    terms.remove(name);
+                }
+            }
+        }
+        entries.remove(e.file);
+        ids.remove(e.id);
+    }//end remove
+
+    /**
+     * write the index to disk, replacing the old one only when complete
+     */
+    private void save() {
+        File tmp = new File(INDEX_DIR, indexFile.getName() + ".tmp");
+        try {
+            Files.createDirectories(tmp.toPath().getParent());
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeUTF(root.getPath());
+                out.writeInt(nextId);
+                out.writeInt(entries.size());
+                for (Entry e : entries.values()) {
+                    out.writeInt(e.id);
+                    out.writeUTF(e.file.getPath());
+                    out.writeLong(e.modified);
+                    out.writeLong(e.size);
+                }
+                out.writeInt(terms.size());
+                for (Map.Entry<String, Postings> t : terms.entrySet()) {
+                    out.writeUTF(t.getKey());
+                    Postings p = t.getValue();
+                    out.writeInt(p.count);
+                    for (int i = 0; i < p.count; i++) {
+                        out.writeLong(p.items[i]);
+                    }
+                }
+            }
+            Files.move(tmp.toPath(), indexFile.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException ex) {
+            Logger.LOG.logTrap(ex);
+        }
+    }//end save
+
+    private Symbol symbol(final String name, final long item) {
+        return new Symbol(name, kindOf(item), ids.get(fileOf(item)).file, lineOf(item), columnOf(item));
+    }
+
+}//end class SymbolIndex
@@ -0,0 +1,238 @@
+/*
+ * Copyright (c) 2022 by William F. Gilreath (will@zepton.xyz)
+ * All rights reserved.
+ *
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 3 as published
+ * by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 3 for more details. The license is available at the following
+ * link:  https://www.gnu.org/licenses/gpl-3.0.txt.
+ *
+ */
+package xyz.zepton.zeptor.text;
+
+import java.awt.event.FocusAdapter;
+import java.awt.event.FocusEvent;
+import java.awt.event.KeyAdapter;
+import java.awt.event.KeyEvent;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.awt.geom.Rectangle2D;
+import java.util.List;
+
+import javax.swing.DefaultListModel;
+import javax.swing.JList;
+import javax.swing.JPopupMenu;
+import javax.swing.JScrollPane;
+import javax.swing.ListSelectionModel;
+import javax.swing.event.CaretEvent;
+import javax.swing.event.CaretListener;
+import javax.swing.text.BadLocationException;
+
+import xyz.zepton.zeptor.log.Logger;
+
+/**
+ * The list of completions for the identifier before the caret. The text pane
+ * keeps the focus, so typing narrows the list, the arrow keys move in it, and
+ * Enter or Tab inserts the selected word.
+ */
+class CompletionPopup extends KeyAdapter implements CaretListener {
+
+    /**
+     * the candidates
+     */
+    private final DefaultListModel<String> candidates;
+
+    /**
+     * the list of candidates
+     */
+    private final JList<String> list;
+
+    /**
+     * the popup
+     */
+    private final JPopupMenu popup;
+
+    /**
+     * the prefix the candidates complete
+     */
+    private String prefix;
+
+    /**
+     * the text pane
+     */
+    private final MyJTextPane textPane;
+
+    /**
+     * the words offered
+     */
+    private final CompletionTrie trie;
+
+    /**
+     * Constructor
+     *
+     * @param t the text pane
+     * @param words the words offered
+     */
+    CompletionPopup(MyJTextPane t, CompletionTrie words) {
+        textPane = t;
+        trie = words;
+        prefix = "";
+
+        candidates = new DefaultListModel<>();
+        list = new JList<>(candidates);
+        list.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        list.setVisibleRowCount(8);
+        list.setFocusable(false);
+        list.addMouseListener(new MouseAdapter() {
+            public void mouseClicked(MouseEvent e) {
+                if (e.getClickCount() == 2) {
+                    accept();
+                }
+            }
+        });
+        JScrollPane scrollPane = new JScrollPane(list);
+        scrollPane.setFocusable(false);
+
+        popup = new JPopupMenu();
+        popup.setFocusable(false);
+        popup.add(scrollPane);
+
+        textPane.addKeyListener(this);
+        textPane.addCaretListener(this);
+        textPane.addFocusListener(new FocusAdapter() {
+            public void focusLost(FocusEvent e) {
+                popup.setVisible(false);
+            }
+        });
+    }
+
+    /**
+     * insert the rest of the selected word
+     */
+    private void accept() {
+        String w = list.getSelectedValue();
+        popup.setVisible(false);
+        if (w != null) {
+            insert(w);
+        }
+    }
+
+    /**
+     * As defined in CaretListener, narrows the list as the user types
+     */
+    public void caretUpdate(CaretEvent e) {
+        if (popup.isVisible()) {
+            update(false);
+        }
+    }
+
+    /**
+     * insert the rest of a word at the caret
+     */
+    private void insert(String w) {
+        try {
+            textPane.getDocument().insertString(textPane.getCaretPosition(), w.substring(prefix.length()), null);
+        } catch (BadLocationException ex) {
+            Logger.LOG.logTrap(ex);
+        }
+    }
+
+    /**
+     * As defined in KeyListener, the keys of the list while it is showing
+     */
+    public void keyPressed(KeyEvent e) {
+        if (!popup.isVisible()) {
+            return;
+        }
+        int i = list.getSelectedIndex();
+        int last = candidates.getSize() - 1;
+        switch (e.getKeyCode()) {
+            case KeyEvent.VK_DOWN:
+                i = i < last ? i + 1 : 0;
+                break;
+            case KeyEvent.VK_UP:
+                i = i > 0 ? i - 1 : last;
+                break;
+            case KeyEvent.VK_PAGE_DOWN:
+                i = Math.min(last, i + list.getVisibleRowCount());
+                break;
+            case KeyEvent.VK_PAGE_UP:
+                i = Math.max(0, i - list.getVisibleRowCount());
+                break;
+            case KeyEvent.VK_ENTER:
+            case KeyEvent.VK_TAB:
+                accept();
+                e.consume();
+                return;
+            case KeyEvent.VK_ESCAPE:
+                popup.setVisible(false);
+                e.consume();
+                return;
+            default:
+                return;
+        }
+        list.setSelectedIndex(i);
+        list.ensureIndexIsVisible(i);
+        e.consume();
+    }//end keyPressed
+
+    /**
+     * Show the completions of the identifier before the caret, or complete
+     * it at once if there is only one
+     */
+    void show() {
+        update(true);
+    }
+
+    /**
+     * look up the identifier before the caret
+     *
+     * @param explicit whether the user asked, rather than typed on
+     */
+    private void update(boolean explicit) {
+        CharSequence text = TextSearch.contentOf(textPane.getDocument());
+        int caret = textPane.getCaretPosition();
+        int start = caret;
+        while (start > 0 && Character.isJavaIdentifierPart(text.charAt(start - 1))) {
+            start--;
+        }
+        prefix = text.subSequence(start, caret).toString();
+
+        List<String> found = prefix.isEmpty() && !explicit
+                ? List.of() : trie.complete(prefix, CompletionTrie.MAX_CANDIDATES);
+        if (found.isEmpty()) {
+            popup.setVisible(false);
+            if (explicit) {
+                textPane.getToolkit().beep();
+            }
+            return;
+        }
+        if (explicit && found.size() == 1) {
+            insert(found.get(0));
+            return;
+        }
+
+        candidates.clear();
+        candidates.addAll(found);
+        list.setSelectedIndex(0);
+        list.ensureIndexIsVisible(0);
+        if (popup.isVisible()) {
+            popup.pack();
+            return;
+        }
+        try {
+            Rectangle2D r = textPane.modelToView2D(start);
+            popup.show(textPane, (int) r.getX(), (int) (r.getY() + r.getHeight()));
+        } catch (BadLocationException ex) {
+            Logger.LOG.logTrap(ex);
+        }
+    }//end update
+
+}//end class CompletionPopup
@@ -0,0 +1,256 @@
+/*
+ * Copyright (c) 2022 by William F. Gilreath (will@zepton.xyz)
+ * All rights reserved.
+ *
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 3 as published
+ * by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 3 for more details. The license is available at the following
+ * link:  https://www.gnu.org/licenses/gpl-3.0.txt.
+ *
+ */
+package xyz.zepton.zeptor.text;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import xyz.zepton.zeptor.syntax.Syntax;
+import xyz.zepton.zeptor.transpiler.ZepT;
+
+/**
+ * The words offered for completion, kept in a prefix trie.
+ * <p>
+ * The trie holds the key and reserved words of the syntax, the runtime
+ * helpers of the transcompiler, and every identifier highlighted in an open
+ * document. The nodes are parallel arrays rather than objects, with the
+ * children of a node a sibling chain sorted by character, so a lookup is a
+ * walk down the prefix and then along the first candidates in order.
+ * Identifiers are only ever added, a word deleted from a document is still
+ * offered until the editor is restarted.
+ */
+final class CompletionTrie {
+
+    /**
+     * the most candidates a lookup returns
+     */
+    static final int MAX_CANDIDATES = 100;
+
+    /**
+     * the shortest identifier worth completing
+     */
+    private static final int MIN_LENGTH = 2;
+
+    /**
+     * a node without a child or sibling
+     */
+    private static final int NONE = -1;
+
+    /**
+     * the name of a public static attribute or method of the runtime
+     */
+    private static final Pattern HELPER = Pattern.compile("public\\s+static\\s+(?:final\\s+)?[\\w\\[\\]]+\\s+(\\w+)");
+
+    /**
+     * the trie shared by every document
+     */
+    private static CompletionTrie shared;
+
+    /**
+     * the character on the edge into a node
+     */
+    private char[] chars;
+
+    /**
+     * the first child of a node
+     */
+    private int[] child;
+
+    /**
+     * the number of nodes
+     */
+    private int nodes;
+
+    /**
+     * the next sibling of a node
+     */
+    private int[] sibling;
+
+    /**
+     * whether a word ends at a node
+     */
+    private boolean[] word;
+
+    /**
+     * the number of words
+     */
+    private int words;
+
+    /**
+     * Constructor, an empty trie
+     */
+    CompletionTrie() {
+        chars = new char[1024];
+        child = new int[1024];
+        sibling = new int[1024];
+        word = new boolean[1024];
+        nodes = 1; //the root
+        child[0] = NONE;
+        sibling[0] = NONE;
+    }
+
+    /**
+     * @param s the syntax of the documents
+     * @return the trie shared by every document, seeded with the words of the
+     * syntax and the runtime the first time
+     */
+    static synchronized CompletionTrie forSyntax(final Syntax s) {
+        if (shared == null) {
+            shared = new CompletionTrie();
+            for (String k : s.getKeywords()) {
+                shared.add(k);
+            }
+            for (String r : s.getReserved()) {
+                shared.add(r);
+            }
+            Matcher m = HELPER.matcher(ZepT.SOURCE_CODE_BODY);
+            while (m.find()) {
+                if (!m.group(1).startsWith("_")) { //internal to the runtime
+                    shared.add(m.group(1));
+                }
+            }
+        }
+        return shared;
+    }
+
+    /**
+     * Add a word, if it is an identifier long enough to complete
+     *
+     * @param w the word
+     */
+    synchronized void add(final CharSequence w) {
+        int len = w.length();
+        if (len < MIN_LENGTH || !Character.isJavaIdentifierStart(w.charAt(0))) {
+            return;
+        }
+        for (int i = 1; i < len; i++) {
+            if (!Character.isJavaIdentifierPart(w.charAt(i))) {
+                return;
+            }
+        }
+
+        int node = 0;
+        for (int i = 0; i < len; i++) {
+            char c = w.charAt(i);
+            int previous = NONE;
+            int next = child[node];
+            while (next != NONE && chars[next] < c) {
+                previous = next;
+                next = sibling[next];
+            }
+            if (next == NONE || chars[next] != c) {
+                int n = newNode(c, next);
+                if (previous == NONE) {
+                    child[node] = n;
+                } else {
+                    sibling[previous] = n;
+                }
+                next = n;
+            }
+            node = next;
+        }
+        if (!word[node]) {
+            word[node] = true;
+            words++;
+        }
+    }//end add
+
+    /**
+     * collect the words below a node in order, depth first
+     *
+     * @return whether there is room for more
+     */
+    private boolean collect(final int node, final StringBuilder path, final List<String> out, final int max) {
+        if (word[node]) {
+            out.add(path.toString());
+            if (out.size() >= max) {
+                return false;
+            }
+        }
+        for (int n = child[node]; n != NONE; n = sibling[n]) {
+            path.append(chars[n]);
+            boolean more = collect(n, path, out, max);
+            path.setLength(path.length() - 1);
+            if (!more) {
+                return false;
+            }
+        }
+        return true;
+    }//end collect
+
+    /**
+     * @param prefix the start of the word
+     * @param max the most candidates to return
+     * @return the words that start with the prefix and are longer than it,
+     * in order
+     */
+    synchronized List<String> complete(final String prefix, final int max) {
+        ArrayList<String> out = new ArrayList<>();
+        int node = 0;
+        for (int i = 0; i < prefix.length() && node != NONE; i++) {
+            char c = prefix.charAt(i);
+            int n = child[node];
+            while (n != NONE && chars[n] < c) {
+                n = sibling[n];
+            }
+            node = (n != NONE && chars[n] == c) ? n : NONE;
+        }
+        if (node == NONE) {
+            return out;
+        }
+        StringBuilder path = new StringBuilder(prefix);
+        for (int n = child[node]; n != NONE; n = sibling[n]) {
+            path.append(chars[n]);
+            boolean more = collect(n, path, out, max);
+            path.setLength(path.length() - 1);
+            if (!more) {
+                break;
+            }
+        }
+        return out;
+    }//end complete
+
+    /**
+     * @return the number of words
+     */
+    synchronized int getWordCount() {
+        return words;
+    }
+
+    /**
+     * @return a new node, growing the arrays when full
+     */
+    private int newNode(final char c, final int next) {
+        if (nodes == chars.length) {
+            int size = nodes * 2;
+            chars = Arrays.copyOf(chars, size);
+            child = Arrays.copyOf(child, size);
+            sibling = Arrays.copyOf(sibling, size);
+            word = Arrays.copyOf(word, size);
+        }
+        int n = nodes++;
+        chars[n] = c;
+        child[n] = NONE;
+        sibling[n] = next;
+        return n;
+    }//end newNode
+
+}//end class CompletionTrie
@@ -0,0 +1,624 @@
+/*
+ * Copyright (c) 2022 by William F. Gilreath (will@zepton.xyz)
+ * All rights reserved.
+ *
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 3 as published
+ * by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 3 for more details. The license is available at the following
+ * link:  https://www.gnu.org/licenses/gpl-3.0.txt.
+ *
+ */
+package xyz.zepton.zeptor.text;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import javax.swing.Timer;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Document;
+
+import xyz.zepton.zeptor.log.Logger;
+
+/**
+ * An append-only journal of the unsaved edits made to one open document.
+ * <p>
+ * The journal starts with a header naming the base of the document, either
+ * the file on disk as it was last read or saved, or a snapshot of the text.
+ * Every insert and remove is then appended as a compact binary record, so an
+ * edit costs one small write instead of a rewrite of the whole file. The
+ * records reach the operating system in batches, at most half a second after
+ * they are made. After enough records the journal is compacted into a fresh
+ * snapshot.
+ * <p>
+ * If the editor dies the journals are left behind in the journal directory,
+ * and on the next start each one is replayed over its base to rebuild the
+ * unsaved buffer in time proportional to the number of records.
+ * <p>
+ * A journal is named after the process that writes it, which holds a lock on
+ * its owner file in the journal directory while it runs. Only the journals
+ * whose owner lock can be taken, as their owner is gone, are left over; the
+ * journals of another running editor are never offered nor deleted.
+ */
+public final class EditJournal {
+
+    /**
+     * A document rebuilt from a journal
+     */
+    public static final class Recovery {
+
+        private final File file;
+        private final String text;
+
+        private Recovery(final File file, final String text) {
+            this.file = file;
+            this.text = text;
+        }
+
+        /**
+         * @return the file the document was edited from, null if untitled
+         */
+        public File getFile() {
+            return this.file;
+        }
+
+        /**
+         * @return the recovered text of the document
+         */
+        public String getText() {
+            return this.text;
+        }
+    }//end class Recovery
+
+    /**
+     * A gap buffer so that replaying a run of nearby edits only moves the gap
+     * instead of shifting the whole text for every record.
+     */
+    private static final class GapBuffer {
+
+        private char[] buf;
+        private int gapStart;
+        private int gapEnd;
+
+        GapBuffer(final String text) {
+            buf = new char[text.length() + 1024];
+            text.getChars(0, text.length(), buf, 0);
+            gapStart = text.length();
+            gapEnd = buf.length;
+        }
+
+        int length() {
+            return buf.length - (gapEnd - gapStart);
+        }
+
+        private void moveGap(final int pos) {
+            if (pos < gapStart) {
+                int n = gapStart - pos;
+                System.arraycopy(buf, pos, buf, gapEnd - n, n);
+                gapStart -= n;
+                gapEnd -= n;
+            } else if (pos > gapStart) {
+                int n = pos - gapStart;
+                System.arraycopy(buf, gapEnd, buf, gapStart, n);
+                gapStart += n;
+                gapEnd += n;
+            }//end if
+        }
+
+        void insert(final int pos, final String str) {
+            int len = str.length();
+            if (gapEnd - gapStart < len) {
+                int tail = buf.length - gapEnd;
+                char[] grown = new char[Math.max(buf.length * 2, length() + len + 1024)];
+                System.arraycopy(buf, 0, grown, 0, gapStart);
+                System.arraycopy(buf, gapEnd, grown, grown.length - tail, tail);
+                gapEnd = grown.length - tail;
+                buf = grown;
+            }//end if
+            moveGap(pos);
+            str.getChars(0, len, buf, gapStart);
+            gapStart += len;
+        }
+
+        void remove(final int pos, final int len) {
+            moveGap(pos);
+            gapEnd += len;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder b = new StringBuilder(length());
+            b.append(buf, 0, gapStart);
+            b.append(buf, gapEnd, buf.length - gapEnd);
+            return b.toString();
+        }
+    }//end class GapBuffer
+
+    private static final byte BASE_FILE = 1;
+    private static final byte BASE_SNAPSHOT = 2;
+
+    /**
+     * number of records after which the journal is compacted to a snapshot
+     */
+    private static final int COMPACT_RECORDS = 2048;
+
+    /**
+     * the number of records after which the stream is flushed, a timer
+     * flushes fewer
+     */
+    private static final int FLUSH_RECORDS = 64;
+
+    private static final int FLUSH_MSEC = 500;
+
+    /**
+     * the journal directory, in the home directory so that every editor finds
+     * it wherever it was started from
+     */
+    private static final File JOURNAL_DIR = new File(new File(System.getProperty("user.home"), "Zeptor"), "journal");
+    private static final String JOURNAL_SUFFIX = ".jnl";
+
+    /**
+     * the journals of this editor, by name
+     */
+    private static final Set<String> LIVE = new HashSet<>();
+
+    /**
+     * the owner locks held, the editor's own and those of the gone owners
+     * whose journals it took, by process id
+     */
+    private static final Map<Long, FileLock> LOCKS = new HashMap<>();
+
+    private static final String LOCK_SUFFIX = ".lock";
+
+    private static final int MAGIC = 0x5A4A4E4C; //"ZJNL"
+
+    private static final byte OP_INSERT = 1;
+    private static final byte OP_REMOVE = 2;
+
+    private static final byte VERSION = 1;
+
+    /**
+     * the process id of the editor, in the names of its journals
+     */
+    private static final long PID = ProcessHandle.current().pid();
+
+    private static int journalCount = 0;
+
+    /**
+     * @return the journals left behind by a previous session, whose owners
+     * are gone; their owner locks are taken so no other editor offers them
+     */
+    public static synchronized File[] listJournals() {
+        File[] list = JOURNAL_DIR.listFiles((dir, name) -> name.endsWith(JOURNAL_SUFFIX));
+        if (list == null) {
+            return new File[0];
+        }
+        ArrayList<File> left = new ArrayList<>();
+        Set<Long> owners = new HashSet<>();
+        for (File f : list) {
+            long owner = ownerOf(f.getName());
+            owners.add(owner);
+            if (!LIVE.contains(f.getName()) && (owner < 0 || lock(owner))) {
+                left.add(f);
+            }//end if
+        }//end for
+
+        //the owner files of the gone owners without journals are not needed
+        File[] locks = JOURNAL_DIR.listFiles((dir, name) -> name.endsWith(LOCK_SUFFIX));
+        for (File f : locks == null ? new File[0] : locks) {
+            long owner = ownerOf(f.getName());
+            if (owner >= 0 && owner != PID && !owners.contains(owner) && lock(owner)) {
+                try {
+                    Files.deleteIfExists(f.toPath());
+                    LOCKS.remove(owner).channel().close();
+                } catch (IOException ex) {
+                    Logger.LOG.logTrap(ex);
+                }//end try
+            }//end if
+        }//end for
+        return left.toArray(new File[0]);
+    }//end listJournals
+
+    /**
+     * Take the lock on the owner file of a process, held until the editor
+     * exits
+     *
+     * @param pid the process id
+     * @return whether the lock is held, false if its owner holds it
+     */
+    private static synchronized boolean lock(final long pid) {
+        if (LOCKS.containsKey(pid)) {
+            return true;
+        }
+        JOURNAL_DIR.mkdirs();
+        FileChannel channel = null;
+        try {
+            channel = FileChannel.open(new File(JOURNAL_DIR, pid + LOCK_SUFFIX).toPath(),
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+            FileLock l = channel.tryLock();
+            if (l != null) {
+                LOCKS.put(pid, l);
+                return true;
+            }//end if
+        } catch (IOException | OverlappingFileLockException ex) {
+            Logger.LOG.logTrap(ex);
+        }//end try
+        if (channel != null) {
+            try {
+                channel.close();
+            } catch (IOException ex) {
+                Logger.LOG.logTrap(ex);
+            }//end try
+        }//end if
+        return false;
+    }//end lock
+
+    /**
+     * @return the process id in the name of a journal or owner file, -1 if it
+     * has none, as a journal of an older editor
+     */
+    private static long ownerOf(final String name) {
+        String[] part = name.substring(0, name.lastIndexOf('.')).split("-");
+        try {
+            if (part.length == 4 && part[0].equals("doc")) {
+                return Long.parseLong(part[1]);
+            } else if (part.length == 1) {
+                return Long.parseLong(part[0]);
+            }//end if
+        } catch (NumberFormatException ex) {
+            //not a name given here
+        }//end try
+        return -1;
+    }//end ownerOf
+
+    private static byte[] readBytes(final DataInputStream in) throws IOException {
+        byte[] b = new byte[in.readInt()];
+        in.readFully(b);
+        return b;
+    }
+
+    /**
+     * Rebuild the document a journal was recording
+     *
+     * @param journal the journal file
+     * @return the recovered document, null if the journal is unusable
+     */
+    public static Recovery recover(final File journal) {
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(journal)))) {
+
+            if (in.readInt() != MAGIC || in.readByte() != VERSION) {
+                Logger.LOG.logText(String.format("Journal '%s' has an unknown format.", journal));
+                return null;
+            }//end if
+
+            String path = new String(readBytes(in), StandardCharsets.UTF_8);
+            File file = path.isEmpty() ? null : new File(path);
+
+            String base;
+            if (in.readByte() == BASE_FILE) {
+                long length = in.readLong();
+                long modified = in.readLong();
+                if (file == null || file.length() != length || file.lastModified() != modified) {
+                    Logger.LOG.logText(String.format("Journal '%s' base file '%s' has changed on disk.", journal, path));
+                    return null;
+                }//end if
+                base = new String(Files.readAllBytes(file.toPath()));
+            } else {
+                base = new String(readBytes(in), StandardCharsets.UTF_8);
+            }//end if
+
+            GapBuffer text = new GapBuffer(base);
+            int records = 0;
+
+            try {
+                for (;;) {
+                    byte op = in.readByte();
+                    int offs = in.readInt();
+                    if (op == OP_INSERT) {
+                        String str = new String(readBytes(in), StandardCharsets.UTF_8);
+                        text.insert(offs, str);
+                    } else {
+                        text.remove(offs, in.readInt());
+                    }//end if
+                    records++;
+                }//end for
+            } catch (EOFException eof) {
+                //end of journal, a torn last record is dropped
+            }//end try
+
+            Logger.LOG.logText(String.format("Recovered '%s' from journal '%s' by replaying %d edit(s).",
+                    file == null ? "untitled" : path, journal, records));
+
+            return new Recovery(file, text.toString());
+
+        } catch (Exception ex) {
+            Logger.LOG.logTrap(ex);
+        }//end try
+
+        return null;
+
+    }//end recover
+
+    /**
+     * the document being journalled
+     */
+    private final Document doc;
+
+    /**
+     * the file being edited, null if untitled
+     */
+    private File file;
+
+    /**
+     * whether the journal is based on the file as it is on disk
+     */
+    private boolean fileBase;
+
+    /**
+     * flushes the records written since the last flush
+     */
+    private final Timer flushTimer;
+
+    /**
+     * the journal file
+     */
+    private final File journal;
+
+    /**
+     * the open journal stream, null until the first edit
+     */
+    private DataOutputStream out;
+
+    /**
+     * the number of records since the last base
+     */
+    private int records;
+
+    /**
+     * the number of records written since the last flush
+     */
+    private int unflushed;
+
+    /**
+     * whether edits are being journalled
+     */
+    private boolean recording;
+
+    /**
+     * Constructor
+     *
+     * @param d the document to journal
+     */
+    public EditJournal(final Document d) {
+        doc = d;
+        file = null;
+        fileBase = false;
+        synchronized (EditJournal.class) {
+            journal = new File(JOURNAL_DIR, String.format("doc-%d-%d-%d%s", PID, System.currentTimeMillis(), journalCount++, JOURNAL_SUFFIX));
+            LIVE.add(journal.getName());
+        }
+        records = 0;
+        recording = true;
+        flushTimer = new Timer(FLUSH_MSEC, e -> flush());
+        flushTimer.setRepeats(false);
+    }
+
+    /**
+     * close and delete the journal as there are no unsaved edits
+     */
+    public void discard() {
+        closeStream();
+        try {
+            Files.deleteIfExists(journal.toPath());
+        } catch (IOException ex) {
+            Logger.LOG.logTrap(ex);
+        }//end try
+        records = 0;
+    }//end discard
+
+    private void closeStream() {
+        flushTimer.stop();
+        unflushed = 0;
+        if (out != null) {
+            try {
+                out.close();
+            } catch (IOException ex) {
+                Logger.LOG.logTrap(ex);
+            }//end try
+            out = null;
+        }//end if
+    }//end closeStream
+
+    /**
+     * Compact the journal into a snapshot of the current text, written aside
+     * and moved over the old journal so a crash never leaves it half written.
+     */
+    private void compact() throws IOException, BadLocationException {
+        closeStream();
+        File temp = new File(journal.getPath() + ".tmp");
+        DataOutputStream snap = openStream(temp, false);
+        writeHeader(snap, BASE_SNAPSHOT);
+        writeBytes(snap, doc.getText(0, doc.getLength()).getBytes(StandardCharsets.UTF_8));
+        snap.close();
+        Files.move(temp.toPath(), journal.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        fileBase = false;
+        records = 0;
+        out = openStream(journal, true);
+    }//end compact
+
+    /**
+     * @return the journal file
+     */
+    public File getJournalFile() {
+        return journal;
+    }
+
+    private DataOutputStream openStream(final File f, final boolean append) throws IOException {
+        File dir = f.getParentFile();
+        if (dir != null && !dir.exists()) {
+            dir.mkdirs();
+        }//end if
+        return new DataOutputStream(new BufferedOutputStream(new FileOutputStream(f, append), 8192));
+    }
+
+    /**
+     * Append an insert record
+     *
+     * @param offs the offset of the inserted text
+     * @param len the length of the inserted text
+     */
+    public void recordInsert(final int offs, final int len) {
+        if (!recording) {
+            return;
+        }
+        try {
+            DataOutputStream o = stream();
+            o.writeByte(OP_INSERT);
+            o.writeInt(offs);
+            writeBytes(o, doc.getText(offs, len).getBytes(StandardCharsets.UTF_8));
+            written();
+        } catch (Exception ex) {
+            failed(ex);
+        }//end try
+    }//end recordInsert
+
+    /**
+     * Append a remove record
+     *
+     * @param offs the offset of the removed text
+     * @param len the length of the removed text
+     */
+    public void recordRemove(final int offs, final int len) {
+        if (!recording) {
+            return;
+        }
+        try {
+            DataOutputStream o = stream();
+            o.writeByte(OP_REMOVE);
+            o.writeInt(offs);
+            o.writeInt(len);
+            written();
+        } catch (Exception ex) {
+            failed(ex);
+        }//end try
+    }//end recordRemove
+
+    /**
+     * Start a new journal based on the file as it is now on disk, used after
+     * the document was read from or saved to the file.
+     *
+     * @param f the file the document now matches, null for an empty base
+     */
+    public void reset(final File f) {
+        discard();
+        file = f;
+        fileBase = (f != null);
+    }//end reset
+
+    /**
+     * @param flag whether edits should be journalled
+     */
+    public void setRecording(final boolean flag) {
+        recording = flag;
+    }
+
+    /**
+     * push the records written to the operating system
+     */
+    private void flush() {
+        flushTimer.stop();
+        unflushed = 0;
+        if (out != null) {
+            try {
+                out.flush();
+            } catch (IOException ex) {
+                failed(ex);
+            }//end try
+        }//end if
+    }//end flush
+
+    private void failed(final Exception ex) {
+        //journalling is best effort, never get in the way of editing
+        Logger.LOG.logTrap(ex);
+        recording = false;
+        closeStream();
+    }//end failed
+
+    /**
+     * @return the open journal stream, creating the journal on the first edit
+     */
+    private DataOutputStream stream() throws IOException {
+        if (out == null) {
+            if (!lock(PID)) {
+                throw new IOException("Cannot lock the owner file of journal " + journal);
+            }
+            out = openStream(journal, false);
+            if (fileBase) {
+                writeHeader(out, BASE_FILE);
+                out.writeLong(file.length());
+                out.writeLong(file.lastModified());
+            } else {
+                writeHeader(out, BASE_SNAPSHOT);
+                writeBytes(out, new byte[0]);
+            }//end if
+        }//end if
+        return out;
+    }//end stream
+
+    private void writeBytes(final DataOutputStream o, final byte[] b) throws IOException {
+        o.writeInt(b.length);
+        o.write(b);
+    }
+
+    private void writeHeader(final DataOutputStream o, final byte base) throws IOException {
+        o.writeInt(MAGIC);
+        o.writeByte(VERSION);
+        writeBytes(o, file == null ? new byte[0] : file.getAbsolutePath().getBytes(StandardCharsets.UTF_8));
+        o.writeByte(base);
+    }//end writeHeader
+
+    /**
+     * count a finished record, flush the records in batches, and compact if
+     * needed
+     */
+    private void written() throws IOException, BadLocationException {
+        if (++unflushed >= FLUSH_RECORDS) {
+            flushTimer.stop();
+            unflushed = 0;
+            out.flush();
+        } else if (!flushTimer.isRunning()) {
+            flushTimer.start();
+        }//end if
+        records++;
+        if (records >= COMPACT_RECORDS) {
+            compact();
+        }//end if
+    }//end written
+
+}//end class EditJournal
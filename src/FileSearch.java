@@ -0,0 +1,443 @@
+/*
+ * Copyright (c) 2022 by William F. Gilreath (will@zepton.xyz)
+ * All rights reserved.
+ *
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 3 as published
+ * by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 3 for more details. The license is available at the following
+ * link:  https://www.gnu.org/licenses/gpl-3.0.txt.
+ *
+ */
+package xyz.zepton.zeptor.text;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import xyz.zepton.zeptor.log.Logger;
+
+/**
+ * Searches the open tabs, the files of the open tabs not read yet, and a
+ * directory tree of ZeptoN source files.
+ * <p>
+ * Each directory is a task on a fork-join pool, and the files in it are
+ * searched in batches. A file is read into a buffer each worker reuses, and
+ * an ASCII search is made directly on its bytes, so only the matching lines
+ * are turned into strings. The rare large file is memory mapped instead, as
+ * a mapping holds on to the file until it is collected. Every match is passed
+ * to the sink as it is found, from whichever worker found it.
+ */
+public final class FileSearch {
+
+    /**
+     * One match
+     */
+    public static final class Hit {
+
+        private final File file;
+        private final int line;
+        private final String text;
+
+        private Hit(final File file, final int line, final String text) {
+            this.file = file;
+            this.line = line;
+            this.text = text;
+        }
+
+        /**
+         * @return the file of the match
+         */
+        public File getFile() {
+            return file;
+        }
+
+        /**
+         * @return the line number of the match, from 1
+         */
+        public int getLine() {
+            return line;
+        }
+
+        /**
+         * @return the text of the line
+         */
+        public String getText() {
+            return text;
+        }
+
+        @Override
+        public String toString() {
+            return file.getName() + ":" + line + ":  " + text;
+        }
+    }//end class Hit
+
+    /**
+     * The bytes of a file seen as characters, one per byte
+     */
+    private static final class ByteText implements CharSequence {
+
+        private final ByteBuffer bytes;
+
+        private ByteText(final ByteBuffer bytes) {
+            this.bytes = bytes;
+        }
+
+        @Override
+        public char charAt(final int index) {
+            return (char) (bytes.get(index) & 0xFF);
+        }
+
+        @Override
+        public int length() {
+            return bytes.limit();
+        }
+
+        /**
+         * @return the bytes in the range decoded as UTF-8
+         */
+        @Override
+        public CharSequence subSequence(final int start, final int end) {
+            byte[] b = new byte[end - start];
+            bytes.get(start, b);
+            return new String(b, StandardCharsets.UTF_8);
+        }
+    }//end class ByteText
+
+    /**
+     * Searches one directory, forking a task for each subdirectory
+     */
+    private final class DirTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 2091788403374215548L;
+
+        private final Path dir;
+
+        private DirTask(final Path dir) {
+            this.dir = dir;
+        }
+
+        @Override
+        protected void compute() {
+            ArrayList<RecursiveAction> tasks = new ArrayList<>();
+            ArrayList<Path> batch = new ArrayList<>(BATCH_SIZE);
+            try (DirectoryStream<Path> stream = Files.newDirectoryStream(dir)) {
+                for (Path p : stream) {
+                    if (cancelled) {
+                        return;
+                    }
+                    //links are not followed, so the walk cannot loop
+                    if (Files.isDirectory(p, LinkOption.NOFOLLOW_LINKS)) {
+                        tasks.add(new DirTask(p));
+                    } else if (p.getFileName().toString().endsWith(EXTENSION) && !skip.contains(p)) {
+                        batch.add(p);
+                        if (batch.size() == BATCH_SIZE) {
+                            tasks.add(new FileTask(batch));
+                            batch = new ArrayList<>(BATCH_SIZE);
+                        }
+                    }
+                }
+            } catch (IOException ex) {
+                Logger.LOG.logTrap(ex);
+            }
+            if (!batch.isEmpty()) {
+                tasks.add(new FileTask(batch));
+            }
+            invokeAll(tasks);
+        }
+    }//end class DirTask
+
+    /**
+     * Searches a batch of files
+     */
+    private final class FileTask extends RecursiveAction {
+
+        private static final long serialVersionUID = -5436210542964738370L;
+
+        private final ArrayList<Path> files;
+
+        private FileTask(final ArrayList<Path> files) {
+            this.files = files;
+        }
+
+        @Override
+        protected void compute() {
+            for (Path p : files) {
+                if (cancelled) {
+                    return;
+                }
+                searchFile(p);
+            }
+        }
+    }//end class FileTask
+
+    /**
+     * files in a directory searched by one task
+     */
+    private static final int BATCH_SIZE = 32;
+
+    /**
+     * the extension of the files searched
+     */
+    public static final String EXTENSION = ".zep";
+
+    /**
+     * the largest file read into the buffer of a worker, larger ones are
+     * memory mapped
+     */
+    private static final int MAP_THRESHOLD = 1 << 20;
+
+    /**
+     * the most matches kept, the search stops there
+     */
+    public static final int MAX_HITS = 10000;
+
+    /**
+     * the longest line text kept for a match
+     */
+    private static final int MAX_LINE_TEXT = 160;
+
+    /**
+     * whether to stop
+     */
+    private volatile boolean cancelled;
+
+    /**
+     * the number of files searched
+     */
+    private final AtomicInteger files;
+
+    /**
+     * the number of matches found
+     */
+    private final AtomicInteger hits;
+
+    /**
+     * the text of the open tabs, by file
+     */
+    private final Map<File, String> openTexts;
+
+    /**
+     * the directory to search, null for the open tabs only
+     */
+    private final File root;
+
+    /**
+     * the files of the open tabs not read yet, searched on disk
+     */
+    private final List<File> unread;
+
+    /**
+     * the buffer each worker reads the files into
+     */
+    private final ThreadLocal<ByteBuffer> buffer = ThreadLocal.withInitial(() -> ByteBuffer.allocate(64 * 1024));
+
+    /**
+     * whether the search text is ASCII, so the bytes need no decoding
+     */
+    private final boolean ascii;
+
+    /**
+     * the search
+     */
+    private final TextSearch search;
+
+    /**
+     * receives the matches
+     */
+    private final Consumer<Hit> sink;
+
+    /**
+     * the open files, searched before the directory and not again in it
+     */
+    private final Set<Path> skip;
+
+    /**
+     * Constructor
+     *
+     * @param s the search
+     * @param texts the text of the open tabs, by file
+     * @param unreadFiles the files of the open tabs not read yet
+     * @param dir the directory to search, null for the open tabs only
+     * @param hitSink receives the matches, on a worker thread
+     */
+    public FileSearch(final TextSearch s, final Map<File, String> texts, final List<File> unreadFiles, final File dir,
+            final Consumer<Hit> hitSink) {
+        search = s;
+        openTexts = texts;
+        unread = unreadFiles;
+        root = dir;
+        sink = hitSink;
+        files = new AtomicInteger();
+        hits = new AtomicInteger();
+
+        ascii = s.getSearchText().chars().allMatch(c -> c < 0x80);
+
+        skip = new HashSet<>();
+        for (File f : texts.keySet()) {
+            skip.add(f.toPath().toAbsolutePath().normalize());
+        }
+        for (File f : unreadFiles) {
+            skip.add(f.toPath().toAbsolutePath().normalize());
+        }
+    }//end constructor
+
+    /**
+     * Stop the search
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    /**
+     * @return the number of files searched
+     */
+    public int getFilesSearched() {
+        return files.get();
+    }
+
+    /**
+     * @return the number of matches found
+     */
+    public int getHits() {
+        return hits.get();
+    }
+
+    /**
+     * @return whether the search stopped at MAX_HITS
+     */
+    public boolean isLimited() {
+        return hits.get() >= MAX_HITS;
+    }
+
+    /**
+     * report the matches in a text
+     */
+    private void report(final File file, final TextSearch s, final CharSequence text) {
+        int len = s.getLength();
+        int line = 1;
+        int counted = 0;
+        int pos = s.find(text, 0);
+        while (pos != -1 && !cancelled) {
+            for (; counted < pos; counted++) {
+                if (text.charAt(counted) == '\n') {
+                    line++;
+                }
+            }
+            int start = pos;
+            while (start > 0 && text.charAt(start - 1) != '\n' && pos - start < MAX_LINE_TEXT) {
+                start--;
+            }
+            int end = pos;
+            while (end < text.length() && text.charAt(end) != '\n' && end - start < MAX_LINE_TEXT) {
+                end++;
+            }
+            if (hits.incrementAndGet() > MAX_HITS) {
+                cancelled = true;
+                return;
+            }
+            sink.accept(new Hit(file, line, text.subSequence(start, end).toString().trim()));
+            pos = s.find(text, pos + Math.max(1, len));
+        }
+    }//end report
+
+    /**
+     * search a file, read into the buffer of the worker or memory mapped if
+     * it is large
+     */
+    private void searchFile(final Path p) {
+        try (FileChannel ch = FileChannel.open(p, StandardOpenOption.READ)) {
+            long size = ch.size();
+            files.incrementAndGet();
+            if (size == 0 || size > Integer.MAX_VALUE) {
+                return;
+            }
+            ByteBuffer buf;
+            if (size > MAP_THRESHOLD) {
+                buf = ch.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            } else {
+                buf = buffer.get();
+                if (buf.capacity() < size) {
+                    buf = ByteBuffer.allocate(Math.max((int) size, 2 * buf.capacity()));
+                    buffer.set(buf);
+                }
+                buf.clear().limit((int) size);
+                while (buf.hasRemaining() && ch.read(buf) >= 0) {
+                    //until the whole file is read, or it was cut short
+                }
+                buf.flip();
+            }
+            if (ascii) {
+                //UTF-8 leaves ASCII as it is
+                report(p.toFile(), search, new ByteText(buf));
+            } else {
+                CharBuffer chars = StandardCharsets.UTF_8.newDecoder()
+                        .onMalformedInput(CodingErrorAction.REPLACE)
+                        .onUnmappableCharacter(CodingErrorAction.REPLACE)
+                        .decode(buf);
+                report(p.toFile(), search, chars);
+            }
+        } catch (IOException ex) {
+            Logger.LOG.logTrap(ex);
+        }
+    }//end searchFile
+
+    /**
+     * Start the search
+     *
+     * @param pool the pool to search on
+     * @return the future of the search, done when it finishes
+     */
+    public Future<?> start(final ForkJoinPool pool) {
+        return pool.submit(new RecursiveAction() {
+
+            private static final long serialVersionUID = 7405185811738659017L;
+
+            @Override
+            protected void compute() {
+                for (Map.Entry<File, String> e : openTexts.entrySet()) {
+                    if (cancelled) {
+                        return;
+                    }
+                    files.incrementAndGet();
+                    report(e.getKey(), search, e.getValue());
+                }
+                for (File f : unread) {
+                    if (cancelled) {
+                        return;
+                    }
+                    searchFile(f.toPath());
+                }
+                if (root != null && root.isDirectory()) {
+                    new DirTask(root.toPath().toAbsolutePath().normalize()).invoke();
+                }
+            }
+        });
+    }//end start
+
+}//end class FileSearch
@@ -41,6 +41,8 @@ import javax.swing.JLabel;
 import javax.swing.JOptionPane;
 import javax.swing.JPanel;
 import javax.swing.JTextField;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
 
 /**
  * <p>
@@ -49,7 +51,7 @@ import javax.swing.JTextField;
  * @version 20041021
  * @author Tan Hong Cheong
  */
-public class FindDialog extends JDialog implements InputMethodListener, KeyListener, WindowFocusListener {
+public class FindDialog extends JDialog implements DocumentListener, InputMethodListener, KeyListener, WindowFocusListener {
 
     private static final long serialVersionUID = -2356033847831992393L;
 
@@ -63,6 +65,11 @@ public class FindDialog extends JDialog implements InputMethodListener, KeyListe
         return new Point((w2 - w1) / 2, (h2 - h1) / 2);
     }//end centerWidget
 
+    /**
+     * The position the search as you type starts from
+     */
+    private int anchor;
+
     /**
      * The current position to start searching
      */
@@ -78,6 +85,31 @@ public class FindDialog extends JDialog implements InputMethodListener, KeyListe
      */
     private JCheckBox matchWholeWordCheckBox;
 
+    /**
+     * The regular expression check box
+     */
+    private JCheckBox regexCheckBox;
+
+    /**
+     * every match of the plain search, highlighted
+     */
+    private OccurrenceIndex occurrences;
+
+    /**
+     * The find previous button
+     */
+    private JButton previousButton;
+
+    /**
+     * runs the searches in the background
+     */
+    private IncrementalSearch searcher;
+
+    /**
+     * The status of the last search
+     */
+    private JLabel statusLabel;
+
     /**
      * The textField
      */
@@ -100,6 +132,9 @@ public class FindDialog extends JDialog implements InputMethodListener, KeyListe
         setModal(true);
         textPane = t;
         current = 0;
+        anchor = 0;
+        searcher = new IncrementalSearch(t.getDocument());
+        occurrences = new OccurrenceIndex(t);
         init();
     }//end constructor
 
@@ -109,21 +144,75 @@ public class FindDialog extends JDialog implements InputMethodListener, KeyListe
     public void caretPositionChanged(InputMethodEvent event) {
     }
 
+    /**
+     * As defined in DocumentListener
+     */
+    public void changedUpdate(DocumentEvent e) {
+    }
+
     /**
      * User pressed find
      */
     private void find() {
-        int pos = textPane.find(getSearchString(), isCaseSensitive(), isWholeWord(), current);
-        if (pos == -1) {
-            JOptionPane.showMessageDialog(this, "Cannot find text.", "Information", JOptionPane.PLAIN_MESSAGE, null);
-            setVisible(false);
-            current = 0;//reset so that start seeaching from pos 0
+        if (!isRegex() && occurrences.isOf(getSearchString(), isCaseSensitive(), isWholeWord())) {
+            //the index is kept current as the text is edited
+            int i = occurrences.indexOfNext(current);
+            if (i == -1) {
+                notFound();
+            } else {
+                showOccurrence(i);
+            }
+            return;
+        }
+        statusLabel.setText("Searching...");
+        searcher.search(getSearchString(), isRegex(), isCaseSensitive(), isWholeWord(), current, r -> {
+            if (r.isFound()) {
+                showMatch(r);
+            } else if (r.getError() != null) {
+                statusLabel.setText(r.getError());
+            } else {
+                notFound();
+            }
+        });
+    }
+
+    /**
+     * User pressed find previous
+     */
+    private void findPrevious() {
+        if (!occurrences.isOf(getSearchString(), isCaseSensitive(), isWholeWord())) {
+            return;
+        }
+        int i = occurrences.indexOfPrevious(current - occurrences.getLength());
+        if (i == -1) {
+            notFound();
         } else {
-            //select the text
-            current = pos + getSearchString().length();
-            textPane.highlight(pos, current);
-            textPane.setCaretPosition(current);
+            showOccurrence(i);
+        }
+    }
+
+    /**
+     * Search again from the anchor as the query changes
+     */
+    private void findAsYouType() {
+        current = anchor;
+        if (getSearchString().isEmpty()) {
+            searcher.cancel();
+            occurrences.clear();
+            statusLabel.setText(" ");
+            textPane.highlight(0, 0);
+            return;
         }
+        statusLabel.setText("Searching...");
+        searcher.search(getSearchString(), isRegex(), isCaseSensitive(), isWholeWord(), anchor, r -> {
+            if (r.isFound()) {
+                showMatch(r);
+            } else {
+                occurrences.clear();
+                statusLabel.setText(r.getError() != null ? r.getError() : "No match");
+                textPane.highlight(0, 0);
+            }
+        });
     }
 
     /**
@@ -140,7 +229,7 @@ public class FindDialog extends JDialog implements InputMethodListener, KeyListe
         setDefaultCloseOperation(JDialog.HIDE_ON_CLOSE);
         //so that dialog would be disposed when it is close
         //i.e by pressing the x button
-        this.setSize(350, 150);
+        this.setSize(460, 210);
         this.setResizable(true);
         this.setModal(false);
 
@@ -176,6 +265,15 @@ public class FindDialog extends JDialog implements InputMethodListener, KeyListe
         });
         buttonPanel.add(findButton);
 
+        previousButton = new JButton("Find Previous");
+        previousButton.setMnemonic('P');
+        previousButton.addActionListener(new ActionListener() {
+            public void actionPerformed(ActionEvent e) {
+                findPrevious();
+            }
+        });
+        buttonPanel.add(previousButton);
+
         JButton doneButton = new JButton("Done");
         doneButton.setMnemonic('D');
         doneButton.addActionListener(new ActionListener() {
@@ -187,13 +285,14 @@ public class FindDialog extends JDialog implements InputMethodListener, KeyListe
 
         pane.add(buttonPanel, BorderLayout.SOUTH);
 
-        JPanel center = new JPanel(new GridLayout(3, 1));
+        JPanel center = new JPanel(new GridLayout(5, 1));
 
         JPanel panel = new JPanel(new FlowLayout(FlowLayout.LEFT));
 
         panel.add(new JLabel("Find What", JLabel.LEFT));
         textField = new JTextField(20);
         textField.addInputMethodListener(this);
+        textField.getDocument().addDocumentListener(this);
 
         panel.add(textField);
 
@@ -201,13 +300,37 @@ public class FindDialog extends JDialog implements InputMethodListener, KeyListe
 
         matchCaseCheckBox = new JCheckBox("Match Case");
         matchCaseCheckBox.addKeyListener(this);
+        matchCaseCheckBox.addActionListener(new ActionListener() {
+            public void actionPerformed(ActionEvent e) {
+                findAsYouType();
+            }
+        });
 
         center.add(matchCaseCheckBox);
 
         matchWholeWordCheckBox = new JCheckBox("Match Whole Word");
         matchWholeWordCheckBox.addKeyListener(this);
+        matchWholeWordCheckBox.addActionListener(new ActionListener() {
+            public void actionPerformed(ActionEvent e) {
+                findAsYouType();
+            }
+        });
         center.add(matchWholeWordCheckBox);
 
+        regexCheckBox = new JCheckBox("Regular Expression");
+        regexCheckBox.addKeyListener(this);
+        regexCheckBox.addActionListener(new ActionListener() {
+            public void actionPerformed(ActionEvent e) {
+                //only a plain search keeps every match
+                previousButton.setEnabled(!isRegex());
+                findAsYouType();
+            }
+        });
+        center.add(regexCheckBox);
+
+        statusLabel = new JLabel(" ", JLabel.LEFT);
+        center.add(statusLabel);
+
         pane.add(center, BorderLayout.CENTER);
 
         this.addKeyListener(this);
@@ -225,6 +348,13 @@ public class FindDialog extends JDialog implements InputMethodListener, KeyListe
         current = 0;//search text had changed, reset current
     }
 
+    /**
+     * As defined in DocumentListener
+     */
+    public void insertUpdate(DocumentEvent e) {
+        findAsYouType();
+    }
+
     /**
      * @return wether to search for word that match case
      */
@@ -232,6 +362,13 @@ public class FindDialog extends JDialog implements InputMethodListener, KeyListe
         return matchCaseCheckBox.isSelected();
     }
 
+    /**
+     * @return wether the search text is a regular expression
+     */
+    public boolean isRegex() {
+        return regexCheckBox.isSelected();
+    }
+
     /**
      * @return wether to search for whole word only
      */
@@ -263,6 +400,23 @@ public class FindDialog extends JDialog implements InputMethodListener, KeyListe
     public void keyTyped(KeyEvent e) {
     }
 
+    /**
+     * the end was reached without a match
+     */
+    private void notFound() {
+        statusLabel.setText(" ");
+        JOptionPane.showMessageDialog(this, "Cannot find text.", "Information", JOptionPane.PLAIN_MESSAGE, null);
+        setVisible(false);
+        current = 0;//reset so that start seeaching from pos 0
+    }
+
+    /**
+     * As defined in DocumentListener
+     */
+    public void removeUpdate(DocumentEvent e) {
+        findAsYouType();
+    }
+
     /**
      * override the setvisibile method
      *
@@ -272,7 +426,43 @@ public class FindDialog extends JDialog implements InputMethodListener, KeyListe
         super.setVisible(flag);
         if (flag) {
             current = textPane.getCaretPosition();
+            anchor = current;
+        } else {
+            searcher.cancel();
+            occurrences.clear();
+        }
+    }
+
+    /**
+     * select a match and search on from its end
+     *
+     * @param r the result of the search
+     */
+    private void showMatch(IncrementalSearch.Result r) {
+        if (r.getOccurrences() != null) {
+            occurrences.set(r.getSearch(), r.getOccurrences());
+            showOccurrence(occurrences.indexOf(r.getStart()));
+            return;
         }
+        occurrences.clear();
+        statusLabel.setText(" ");
+        textPane.highlight(r.getStart(), r.getEnd());
+        textPane.setCaretPosition(r.getEnd());
+        //step over an empty match or the next search finds it again
+        current = r.getEnd() > r.getStart() ? r.getEnd() : r.getEnd() + 1;
+    }
+
+    /**
+     * select one of the highlighted matches and show which it is
+     *
+     * @param i the index of the match
+     */
+    private void showOccurrence(int i) {
+        int start = occurrences.getStart(i);
+        current = start + occurrences.getLength();
+        textPane.highlight(start, current);
+        textPane.setCaretPosition(current);
+        statusLabel.setText((i + 1) + " of " + occurrences.getCount());
     }
 
     /**
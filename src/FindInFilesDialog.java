@@ -0,0 +1,349 @@
+/*
+ * Copyright (c) 2022 by William F. Gilreath (will@zepton.xyz)
+ * All rights reserved.
+ *
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 3 as published
+ * by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 3 for more details. The license is available at the following
+ * link:  https://www.gnu.org/licenses/gpl-3.0.txt.
+ *
+ */
+package xyz.zepton.zeptor.text;
+
+import java.awt.BorderLayout;
+import java.awt.Container;
+import java.awt.FlowLayout;
+import java.awt.GridLayout;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+import javax.swing.DefaultListModel;
+import javax.swing.JButton;
+import javax.swing.JCheckBox;
+import javax.swing.JDialog;
+import javax.swing.JFileChooser;
+import javax.swing.JLabel;
+import javax.swing.JList;
+import javax.swing.JPanel;
+import javax.swing.JScrollPane;
+import javax.swing.JTextField;
+import javax.swing.ListSelectionModel;
+import javax.swing.Timer;
+
+import xyz.zepton.zeptor.editor.Zeptor;
+
+/**
+ * A dialog to find text in the open tabs and in the ZeptoN files of a
+ * directory. Matches are listed as they are found, double click one to go to
+ * it.
+ */
+public class FindInFilesDialog extends JDialog {
+
+    private static final long serialVersionUID = -3061927734451358721L;
+
+    /**
+     * how often the found matches are moved into the list
+     */
+    private static final int FLUSH_MSEC = 100;
+
+    /**
+     * the directory text field
+     */
+    private JTextField directoryField;
+
+    /**
+     * the future of the running search
+     */
+    private Future<?> future;
+
+    /**
+     * the match case check box
+     */
+    private JCheckBox matchCaseCheckBox;
+
+    /**
+     * the match whole word check box
+     */
+    private JCheckBox matchWholeWordCheckBox;
+
+    /**
+     * the open tabs check box
+     */
+    private JCheckBox openTabsCheckBox;
+
+    /**
+     * the matches found but not yet listed, one queue per search
+     */
+    private ConcurrentLinkedQueue<FileSearch.Hit> pending;
+
+    /**
+     * the list of matches
+     */
+    private DefaultListModel<FileSearch.Hit> results;
+
+    /**
+     * the running search, null if none
+     */
+    private FileSearch search;
+
+    /**
+     * the time the search started
+     */
+    private long startTime;
+
+    /**
+     * the status of the search
+     */
+    private JLabel statusLabel;
+
+    /**
+     * the stop button
+     */
+    private JButton stopButton;
+
+    /**
+     * the text field
+     */
+    private JTextField textField;
+
+    /**
+     * moves the found matches into the list
+     */
+    private Timer timer;
+
+    /**
+     * the editor
+     */
+    private final Zeptor zeptor;
+
+    /**
+     * Constructor
+     *
+     * @param z the editor
+     */
+    public FindInFilesDialog(Zeptor z) {
+        super(z);
+        setTitle("Find in Files");
+        setModal(false);
+        zeptor = z;
+        pending = new ConcurrentLinkedQueue<>();
+        init();
+    }
+
+    /**
+     * let the user choose the directory
+     */
+    private void browse() {
+        JFileChooser chooser = new JFileChooser(directoryField.getText());
+        chooser.setFileSelectionMode(JFileChooser.DIRECTORIES_ONLY);
+        if (chooser.showOpenDialog(this) == JFileChooser.APPROVE_OPTION) {
+            directoryField.setText(chooser.getSelectedFile().getPath());
+        }
+    }
+
+    /**
+     * Find in the files
+     */
+    private void find() {
+        stop();
+        results.clear();
+        pending = new ConcurrentLinkedQueue<>(); //a stopped search may still add to its queue
+
+        String text = textField.getText();
+        if (text.isEmpty()) {
+            return;
+        }
+
+        //the open tabs are searched as they are, saved or not, and those not read yet on disk
+        LinkedHashMap<File, String> texts = new LinkedHashMap<>();
+        ArrayList<File> unread = new ArrayList<>();
+        if (openTabsCheckBox.isSelected()) {
+            for (MyTextPane t : zeptor.getAllFiles()) {
+                if (t.getFile() == null) {
+                    continue;
+                }
+                if (t.isPending()) {
+                    unread.add(t.getFile());
+                } else {
+                    texts.put(t.getFile(), t.getText());
+                }
+            }
+        }
+
+        String dir = directoryField.getText().trim();
+        TextSearch s = TextSearch.compile(text, matchCaseCheckBox.isSelected(), matchWholeWordCheckBox.isSelected());
+        search = new FileSearch(s, texts, unread, dir.isEmpty() ? null : new File(dir), pending::add);
+        startTime = System.nanoTime();
+        //a pool of its own, shut down at once so its workers end with the search
+        ForkJoinPool pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+        future = search.start(pool);
+        pool.shutdown();
+        stopButton.setEnabled(true);
+        statusLabel.setText("Searching...");
+        timer.start();
+    }//end find
+
+    /**
+     * move the found matches into the list, and report when done
+     */
+    private void flush() {
+        FileSearch.Hit hit;
+        while ((hit = pending.poll()) != null) {
+            results.addElement(hit);
+        }
+        if (search == null) {
+            timer.stop();
+            return;
+        }
+        long msec = (System.nanoTime() - startTime) / 1000000;
+        String status = search.getHits() + " matches in " + search.getFilesSearched() + " files";
+        if (future.isDone()) {
+            timer.stop();
+            stopButton.setEnabled(false);
+            status += (search.isLimited() ? ", stopped at the limit" : "") + " (" + msec + " ms)";
+            search = null;
+        }
+        statusLabel.setText(status);
+    }//end flush
+
+    /**
+     * go to the selected match
+     *
+     * @param list the list of matches
+     */
+    private void gotoHit(JList<FileSearch.Hit> list) {
+        FileSearch.Hit hit = list.getSelectedValue();
+        if (hit != null) {
+            zeptor.highlightFile(hit.getFile(), hit.getLine());
+        }
+    }
+
+    /**
+     * Initialize the dialog
+     */
+    private void init() {
+        setDefaultCloseOperation(JDialog.HIDE_ON_CLOSE);
+        this.setSize(640, 480);
+        this.setResizable(true);
+        this.setLocation(FindDialog.centerWidget(getSize(), getToolkit().getScreenSize()));
+
+        Container pane = this.getContentPane();
+        pane.setLayout(new BorderLayout());
+
+        JPanel top = new JPanel(new GridLayout(3, 1));
+
+        JPanel p1 = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        p1.add(new JLabel("Find What", JLabel.LEFT));
+        textField = new JTextField(30);
+        textField.addActionListener(new ActionListener() {
+            public void actionPerformed(ActionEvent e) {
+                find();
+            }
+        });
+        p1.add(textField);
+        top.add(p1);
+
+        JPanel p2 = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        p2.add(new JLabel("Directory", JLabel.LEFT));
+        directoryField = new JTextField(System.getProperty("user.dir"), 30);
+        p2.add(directoryField);
+        JButton browseButton = new JButton("Browse...");
+        browseButton.addActionListener(new ActionListener() {
+            public void actionPerformed(ActionEvent e) {
+                browse();
+            }
+        });
+        p2.add(browseButton);
+        top.add(p2);
+
+        JPanel p3 = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        openTabsCheckBox = new JCheckBox("Open Tabs", true);
+        p3.add(openTabsCheckBox);
+        matchCaseCheckBox = new JCheckBox("Match Case");
+        p3.add(matchCaseCheckBox);
+        matchWholeWordCheckBox = new JCheckBox("Match Whole Word");
+        p3.add(matchWholeWordCheckBox);
+        top.add(p3);
+
+        pane.add(top, BorderLayout.NORTH);
+
+        results = new DefaultListModel<>();
+        final JList<FileSearch.Hit> list = new JList<>(results);
+        list.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        list.addMouseListener(new MouseAdapter() {
+            public void mouseClicked(MouseEvent e) {
+                if (e.getClickCount() == 2) {
+                    gotoHit(list);
+                }
+            }
+        });
+        pane.add(new JScrollPane(list), BorderLayout.CENTER);
+
+        JPanel bottom = new JPanel(new BorderLayout());
+        statusLabel = new JLabel(" ", JLabel.LEFT);
+        bottom.add(statusLabel, BorderLayout.CENTER);
+
+        JPanel buttonPanel = new JPanel(new FlowLayout());
+        JButton findButton = new JButton("Find");
+        findButton.setMnemonic('F');
+        findButton.addActionListener(new ActionListener() {
+            public void actionPerformed(ActionEvent e) {
+                find();
+            }
+        });
+        buttonPanel.add(findButton);
+
+        stopButton = new JButton("Stop");
+        stopButton.setMnemonic('S');
+        stopButton.setEnabled(false);
+        stopButton.addActionListener(new ActionListener() {
+            public void actionPerformed(ActionEvent e) {
+                stop();
+            }
+        });
+        buttonPanel.add(stopButton);
+
+        JButton doneButton = new JButton("Done");
+        doneButton.setMnemonic('D');
+        doneButton.addActionListener(new ActionListener() {
+            public void actionPerformed(ActionEvent e) {
+                setVisible(false);
+            }
+        });
+        buttonPanel.add(doneButton);
+        bottom.add(buttonPanel, BorderLayout.EAST);
+
+        pane.add(bottom, BorderLayout.SOUTH);
+
+        timer = new Timer(FLUSH_MSEC, new ActionListener() {
+            public void actionPerformed(ActionEvent e) {
+                flush();
+            }
+        });
+    }//end init
+
+    /**
+     * Stop the running search, keeping what it found
+     */
+    private void stop() {
+        if (search != null) {
+            search.cancel();
+        }
+    }
+
+}//end class FindInFilesDialog
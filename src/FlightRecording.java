@@ -0,0 +1,89 @@
+/*
+ * Copyright (c) 2022 by William F. Gilreath (will@zepton.xyz)
+ * All rights reserved.
+ *
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 3 as published
+ * by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 3 for more details. The license is available at the following
+ * link:  https://www.gnu.org/licenses/gpl-3.0.txt.
+ *
+ */
+package xyz.zepton.zeptor.metrics;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.text.ParseException;
+
+import jdk.jfr.Configuration;
+import jdk.jfr.Event;
+import jdk.jfr.Recording;
+
+/**
+ * The JFR recording started and stopped from the Help menu, with the
+ * profile settings of the JDK and every ZeptorEvents event.
+ */
+public final class FlightRecording {
+
+    /**
+     * the recording, null if none is running
+     */
+    private static Recording recording;
+
+    /**
+     * @return whether a recording is running
+     */
+    public static synchronized boolean isRecording() {
+        return recording != null;
+    }
+
+    /**
+     * Start a recording, if none is running
+     *
+     * @throws IOException if the profile settings cannot be read
+     * @throws ParseException if the profile settings cannot be parsed
+     */
+    public static synchronized void start() throws IOException, ParseException {
+        if (recording != null) {
+            return;
+        }
+        Recording r = new Recording(Configuration.getConfiguration("profile"));
+        r.setName("Zeptor");
+        r.setToDisk(true);
+        for (Class<?> event : ZeptorEvents.class.getClasses()) {
+            r.enable(event.asSubclass(Event.class));
+        }
+        r.start();
+        recording = r;
+    }//end start
+
+    /**
+     * Stop the recording and write it
+     *
+     * @param file the .jfr file to write
+     * @throws IOException if the file cannot be written
+     */
+    public static synchronized void stop(final Path file) throws IOException {
+        if (recording == null) {
+            return;
+        }
+        Recording r = recording;
+        recording = null;
+        try {
+            r.stop();
+            r.dump(file);
+        } finally {
+            r.close();
+        }
+    }//end stop
+
+    private FlightRecording() {
+    }
+
+}//end class FlightRecording
@@ -0,0 +1,49 @@
+/*
+ * Copyright (c) 2022 by William F. Gilreath (will@zepton.xyz)
+ * All rights reserved.
+ *
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 3 as published
+ * by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 3 for more details. The license is available at the following
+ * link:  https://www.gnu.org/licenses/gpl-3.0.txt.
+ *
+ */
+package xyz.zepton.zeptor.metrics;
+
+import java.util.function.LongSupplier;
+
+/**
+ * A value read when it is asked for
+ */
+public final class Gauge implements GaugeMBean {
+
+    /**
+     * reads the value
+     */
+    private final LongSupplier supplier;
+
+    Gauge(final LongSupplier s) {
+        supplier = s;
+    }
+
+    /**
+     * As defined in GaugeMBean
+     */
+    @Override
+    public long getValue() {
+        return supplier.getAsLong();
+    }
+
+    @Override
+    public String toString() {
+        return "value=" + getValue();
+    }
+
+}//end class Gauge
@@ -0,0 +1,50 @@
+/*
+ * Copyright (c) 2022 by William F. Gilreath (will@zepton.xyz)
+ * All rights reserved.
+ *
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 3 as published
+ * by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 3 for more details. The license is available at the following
+ * link:  https://www.gnu.org/licenses/gpl-3.0.txt.
+ *
+ */
+package xyz.zepton.zeptor.metrics;
+
+/**
+ * The management interface of a LatencyHistogram, as jconsole shows it, the
+ * latencies in milliseconds
+ */
+public interface LatencyHistogramMBean {
+
+    /**
+     * @return the number of latencies recorded
+     */
+    long getCount();
+
+    double getMaxMillis();
+
+    double getMeanMillis();
+
+    double getMinMillis();
+
+    double getP50Millis();
+
+    double getP90Millis();
+
+    double getP99Millis();
+
+    double getP999Millis();
+
+    /**
+     * forget the latencies recorded
+     */
+    void reset();
+
+}//end interface LatencyHistogramMBean
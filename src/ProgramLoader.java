@@ -0,0 +1,343 @@
+/*
+ * Copyright (c) 2022 by William F. Gilreath (will@zepton.xyz)
+ * All rights reserved.
+ *
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 3 as published
+ * by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 3 for more details. The license is available at the following
+ * link:  https://www.gnu.org/licenses/gpl-3.0.txt.
+ *
+ */
+package xyz.zepton.zeptor.run;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * Loads the classes of a compiled ZeptoN program from its output directory,
+ * once per run, so every run sees the classes just compiled.
+ * <p>
+ * The classes of the directory are loaded here before the parent is asked,
+ * and each call of System.exit, Runtime.exit or Runtime.halt in them is
+ * redirected to InProcessProgram, which ends the run rather than the editor.
+ * The calls are redirected in the constant pool and, for the Runtime methods,
+ * by turning the invokevirtual into an invokestatic of the same length, so
+ * no other byte of the code moves.
+ */
+final class ProgramLoader extends ClassLoader {
+
+    /**
+     * the class the exits are redirected to
+     */
+    private static final String EXIT_CLASS = InProcessProgram.class.getName().replace('.', '/');
+
+    /**
+     * the length of each instruction, 0 for the variable length ones
+     */
+    private static final byte[] LENGTH = new byte[256];
+
+    static {
+        Arrays.fill(LENGTH, (byte) 1);
+        for (int op : new int[]{0x10, 0x12, 0x15, 0x16, 0x17, 0x18, 0x19, 0x36, 0x37, 0x38, 0x39, 0x3a, 0xa9, 0xbc}) {
+            LENGTH[op] = 2;
+        }
+        for (int op = 0x99; op <= 0xa8; op++) { //the branches
+            LENGTH[op] = 3;
+        }
+        for (int op = 0xb2; op <= 0xb8; op++) { //the field and method instructions
+            LENGTH[op] = 3;
+        }
+        for (int op : new int[]{0x11, 0x13, 0x14, 0x84, 0xbb, 0xbd, 0xc0, 0xc1, 0xc6, 0xc7}) {
+            LENGTH[op] = 3;
+        }
+        LENGTH[0xc5] = 4;
+        for (int op : new int[]{0xb9, 0xba, 0xc8, 0xc9}) {
+            LENGTH[op] = 5;
+        }
+        LENGTH[0xaa] = 0; //tableswitch
+        LENGTH[0xab] = 0; //lookupswitch
+        LENGTH[0xc4] = 0; //wide
+    }
+
+    /**
+     * the output directory of the program
+     */
+    private final File dir;
+
+    /**
+     * Constructor
+     *
+     * @param d the output directory of the program
+     * @param parent the loader of everything else
+     */
+    ProgramLoader(final File d, final ClassLoader parent) {
+        super("ZeptoN program", parent);
+        dir = d;
+    }
+
+    /**
+     * @return the class file of a class in the output directory
+     */
+    private File classFile(final String name) {
+        return new File(dir, name.replace('.', File.separatorChar) + ".class");
+    }
+
+    /**
+     * As defined in ClassLoader
+     */
+    @Override
+    protected URL findResource(final String name) {
+        File f = new File(dir, name);
+        try {
+            return f.isFile() ? f.toURI().toURL() : null;
+        } catch (MalformedURLException ex) {
+            return null;
+        }
+    }
+
+    /**
+     * As defined in ClassLoader, the classes of the output directory first
+     */
+    @Override
+    protected Class<?> loadClass(final String name, final boolean resolve) throws ClassNotFoundException {
+        synchronized (getClassLoadingLock(name)) {
+            Class<?> c = findLoadedClass(name);
+            if (c == null) {
+                File f = classFile(name);
+                if (!f.isFile()) {
+                    return super.loadClass(name, resolve);
+                }
+                try {
+                    byte[] b = patch(Files.readAllBytes(f.toPath()));
+                    c = defineClass(name, b, 0, b.length);
+                } catch (IOException ex) {
+                    throw new ClassNotFoundException(name, ex);
+                }
+            }
+            if (resolve) {
+                resolveClass(c);
+            }
+            return c;
+        }
+    }//end loadClass
+
+    /**
+     * @return the length of the instruction at pc
+     */
+    private static int instructionLength(final byte[] b, final int pc, final int codeStart) {
+        int op = b[pc] & 0xff;
+        if (LENGTH[op] != 0) {
+            return LENGTH[op];
+        }
+        if (op == 0xc4) {
+            return (b[pc + 1] & 0xff) == 0x84 ? 6 : 4; //wide iinc, or a wide load or store
+        }
+        int p = codeStart + ((pc - codeStart + 4) & ~3); //the operands are 4 byte aligned
+        ByteBuffer in = ByteBuffer.wrap(b);
+        if (op == 0xaa) {
+            int low = in.getInt(p + 4);
+            int high = in.getInt(p + 8);
+            return p - pc + 12 + 4 * (high - low + 1);
+        }
+        return p - pc + 8 + 8 * in.getInt(p + 4);
+    }//end instructionLength
+
+    /**
+     * @return whether a constant is the UTF8 string s
+     */
+    private static boolean isUtf8(final byte[] b, final int[] offset, final int index, final String s) {
+        int at = offset[index];
+        if (b[at] != 1 || ((b[at + 1] & 0xff) << 8 | (b[at + 2] & 0xff)) != s.length()) {
+            return false;
+        }
+        for (int i = 0; i < s.length(); i++) {
+            if (b[at + 3 + i] != s.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }//end isUtf8
+
+    /**
+     * Redirect the exits of a class to InProcessProgram
+     *
+     * @param original the class file
+     * @return the class file with its exits redirected, the original if it
+     * has none
+     */
+    static byte[] patch(final byte[] original) {
+        byte[] b = original.clone();
+        ByteBuffer in = ByteBuffer.wrap(b);
+        in.position(8);
+        int count = in.getShort() & 0xffff;
+        int[] offset = new int[count];
+        for (int i = 1; i < count; i++) {
+            offset[i] = in.position();
+            switch (in.get()) {
+                case 1: //Utf8
+                    in.position(in.position() + 2 + (in.getShort(in.position()) & 0xffff));
+                    break;
+                case 5: //Long
+                case 6: //Double
+                    in.position(in.position() + 8);
+                    i++;
+                    break;
+                case 7: //Class
+                case 8: //String
+                case 16: //MethodType
+                case 19: //Module
+                case 20: //Package
+                    in.position(in.position() + 2);
+                    break;
+                case 15: //MethodHandle
+                    in.position(in.position() + 3);
+                    break;
+                default: //Integer, Float, the references, NameAndType, Dynamic, InvokeDynamic
+                    in.position(in.position() + 4);
+            }
+        }
+        int poolEnd = in.position();
+
+        //the Methodrefs of the exits
+        boolean found = false;
+        HashMap<Integer, String> runtimeExits = new HashMap<>();
+        for (int i = 1; i < count; i++) {
+            int at = offset[i];
+            if (b[at] != 10) {
+                continue;
+            }
+            int owner = offset[in.getShort(at + 1) & 0xffff];
+            int type = offset[in.getShort(at + 3) & 0xffff];
+            int ownerName = in.getShort(owner + 1) & 0xffff;
+            int name = in.getShort(type + 1) & 0xffff;
+            if (!isUtf8(b, offset, in.getShort(type + 3) & 0xffff, "(I)V")) {
+                continue;
+            }
+            if (isUtf8(b, offset, ownerName, "java/lang/System") && isUtf8(b, offset, name, "exit")) {
+                found = true;
+                in.putShort(at + 1, (short) count); //the new Class, the call is static either way
+            } else if (isUtf8(b, offset, ownerName, "java/lang/Runtime")
+                    && (isUtf8(b, offset, name, "exit") || isUtf8(b, offset, name, "halt"))) {
+                found = true;
+                runtimeExits.put(i, isUtf8(b, offset, name, "exit") ? "exit" : "halt");
+            }
+        }
+        if (!found) {
+            return original;
+        }
+
+        //the new constants, a Class for InProcessProgram and a static Methodref for each Runtime exit
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream pool = new DataOutputStream(bytes);
+        HashMap<Integer, Integer> redirect = new HashMap<>();
+        int next = count;
+        try {
+            pool.writeByte(7);
+            pool.writeShort(next + 1);
+            pool.writeByte(1);
+            pool.writeUTF(EXIT_CLASS);
+            int exitClass = next;
+            next += 2;
+            if (!runtimeExits.isEmpty()) {
+                int descriptor = next++;
+                pool.writeByte(1);
+                pool.writeUTF("(Ljava/lang/Runtime;I)V");
+                for (HashMap.Entry<Integer, String> e : runtimeExits.entrySet()) {
+                    pool.writeByte(1);
+                    pool.writeUTF(e.getValue());
+                    pool.writeByte(12);
+                    pool.writeShort(next);
+                    pool.writeShort(descriptor);
+                    pool.writeByte(10);
+                    pool.writeShort(exitClass);
+                    pool.writeShort(next + 1);
+                    redirect.put(e.getKey(), next + 2);
+                    next += 3;
+                }
+            }
+        } catch (IOException ex) {
+            throw new IllegalStateException(ex); //not from a byte array
+        }
+        if (next > 0xffff) {
+            return original;
+        }
+        in.putShort(8, (short) next);
+
+        if (!redirect.isEmpty()) {
+            redirectCalls(b, in, offset, poolEnd, redirect);
+        }
+
+        byte[] patched = new byte[b.length + bytes.size()];
+        System.arraycopy(b, 0, patched, 0, poolEnd);
+        System.arraycopy(bytes.toByteArray(), 0, patched, poolEnd, bytes.size());
+        System.arraycopy(b, poolEnd, patched, poolEnd + bytes.size(), b.length - poolEnd);
+        return patched;
+    }//end patch
+
+    /**
+     * turn each invokevirtual of a Runtime exit into an invokestatic of its
+     * redirect
+     */
+    private static void redirectCalls(final byte[] b, final ByteBuffer in, final int[] offset, final int poolEnd,
+            final HashMap<Integer, Integer> redirect) {
+        int p = poolEnd + 6; //access flags, this class, super class
+        p += 2 + 2 * (in.getShort(p) & 0xffff); //interfaces
+        p = skipMembers(in, p); //fields
+        int methods = in.getShort(p) & 0xffff;
+        p += 2;
+        for (int m = 0; m < methods; m++) {
+            int attributes = in.getShort(p + 6) & 0xffff;
+            p += 8;
+            for (int a = 0; a < attributes; a++) {
+                int length = in.getInt(p + 2);
+                int attribute = p + 6;
+                if (isUtf8(b, offset, in.getShort(p) & 0xffff, "Code")) {
+                    int codeStart = attribute + 8;
+                    int codeEnd = codeStart + in.getInt(attribute + 4);
+                    for (int pc = codeStart; pc < codeEnd; pc += instructionLength(b, pc, codeStart)) {
+                        if ((b[pc] & 0xff) == 0xb6) {
+                            Integer target = redirect.get(in.getShort(pc + 1) & 0xffff);
+                            if (target != null) {
+                                b[pc] = (byte) 0xb8;
+                                in.putShort(pc + 1, (short) (int) target);
+                            }
+                        }
+                    }
+                }
+                p = attribute + length;
+            }
+        }
+    }//end redirectCalls
+
+    /**
+     * @return the position after the fields or methods at p
+     */
+    private static int skipMembers(final ByteBuffer in, int p) {
+        int members = in.getShort(p) & 0xffff;
+        p += 2;
+        for (int m = 0; m < members; m++) {
+            int attributes = in.getShort(p + 6) & 0xffff;
+            p += 8;
+            for (int a = 0; a < attributes; a++) {
+                p += 6 + in.getInt(p + 2);
+            }
+        }
+        return p;
+    }//end skipMembers
+
+}//end class ProgramLoader
@@ -17,18 +17,32 @@
  */
 package xyz.zepton.zeptor.text;
 
+import java.awt.AWTEvent;
 import java.awt.Color;
+import java.awt.EventQueue;
+import java.awt.event.KeyEvent;
 import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.concurrent.TimeUnit;
 
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.UndoableEditEvent;
 import javax.swing.text.AttributeSet;
 import javax.swing.text.BadLocationException;
 import javax.swing.text.DefaultStyledDocument;
+import javax.swing.text.Element;
+import javax.swing.text.SimpleAttributeSet;
 import javax.swing.text.Style;
 import javax.swing.text.StyleConstants;
 import javax.swing.text.StyleContext;
+import javax.swing.undo.CompoundEdit;
+import javax.swing.undo.UndoableEdit;
 
 import xyz.zepton.zeptor.editor.EditorOptions;
 import xyz.zepton.zeptor.log.Logger;
+import xyz.zepton.zeptor.metrics.LatencyHistogram;
+import xyz.zepton.zeptor.metrics.Metrics;
+import xyz.zepton.zeptor.metrics.ZeptorEvents;
 import xyz.zepton.zeptor.syntax.Syntax;
 
 /**
@@ -39,7 +53,60 @@ import xyz.zepton.zeptor.syntax.Syntax;
  */
 public class ProgrammingDocument extends DefaultStyledDocument {
 
+    /**
+     * The edits of one replaceRange, undone and redone together
+     */
+    public static final class BatchEdit extends CompoundEdit {
+
+        private static final long serialVersionUID = -2745893090263617457L;
+
+        /**
+         * the number of characters removed and inserted
+         */
+        private int length;
+
+        @Override
+        public boolean addEdit(UndoableEdit anEdit) {
+            if (anEdit instanceof DocumentEvent) {
+                length += ((DocumentEvent) anEdit).getLength();
+            }
+            return super.addEdit(anEdit);
+        }
+
+        /**
+         * @return the number of characters removed and inserted
+         */
+        public int getLength() {
+            return length;
+        }
+
+        /**
+         * As defined in CompoundEdit, its own name rather than that of its
+         * last edit
+         */
+        @Override
+        public String getPresentationName() {
+            return "replacement";
+        }
+    }//end class BatchEdit
+
+    /**
+     * the bytes of an element of the document, its attributes included, about
+     */
+    private static final int ELEMENT_BYTES = 160;
+    /**
+     * the time to highlight the lines of an edit
+     */
+    private static final LatencyHistogram HIGHLIGHT_TIME = Metrics.histogram("highlight.time");
+    /**
+     * the time from a keystroke to its edit highlighted
+     */
+    private static final LatencyHistogram KEYSTROKE_TO_HIGHLIGHT = Metrics.histogram("highlight.keystrokeLatency");
     private static final long serialVersionUID = 5610879720838024528L;
+    /**
+     * the edit being built by replaceRange, null if not in one
+     */
+    private BatchEdit batchEdit;
     /**
      * the end of block comment string
      */
@@ -80,6 +147,15 @@ public class ProgrammingDocument extends DefaultStyledDocument {
      * wether to highlight in colour
      */
     private boolean colourHighlight;
+    /**
+     * the words offered for completion, fed the identifiers highlighted
+     */
+    private CompletionTrie completions;
+    /**
+     * the end of the edit being highlighted, -1 if none. The word there is
+     * still being typed, so it is not offered for completion yet.
+     */
+    private int editEnd = -1;
     /**
      * Style for hex
      */
@@ -136,6 +212,11 @@ public class ProgrammingDocument extends DefaultStyledDocument {
      * the editor options
      */
     private EditorOptions options;
+    /**
+     * the attributes that resolve to each style, so styled text follows its
+     * style as the options change it, rather than keeping a copy of it
+     */
+    private final IdentityHashMap<Style, AttributeSet> references = new IdentityHashMap<>();
     /**
      * Style for reserved word
      */
@@ -231,13 +312,35 @@ public class ProgrammingDocument extends DefaultStyledDocument {
             end = getLinePos(line + 1);
         }
         try {
-            setCharacterAttributes(start, end - start, normalStyle, true);
+            setStyle(start, end - start, normalStyle, true);
             refresh(start, end - 1);
         } catch (BadLocationException ex) {
             Logger.LOG.logTrap(ex);
         }
     }
 
+    /**
+     * The heap the document uses, estimated from its text, its copies, its
+     * lines and its elements
+     *
+     * @return the bytes used, about
+     */
+    public long estimateHeapBytes() {
+        readLock();
+        try {
+            long chars = getLength();
+            long elements = 0;
+            Element root = getDefaultRootElement();
+            for (int i = 0; i < root.getElementCount(); i++) {
+                elements += 1 + root.getElement(i).getElementCount();
+            }
+            //the content, the text and the buffer hold the characters, 2 bytes each
+            return 6 * chars + 20L * newlines.size() + ELEMENT_BYTES * elements;
+        } finally {
+            readUnlock();
+        }
+    }
+
     /**
      * find the search string in the text
      *
@@ -255,6 +358,13 @@ public class ProgrammingDocument extends DefaultStyledDocument {
         }
     }
 
+    /**
+     * @return the words offered for completion
+     */
+    CompletionTrie getCompletions() {
+        return completions;
+    }
+
     /**
      * @param pos the position in the text
      * @return the columno
@@ -388,7 +498,7 @@ public class ProgrammingDocument extends DefaultStyledDocument {
         unhighlight();
         highlighted = getLineNo(start);
         ;
-        setCharacterAttributes(start, end - start, highlightStyle, true);
+        setStyle(start, end - start, highlightStyle, true);
     }
 
     /**
@@ -402,24 +512,27 @@ public class ProgrammingDocument extends DefaultStyledDocument {
 
         ////System.out.println("Highlighting = "+word);
         if (syntax.isKey(word)) {
-            setCharacterAttributes(offs, word.length(), keyStyle, false);
+            setStyle(offs, word.length(), keyStyle, false);
         } else if (syntax.isReserved(word)) {
-            setCharacterAttributes(offs, word.length(), reservedStyle, false);
+            setStyle(offs, word.length(), reservedStyle, false);
         } else if (syntax.isFloat(word))//need to check for float first or 0.0123 will have 0123 highlight as octal
         {
-            setCharacterAttributes(offs, word.length(), numberStyle, false);
+            setStyle(offs, word.length(), numberStyle, false);
         } else if (syntax.isOperator(word))//need to check operator before number or . will be highlighted as number
         {
-            setCharacterAttributes(offs, word.length(), operatorStyle, false);
+            setStyle(offs, word.length(), operatorStyle, false);
         } else if (syntax.isHex(word)) {
-            setCharacterAttributes(offs, word.length(), hexStyle, false);
+            setStyle(offs, word.length(), hexStyle, false);
         } else if (syntax.isOctal(word))//need to check octal first before number so taht 012 will be octal and not number
         {
-            setCharacterAttributes(offs, word.length(), octalStyle, false);
+            setStyle(offs, word.length(), octalStyle, false);
         } else if (syntax.isNumber(word)) {
-            setCharacterAttributes(offs, word.length(), numberStyle, false);
+            setStyle(offs, word.length(), numberStyle, false);
         } else {
-            setCharacterAttributes(offs, word.length(), normalStyle, false);
+            setStyle(offs, word.length(), normalStyle, false);
+            if (editEnd < offs || editEnd > offs + word.length()) {
+                completions.add(word);
+            }
         }
     }
 
@@ -465,6 +578,13 @@ public class ProgrammingDocument extends DefaultStyledDocument {
 
         //highlight style
         highlightStyle = addStyle("highlight", normalStyle);
+
+        for (Style style : new Style[]{normalStyle, keyStyle, reservedStyle, lineCommentStyle, blockCommentStyle,
+            numberStyle, hexStyle, octalStyle, stringStyle, characterStyle, operatorStyle, breakStyle, highlightStyle}) {
+            SimpleAttributeSet reference = new SimpleAttributeSet();
+            reference.setResolveParent(style);
+            references.put(style, reference);
+        }
     }
 
     /**
@@ -498,7 +618,7 @@ public class ProgrammingDocument extends DefaultStyledDocument {
         str = tempStr.toString();
         StringBuilder b;
         //check if it is inserting only a new line
-        if (str.equals("\n")) {
+        if (str.equals("\n") && batchEdit == null) {
             l = getLength();
             b = new StringBuilder(getText(0, l));
             int previous = 0;//the previous new line
@@ -529,7 +649,13 @@ public class ProgrammingDocument extends DefaultStyledDocument {
                 str = str + ' ';
             }
         }
-        super.insertString(offs, str, normalStyle);
+        super.insertString(offs, str, references.get(normalStyle));
+
+        if (batchEdit != null) {
+            //replaceRange updates the text and refreshes once at the end
+            addNewlines(offs, str);
+            return;
+        }
 
         //update these attributes so that other functions can use them
         length = getLength();
@@ -562,10 +688,56 @@ public class ProgrammingDocument extends DefaultStyledDocument {
         } catch (ArrayIndexOutOfBoundsException ex) {
             Logger.LOG.logTrap(ex);
         } finally {
-            refresh(startPos, endPos);
+            editEnd = offs + str.length();
+            refreshEdit(startPos, endPos);
+            editEnd = -1;
         }
     }//end insertString
 
+    /**
+     * Collect the edits of a replaceRange into one edit
+     *
+     * @param e the undoable edit event
+     */
+    @Override
+    protected void fireUndoableEditUpdate(UndoableEditEvent e) {
+        if (batchEdit != null) {
+            batchEdit.addEdit(e.getEdit());
+        } else {
+            super.fireUndoableEditUpdate(e);
+        }
+    }
+
+    /**
+     * Replace a range of text as one undoable edit, highlighting once from
+     * the first changed line instead of once per remove and insert
+     *
+     * @param str the text to insert
+     * @param start the start of the range
+     * @param end the end of the range, exclusive
+     */
+    public void replaceRange(String str, int start, int end) throws BadLocationException {
+        BatchEdit edit = new BatchEdit();
+        batchEdit = edit;
+        try {
+            remove(start, end - start);
+            insertString(start, str, null);
+        } finally {
+            batchEdit = null;
+            edit.end();
+            if (edit.getLength() > 0) {
+                super.fireUndoableEditUpdate(new UndoableEditEvent(this, edit));
+            }
+        }
+
+        //update these attributes so that other functions can use them
+        length = getLength();
+        text = getText(0, length);
+        buffer = text.toCharArray();
+
+        refresh(getLinePos(getLineNo(start)), length - 1);
+    }//end replaceRange
+
     /**
      * refresh the document
      */
@@ -585,13 +757,31 @@ public class ProgrammingDocument extends DefaultStyledDocument {
      * @param endPos the end position to start refreshing
      */
     private void refresh(int startPos, int endPos) throws BadLocationException {
+        ZeptorEvents.Highlight event = new ZeptorEvents.Highlight();
+        event.begin();
+        refreshStyles(startPos, endPos);
+        if (event.shouldCommit()) {
+            event.startLine = getLineNo(startPos);
+            event.endLine = getLineNo(endPos);
+            event.chars = endPos - startPos + 1;
+            event.commit();
+        }
+    }
+
+    /**
+     * restyle the document from startPos to endPos
+     *
+     * @param startPos the start position to start refreshing
+     * @param endPos the end position to start refreshing
+     */
+    private void refreshStyles(int startPos, int endPos) throws BadLocationException {
         if (startPos > endPos) { //nothing to do
             return;
         }
         boolean previousBlock = false;//true if previous style if block
         if (startPos > 0) {
             AttributeSet s = getCharacterElement(startPos - 1).getAttributes();
-            if (s.isEqual(blockCommentStyle)) {
+            if (s.getResolveParent() == blockCommentStyle) {
                 previousBlock = true;
             }
         }
@@ -610,10 +800,10 @@ public class ProgrammingDocument extends DefaultStyledDocument {
             if (a == -1) {
                 //cannot find the end of block comment
                 //update till the end pos as block comment
-                setCharacterAttributes(startPos, endPos - startPos + 1, blockCommentStyle, false);
+                setStyle(startPos, endPos - startPos + 1, blockCommentStyle, false);
                 temp = endPos + 1;//exit loop
             } else {
-                setCharacterAttributes(startPos, a - startPos + blockCommentTrailerSize,
+                setStyle(startPos, a - startPos + blockCommentTrailerSize,
                         blockCommentStyle, false);
                 temp = a + blockCommentTrailerSize;
 
@@ -664,10 +854,10 @@ public class ProgrammingDocument extends DefaultStyledDocument {
                     if (a == -1) {
                         //cannot find the end of character
                         //update till the end as end of character
-                        setCharacterAttributes(min, endPos - min + 1, characterStyle, false);
+                        setStyle(min, endPos - min + 1, characterStyle, false);
                         temp = endPos + 1;//exit loop
                     } else {
-                        setCharacterAttributes(min, a - min + 1, characterStyle, false);
+                        setStyle(min, a - min + 1, characterStyle, false);
                         temp = a + 1;
                     }
                 } else if (min == line) {
@@ -677,10 +867,10 @@ public class ProgrammingDocument extends DefaultStyledDocument {
                     if (a == -1) {
                         //cannot find the end of character
                         //update till the end as end of character
-                        setCharacterAttributes(min, endPos - min + 1, lineCommentStyle, false);
+                        setStyle(min, endPos - min + 1, lineCommentStyle, false);
                         temp = endPos + 1;//exit loop
                     } else {
-                        setCharacterAttributes(min, a - min + 1, lineCommentStyle, false);
+                        setStyle(min, a - min + 1, lineCommentStyle, false);
                         temp = a + 1;
                     }
                 } else if (min == string) {
@@ -691,24 +881,24 @@ public class ProgrammingDocument extends DefaultStyledDocument {
                     if (a == -1) {
                         //cannot find the end of character
                         //update till the end as end of character
-                        setCharacterAttributes(min, endPos - min + 1, stringStyle, false);
+                        setStyle(min, endPos - min + 1, stringStyle, false);
                         temp = endPos + 1;//exit loop
                     } else {
-                        setCharacterAttributes(min, a - min + 1, stringStyle, false);
+                        setStyle(min, a - min + 1, stringStyle, false);
                         temp = a + 1;
                     }
                 } else {
                     //check if it is already highlighted as block comment
                     //this is possible as usually refresh a line
                     AttributeSet s = getCharacterElement(min).getAttributes();
-                    if (s.isEqual(blockCommentStyle)) {
+                    if (s.getResolveParent() == blockCommentStyle) {
                         //alread highlight as block comment, can skip all the steps in else
                         //do the same as previous is block
 
                         temp = endPos + 1;//end this iteraction
                         ////System.out.println("already highlighted as block!");
                         ////System.out.println("Temp = "+temp);
-                        refresh(min + blockCommentHeaderSize, endPos);
+                        refreshStyles(min + blockCommentHeaderSize, endPos);
                     } else {
                         temp = min + blockCommentHeaderSize;//since block header is size 2
                         //find the end of blocks comment
@@ -718,10 +908,10 @@ public class ProgrammingDocument extends DefaultStyledDocument {
                         if (a == -1) {
                             //cannot find the end of character
                             //update till the end as end of character
-                            setCharacterAttributes(min, length, blockCommentStyle, false);
+                            setStyle(min, length, blockCommentStyle, false);
                             temp = length;//exit loop
                         } else {
-                            setCharacterAttributes(min, a - min + blockCommentTrailerSize,
+                            setStyle(min, a - min + blockCommentTrailerSize,
                                     blockCommentStyle, false);
                             temp = a + blockCommentTrailerSize;
                         }
@@ -731,6 +921,25 @@ public class ProgrammingDocument extends DefaultStyledDocument {
         }
     }
 
+    /**
+     * Highlight the lines of an edit, recording how long it took, and how
+     * long since the keystroke that made the edit
+     *
+     * @param startPos the start position to update
+     * @param endPos the end position to update
+     */
+    private void refreshEdit(int startPos, int endPos) throws BadLocationException {
+        long begin = System.nanoTime();
+        refresh(startPos, endPos);
+        HIGHLIGHT_TIME.recordSince(begin);
+
+        AWTEvent event = EventQueue.getCurrentEvent(); //null off the EDT
+        if (event instanceof KeyEvent) {
+            long sinceKey = System.currentTimeMillis() - ((KeyEvent) event).getWhen();
+            KEYSTROKE_TO_HIGHLIGHT.record(TimeUnit.MILLISECONDS.toNanos(sinceKey));
+        }
+    }
+
     /**
      * refresh the document words from startPos to endPos those part of the
      * document that was not covered by comment, string and characters
@@ -800,6 +1009,9 @@ public class ProgrammingDocument extends DefaultStyledDocument {
         }
         super.remove(offs, len);
         removeNewlines(offs, len);
+        if (batchEdit != null) {
+            return;
+        }
         //update these attributes so that other functions can use them
         length = getLength();
         if (length == 0) {
@@ -832,7 +1044,9 @@ public class ProgrammingDocument extends DefaultStyledDocument {
             Logger.LOG.logTrap(ex);
 
         } finally {
-            refresh(startPos, endPos);
+            editEnd = offs;
+            refreshEdit(startPos, endPos);
+            editEnd = -1;
         }//end try
 
     }//remove
@@ -1041,7 +1255,23 @@ public class ProgrammingDocument extends DefaultStyledDocument {
         if (line < totalLines) {
             end = getLinePos(line + 1);
         }
-        setCharacterAttributes(start, end - start, style, false);
+        if (style.isDefined(StyleConstants.Background)) { //only the background, the text keeps its style
+            SimpleAttributeSet background = new SimpleAttributeSet();
+            StyleConstants.setBackground(background, StyleConstants.getBackground(style));
+            setCharacterAttributes(start, end - start, background, false);
+        }
+    }
+
+    /**
+     * style text with a style
+     *
+     * @param offs the start of the text
+     * @param len the length of the text
+     * @param style the style
+     * @param replace whether to replace the attributes of the text
+     */
+    private void setStyle(int offs, int len, Style style, boolean replace) {
+        setCharacterAttributes(offs, len, references.get(style), replace);
     }
 
     /**
@@ -1051,6 +1281,7 @@ public class ProgrammingDocument extends DefaultStyledDocument {
      */
     public void setSyntax(Syntax s) {
         syntax = s;
+        completions = CompletionTrie.forSyntax(s);
         lineCommentHeaderSize = syntax.getLineCommentHeaderSize();
         blockCommentHeaderSize = syntax.getBlockCommentHeaderSize();
         blockCommentTrailerSize = syntax.getBlockCommentTrailerSize();
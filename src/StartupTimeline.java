@@ -0,0 +1,68 @@
+/*
+ * Copyright (c) 2022 by William F. Gilreath (will@zepton.xyz)
+ * All rights reserved.
+ *
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 3 as published
+ * by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 3 for more details. The license is available at the following
+ * link:  https://www.gnu.org/licenses/gpl-3.0.txt.
+ *
+ */
+package xyz.zepton.zeptor.log;
+
+import java.time.Instant;
+
+/**
+ * The startup timeline of the editor, the time from the start of the JVM to
+ * each stage of startup, logged on each launch so a slower startup shows.
+ * <p>
+ * The stages are marked as they are reached and logged as one entry, so the
+ * stages before the frame is visible are one entry, and the first tab made
+ * editable, which may wait for the user, another.
+ */
+public final class StartupTimeline {
+
+    /**
+     * the start of the JVM, in milliseconds since the epoch
+     */
+    private static final long START_MILLIS = ProcessHandle.current().info().startInstant()
+            .orElseGet(Instant::now).toEpochMilli();
+
+    /**
+     * the stages marked and not yet logged
+     */
+    private static final StringBuilder stages = new StringBuilder();
+
+    /**
+     * Mark a stage of startup as reached now
+     *
+     * @param stage the name of the stage
+     */
+    public static synchronized void mark(final String stage) {
+        if (stages.length() > 0) {
+            stages.append(", ");
+        }
+        stages.append(stage).append(' ').append(System.currentTimeMillis() - START_MILLIS).append(" ms");
+    }//end mark
+
+    /**
+     * Log the stages marked since the last entry
+     */
+    public static synchronized void log() {
+        if (stages.length() > 0) {
+            Logger.LOG.logText("Startup from JVM start: " + stages);
+            stages.setLength(0);
+        }
+    }//end log
+
+    private StartupTimeline() {
+    }
+
+}//end class StartupTimeline
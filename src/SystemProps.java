@@ -71,6 +71,10 @@ public class SystemProps implements Runnable, ActionListener {
             model.addRow(row);
         }
 
+        for (String[] row : EdtWatchdog.getFreezeRows()) {
+            model.addRow(row);
+        }
+
         return model;
     }
 
@@ -0,0 +1,326 @@
+/*
+ * Copyright (c) 2022 by William F. Gilreath (will@zepton.xyz)
+ * All rights reserved.
+ *
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 3 as published
+ * by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 3 for more details. The license is available at the following
+ * link:  https://www.gnu.org/licenses/gpl-3.0.txt.
+ *
+ */
+package xyz.zepton.zeptor.text;
+
+import java.util.ArrayList;
+
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Document;
+import javax.swing.text.Segment;
+
+/**
+ * A search for one query, compiled once and reused for every Find Next.
+ * <p>
+ * Uses Boyer-Moore-Horspool. For a case insensitive search the pattern and
+ * the text are folded a character at a time through a table, so neither the
+ * document nor the pattern is ever upper-cased as a whole.
+ *
+ * @see MyTextUtil
+ */
+public final class TextSearch {
+
+    /**
+     * The text of a document read in place as a character sequence. The
+     * segments are the document's own storage, usually the two sides of the
+     * gap, so nothing is copied.
+     */
+    public static final class DocumentText implements CharSequence {
+
+        private final char[][] arrays;
+        private final int[] offsets;
+        private final int[] starts;
+        private final int length;
+
+        private DocumentText(final ArrayList<Segment> segments, final int length) {
+            int n = segments.size();
+            this.arrays = new char[n][];
+            this.offsets = new int[n];
+            this.starts = new int[n + 1];
+            int start = 0;
+            for (int i = 0; i < n; i++) {
+                Segment s = segments.get(i);
+                arrays[i] = s.array;
+                offsets[i] = s.offset;
+                starts[i] = start;
+                start += s.count;
+            }//end for
+            starts[n] = start;
+            this.length = length;
+        }
+
+        @Override
+        public char charAt(final int index) {
+            int i = 0;
+            while (index >= starts[i + 1]) {
+                i++;
+            }//end while
+            return arrays[i][offsets[i] + index - starts[i]];
+        }
+
+        @Override
+        public int length() {
+            return length;
+        }
+
+        @Override
+        public CharSequence subSequence(final int start, final int end) {
+            StringBuilder b = new StringBuilder(end - start);
+            for (int i = start; i < end; i++) {
+                b.append(charAt(i));
+            }//end for
+            return b;
+        }
+
+        @Override
+        public String toString() {
+            return subSequence(0, length).toString();
+        }
+    }//end class DocumentText
+
+    /**
+     * size of the bad character shift table, characters are hashed into it
+     */
+    private static final int SHIFT_TABLE_SIZE = 256;
+
+    /**
+     * folded case of the Latin-1 characters
+     */
+    private static final char[] FOLD = new char[256];
+
+    static {
+        for (int c = 0; c < FOLD.length; c++) {
+            FOLD[c] = foldCase((char) c);
+        }//end for
+    }
+
+    /**
+     * Compile a search
+     *
+     * @param searchText the text to find
+     * @param caseSensitive whether to be case sensitive
+     * @param whole whether to find whole words only
+     * @return the compiled search
+     */
+    public static TextSearch compile(final String searchText, final boolean caseSensitive, final boolean whole) {
+        return new TextSearch(searchText, caseSensitive, whole);
+    }
+
+    /**
+     * Read a document in place, without copying its text
+     *
+     * @param doc the document
+     * @return the text of the document
+     */
+    public static DocumentText contentOf(final Document doc) {
+        ArrayList<Segment> segments = new ArrayList<>(2);
+        int length = doc.getLength();
+        int pos = 0;
+        try {
+            while (pos < length) {
+                Segment s = new Segment();
+                s.setPartialReturn(true);
+                doc.getText(pos, length - pos, s);
+                segments.add(s);
+                pos += s.count;
+            }//end while
+        } catch (BadLocationException ex) {
+            //the document changed under us, use what was read
+            length = pos;
+        }//end try
+        return new DocumentText(segments, length);
+    }//end contentOf
+
+    private static char foldCase(final char c) {
+        return Character.toLowerCase(Character.toUpperCase(c));
+    }
+
+    /**
+     * whether to be case sensitive
+     */
+    private final boolean caseSensitive;
+
+    /**
+     * the pattern, folded if not case sensitive
+     */
+    private final char[] pattern;
+
+    /**
+     * the text being searched for
+     */
+    private final String searchText;
+
+    /**
+     * the bad character shift of each hashed character
+     */
+    private final int[] shift;
+
+    /**
+     * whether to find whole words only
+     */
+    private final boolean whole;
+
+    private TextSearch(final String searchText, final boolean caseSensitive, final boolean whole) {
+        this.searchText = searchText;
+        this.caseSensitive = caseSensitive;
+        this.whole = whole;
+
+        int m = searchText.length();
+        pattern = new char[m];
+        for (int i = 0; i < m; i++) {
+            pattern[i] = fold(searchText.charAt(i));
+        }//end for
+
+        //characters that share a slot take the smallest shift, which is safe
+        shift = new int[SHIFT_TABLE_SIZE];
+        for (int i = 0; i < SHIFT_TABLE_SIZE; i++) {
+            shift[i] = m;
+        }//end for
+        for (int i = 0; i < m - 1; i++) {
+            shift[pattern[i] & (SHIFT_TABLE_SIZE - 1)] = m - 1 - i;
+        }//end for
+    }//end constructor
+
+    /**
+     * Find the next match
+     *
+     * @param text the text to search
+     * @param start the first position a match may start at
+     * @return the position of the match, -1 if none
+     */
+    public int find(final CharSequence text, final int start) {
+        return find(text, start, text.length());
+    }
+
+    /**
+     * Find the next match that lies within a range
+     *
+     * @param text the text to search
+     * @param start the first position a match may start at
+     * @param end the position the match must end by, exclusive
+     * @return the position of the match, -1 if none
+     */
+    public int find(final CharSequence text, int start, int end) {
+        int m = pattern.length;
+        if (m == 0) {
+            return -1;
+        }//end if
+        if (start < 0) {
+            start = 0;
+        }//end if
+        if (end > text.length()) {
+            end = text.length();
+        }//end if
+
+        int last = m - 1;
+        int pos = start;
+        while (pos + m <= end) {
+            int j = last;
+            while (j >= 0 && fold(text.charAt(pos + j)) == pattern[j]) {
+                j--;
+            }//end while
+            if (j < 0 && (!whole || isWholeWord(text, pos))) {
+                return pos;
+            }//end if
+            pos += shift[fold(text.charAt(pos + last)) & (SHIFT_TABLE_SIZE - 1)];
+        }//end while
+        return -1;
+    }//end find
+
+    /**
+     * Find all the matches in a range
+     *
+     * @param text the text to search
+     * @param start the first position a match may start at
+     * @param end the position the matches must end by, exclusive
+     * @return the positions of the matches
+     */
+    public int[] findAll(final CharSequence text, final int start, final int end) {
+        int[] found = new int[16];
+        int count = 0;
+        int pos = find(text, start, end);
+        while (pos != -1) {
+            if (count == found.length) {
+                int[] grown = new int[count * 2];
+                System.arraycopy(found, 0, grown, 0, count);
+                found = grown;
+            }//end if
+            found[count++] = pos;
+            pos = find(text, pos + Math.max(1, pattern.length), end);
+        }//end while
+        int[] result = new int[count];
+        System.arraycopy(found, 0, result, 0, count);
+        return result;
+    }//end findAll
+
+    private char fold(final char c) {
+        if (caseSensitive) {
+            return c;
+        }//end if
+        return c < 256 ? FOLD[c] : foldCase(c);
+    }//end fold
+
+    /**
+     * @return the length of a match
+     */
+    public int getLength() {
+        return pattern.length;
+    }
+
+    /**
+     * @return the text being searched for
+     */
+    public String getSearchText() {
+        return searchText;
+    }
+
+    /**
+     * @return whether the search is case sensitive
+     */
+    public boolean isCaseSensitive() {
+        return caseSensitive;
+    }
+
+    /**
+     * @return whether the search finds whole words only
+     */
+    public boolean isWhole() {
+        return whole;
+    }
+
+    /**
+     * whole word means neither neighbour is a letter or a digit
+     */
+    private boolean isWholeWord(final CharSequence text, final int pos) {
+        int after = pos + pattern.length;
+        if (pos > 0 && Character.isLetterOrDigit(text.charAt(pos - 1))) {
+            return false;
+        }//end if
+        return !(after < text.length() && Character.isLetterOrDigit(text.charAt(after)));
+    }//end isWholeWord
+
+    /**
+     * @param text the text to find
+     * @param caseSens whether to be case sensitive
+     * @param wholeWord whether to find whole words only
+     * @return whether this search was compiled from the same query
+     */
+    public boolean matches(final String text, final boolean caseSens, final boolean wholeWord) {
+        return searchText.equals(text) && caseSensitive == caseSens && whole == wholeWord;
+    }
+
+}//end class TextSearch
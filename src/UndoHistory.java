@@ -0,0 +1,314 @@
+/*
+ * Copyright (c) 2022 by William F. Gilreath (will@zepton.xyz)
+ * All rights reserved.
+ *
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 3 as published
+ * by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 3 for more details. The license is available at the following
+ * link:  https://www.gnu.org/licenses/gpl-3.0.txt.
+ *
+ */
+package xyz.zepton.zeptor.text;
+
+import javax.swing.event.DocumentEvent;
+import javax.swing.text.BadLocationException;
+import javax.swing.undo.CannotRedoException;
+import javax.swing.undo.CannotUndoException;
+import javax.swing.undo.CompoundEdit;
+import javax.swing.undo.UndoManager;
+import javax.swing.undo.UndoableEdit;
+
+/**
+ * An undo manager that groups consecutive typing into one edit per word, and
+ * keeps the memory held by the history within a byte budget.
+ * <p>
+ * Each entry of the history is a group of document edits. Single characters
+ * typed one after the other, or deleted one after the other, join the open
+ * group until the caret jumps, a new word starts or the typing pauses. Pastes
+ * and other large edits are a group of their own, so undoing them costs only
+ * the size of the edit. When the estimated size of the history exceeds the
+ * budget the oldest groups are discarded.
+ */
+public class UndoHistory extends UndoManager {
+
+    /**
+     * A run of document edits undone and redone together
+     */
+    private static final class EditGroup extends CompoundEdit {
+
+        private static final long serialVersionUID = 3304215186470236553L;
+
+        /**
+         * the estimated bytes held by the edits in the group
+         */
+        private long bytes;
+        /**
+         * the last character inserted, 0 if none
+         */
+        private char lastChar;
+        /**
+         * the offset the next edit must be at to join the group
+         */
+        private int nextOffset;
+        /**
+         * the time of the last edit in the group
+         */
+        private long lastTime;
+        /**
+         * the type of the edits in the group, null if it cannot be joined
+         */
+        private DocumentEvent.EventType type;
+
+    }//end class EditGroup
+
+    /**
+     * the estimated fixed cost of one edit in bytes
+     */
+    private static final int EDIT_OVERHEAD = 128;
+
+    /**
+     * typing paused longer than this starts a new group
+     */
+    private static final long GROUP_MILLIS = 1500;
+
+    private static final long serialVersionUID = -1873307627924052816L;
+
+    /**
+     * the most bytes the history should hold
+     */
+    private long budget;
+
+    /**
+     * the estimated bytes held by the whole history
+     */
+    private long footprint;
+
+    /**
+     * the group edits are being added to, null if none is open
+     */
+    private EditGroup group;
+
+    /**
+     * Constructor
+     *
+     * @param budgetBytes the most bytes the history should hold
+     */
+    public UndoHistory(final long budgetBytes) {
+        super();
+        budget = budgetBytes;
+        footprint = 0;
+        group = null;
+        setLimit(-1); //bounded by bytes, not by count
+    }
+
+    /**
+     * Add an edit, joining it to the open group when it continues the typing
+     *
+     * @param anEdit the edit to add
+     * @return true as the edit is always taken
+     */
+    @Override
+    public synchronized boolean addEdit(final UndoableEdit anEdit) {
+
+        long now = System.currentTimeMillis();
+
+        DocumentEvent event = null;
+        String typed = null;
+        if (anEdit instanceof DocumentEvent) {
+            event = (DocumentEvent) anEdit;
+            typed = typedText(event);
+        }//end if
+
+        if (group != null && !joins(event, typed, now)) {
+            endGroup();
+        }//end if
+
+        if (group == null) {
+            group = new EditGroup();
+            super.addEdit(group); //also drops the edits that could be redone
+        }//end if
+
+        group.addEdit(anEdit);
+
+        long size = EDIT_OVERHEAD;
+        if (event != null) {
+            size += 2L * event.getLength();
+        } else if (anEdit instanceof ProgrammingDocument.BatchEdit) {
+            size += 2L * ((ProgrammingDocument.BatchEdit) anEdit).getLength();
+        }//end if
+        group.bytes += size;
+        footprint += size;
+
+        if (typed != null) {
+            group.type = event.getType();
+            group.lastTime = now;
+            if (event.getType() == DocumentEvent.EventType.INSERT) {
+                group.nextOffset = event.getOffset() + event.getLength();
+                group.lastChar = typed.charAt(typed.length() - 1);
+            } else {
+                group.nextOffset = event.getOffset();
+            }//end if
+        } else {
+            //a paste or large delete is a group by itself
+            endGroup();
+        }//end if
+
+        trimForBudget();
+
+        return true;
+
+    }//end addEdit
+
+    @Override
+    public synchronized boolean canRedo() {
+        endGroup();
+        return super.canRedo();
+    }
+
+    @Override
+    public synchronized boolean canUndo() {
+        endGroup();
+        return super.canUndo();
+    }
+
+    @Override
+    public synchronized void discardAllEdits() {
+        group = null;
+        super.discardAllEdits();
+        footprint = 0;
+    }
+
+    /**
+     * close the open group so that it can be undone
+     */
+    private void endGroup() {
+        if (group != null) {
+            group.end();
+            group = null;
+        }//end if
+    }//end endGroup
+
+    /**
+     * @return the most bytes the history should hold
+     */
+    public synchronized long getBudget() {
+        return budget;
+    }
+
+    /**
+     * @return the estimated bytes held by the history
+     */
+    public synchronized long getFootprint() {
+        return footprint;
+    }
+
+    /**
+     * @return whether the edit continues the typing of the open group
+     */
+    private boolean joins(final DocumentEvent event, final String typed, final long now) {
+
+        if (typed == null || group.type != event.getType() || now - group.lastTime > GROUP_MILLIS) {
+            return false;
+        }//end if
+
+        if (event.getType() == DocumentEvent.EventType.INSERT) {
+            if (event.getOffset() != group.nextOffset) {
+                return false;
+            }//end if
+            //a word starts after whitespace
+            return !(Character.isWhitespace(group.lastChar) && !Character.isWhitespace(typed.charAt(0)));
+        }//end if
+
+        //backspace removes before the last offset, delete removes at it
+        return event.getOffset() == group.nextOffset
+                || event.getOffset() + event.getLength() == group.nextOffset;
+
+    }//end joins
+
+    @Override
+    public void redo() throws CannotRedoException {
+        synchronized (this) {
+            endGroup();
+        }
+        super.redo();
+    }
+
+    /**
+     * Set the byte budget, discarding the oldest edits if over it
+     *
+     * @param budgetBytes the most bytes the history should hold
+     */
+    public synchronized void setBudget(final long budgetBytes) {
+        budget = budgetBytes;
+        trimForBudget();
+    }
+
+    /**
+     * discard the oldest groups until the history is within the budget
+     */
+    private void trimForBudget() {
+        //always keep the newest group, and never drop an edit still to be redone
+        while (footprint > budget && edits.size() > 1 && edits.elementAt(0) != editToBeRedone()) {
+            trimEdits(0, 0);
+        }//end while
+    }//end trimForBudget
+
+    @Override
+    protected void trimEdits(final int from, final int to) {
+        for (int i = from; i <= to; i++) {
+            UndoableEdit e = edits.elementAt(i);
+            if (e instanceof EditGroup) {
+                footprint -= ((EditGroup) e).bytes;
+            }//end if
+            if (e == group) {
+                group = null;
+            }//end if
+        }//end for
+        super.trimEdits(from, to);
+    }//end trimEdits
+
+    /**
+     * @return the text of a typed edit, or null if the edit is not typing
+     */
+    private String typedText(final DocumentEvent event) {
+
+        int len = event.getLength();
+
+        if (event.getType() == DocumentEvent.EventType.REMOVE) {
+            return len == 1 ? "" : null;
+        }//end if
+
+        if (event.getType() != DocumentEvent.EventType.INSERT || len == 0 || len > 64) {
+            return null;
+        }//end if
+
+        try {
+            String text = event.getDocument().getText(event.getOffset(), len);
+            //a character, or a newline or tab expanded with indentation
+            if (len == 1 || text.isBlank()) {
+                return text;
+            }//end if
+        } catch (BadLocationException ex) {
+            //not typing
+        }//end try
+
+        return null;
+
+    }//end typedText
+
+    @Override
+    public void undo() throws CannotUndoException {
+        synchronized (this) {
+            endGroup();
+        }
+        super.undo();
+    }
+
+}//end class UndoHistory
@@ -0,0 +1,251 @@
+/*
+ * Copyright (c) 2022 by William F. Gilreath (will@zepton.xyz)
+ * All rights reserved.
+ *
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 3 as published
+ * by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 3 for more details. The license is available at the following
+ * link:  https://www.gnu.org/licenses/gpl-3.0.txt.
+ *
+ */
+package xyz.zepton.zeptor.run;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.security.CodeSource;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import xyz.zepton.zeptor.log.Logger;
+
+/**
+ * A pool of worker JVMs started ahead of the programs they will run, so a
+ * program keeps a process of its own without waiting for a JVM to start.
+ * <p>
+ * A worker runs one program and exits with it, as its static state is the
+ * program's, so each worker handed out is replaced by a new one started in
+ * the background. A run is a hit when the worker handed out was already warm,
+ * otherwise the run waits for its worker to warm up, which costs about what
+ * launching the program would. The pool counts both, and the time to hand a
+ * program to its worker.
+ */
+public final class WorkerPool {
+
+    /**
+     * the pool, started on first use
+     */
+    private static WorkerPool pool;
+
+    /**
+     * the runs handed to a warm worker
+     */
+    private long hits;
+
+    /**
+     * the workers started and not yet handed out, oldest first
+     */
+    private final ArrayDeque<Process> idle = new ArrayDeque<>();
+
+    /**
+     * the total time to hand the runs to their workers, in nanoseconds
+     */
+    private long launchNanos;
+
+    /**
+     * starts the workers, one at a time
+     */
+    private final ExecutorService starter;
+
+    /**
+     * the runs
+     */
+    private long runs;
+
+    /**
+     * the number of idle workers kept
+     */
+    private int size;
+
+    /**
+     * the command that starts a worker
+     */
+    private final String[] workerCommand;
+
+    /**
+     * Constructor
+     *
+     * @param n the number of idle workers kept
+     */
+    private WorkerPool(final int n) {
+        size = n;
+        workerCommand = new String[]{
+            System.getProperty("java.home") + File.separator + "bin" + File.separator + "java",
+            "-cp", workerClassPath(), ProgramWorker.class.getName()};
+        starter = Executors.newSingleThreadExecutor((Runnable r) -> {
+            Thread t = new Thread(r, "WorkerPool");
+            t.setDaemon(true);
+            return t;
+        });
+        fill();
+    }
+
+    /**
+     * @param n the number of idle workers to keep
+     * @return the pool, started if it is not, and kept at n idle workers
+     */
+    public static synchronized WorkerPool getPool(final int n) {
+        if (pool == null) {
+            pool = new WorkerPool(Math.max(n, 1));
+        } else {
+            pool.resize(Math.max(n, 1));
+        }
+        return pool;
+    }
+
+    /**
+     * start workers in the background until enough are idle
+     */
+    private void fill() {
+        starter.execute(() -> {
+            while (true) {
+                synchronized (this) {
+                    if (idle.size() >= size) {
+                        return;
+                    }
+                }
+                try {
+                    Process p = startWorker();
+                    synchronized (this) {
+                        idle.addLast(p);
+                    }
+                } catch (IOException ex) {
+                    Logger.LOG.logTrap(ex);
+                    return;
+                }
+            }
+        });
+    }//end fill
+
+    /**
+     * @return the share of the runs handed to a warm worker, in percent
+     */
+    public synchronized int getHitRate() {
+        return runs == 0 ? 0 : (int) (hits * 100 / runs);
+    }
+
+    /**
+     * @return the average time to hand a run to its worker, in milliseconds
+     */
+    public synchronized double getLaunchMillis() {
+        return runs == 0 ? 0 : launchNanos / 1.0e6 / runs;
+    }
+
+    /**
+     * @return the number of runs
+     */
+    public synchronized long getRuns() {
+        return runs;
+    }
+
+    /**
+     * Hand a compiled program to a worker
+     *
+     * @param dir the output directory of the program
+     * @param className the name of the main class
+     * @return the worker, running the program
+     * @throws IOException if no worker can be started or sent the program
+     */
+    public Process launch(final File dir, final String className) throws IOException {
+        long begin = System.nanoTime();
+
+        Process p = take();
+        boolean taken = p != null;
+        if (p == null) {
+            p = startWorker();
+        }
+        fill();
+
+        InputStream in = p.getInputStream();
+        boolean hit = taken && in.available() >= ProgramWorker.READY.length;
+        if (!Arrays.equals(in.readNBytes(ProgramWorker.READY.length), ProgramWorker.READY)) {
+            p.destroy();
+            throw new IOException("Worker JVM failed to start: " + String.join(" ", workerCommand));
+        }
+
+        OutputStream out = p.getOutputStream();
+        out.write((dir.getPath() + "\t" + className + "\n").getBytes(StandardCharsets.UTF_8));
+        out.flush();
+
+        long nanos = System.nanoTime() - begin;
+        synchronized (this) {
+            runs++;
+            hits += hit ? 1 : 0;
+            launchNanos += nanos;
+        }
+        Logger.LOG.logText(String.format(Locale.ROOT, "%s: worker %s in %.1f ms", className, hit ? "hit" : "miss", nanos / 1.0e6));
+        return p;
+    }//end launch
+
+    /**
+     * set the number of idle workers kept, the extra ones are stopped
+     */
+    private void resize(final int n) {
+        synchronized (this) {
+            size = n;
+            while (idle.size() > size) {
+                idle.removeLast().destroy();
+            }
+        }
+        fill();
+    }//end resize
+
+    /**
+     * @return a new worker
+     */
+    private Process startWorker() throws IOException {
+        return new ProcessBuilder(workerCommand).start();
+    }
+
+    /**
+     * @return the oldest idle worker still alive, null if none
+     */
+    private synchronized Process take() {
+        Process p;
+        while ((p = idle.pollFirst()) != null) {
+            if (p.isAlive()) {
+                return p;
+            }
+        }
+        return null;
+    }//end take
+
+    /**
+     * @return the classpath of a worker, where the editor's classes are
+     */
+    private static String workerClassPath() {
+        CodeSource source = ProgramWorker.class.getProtectionDomain().getCodeSource();
+        try {
+            if (source != null) {
+                return new File(source.getLocation().toURI()).getPath();
+            }
+        } catch (URISyntaxException | IllegalArgumentException ex) {
+            Logger.LOG.logTrap(ex);
+        }
+        return System.getProperty("java.class.path");
+    }//end workerClassPath
+
+}//end class WorkerPool
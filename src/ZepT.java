@@ -63,6 +63,10 @@ import xyz.zepton.lexer.ZeptonLexerConstants.TokenType;
 import xyz.zepton.zeptor.editor.Zeptor;
 import xyz.zepton.zeptor.gui.CompilerDialog;
 import xyz.zepton.zeptor.log.Logger;
+import xyz.zepton.zeptor.metrics.Counter;
+import xyz.zepton.zeptor.metrics.LatencyHistogram;
+import xyz.zepton.zeptor.metrics.Metrics;
+import xyz.zepton.zeptor.metrics.ZeptorEvents;
 import xyz.zepton.zeptor.util.IConfigure;
 import xyz.zepton.zeptor.util.IOutput;
 
@@ -204,6 +208,10 @@ public final class ZepT implements IConfigure {
 
     public static final Iterable<String> NO_ANNOTATION_PROC = Collections.emptyList();
 
+    private static final Counter COMPILE_FAILURES = Metrics.counter("compile.failures");
+    private static final LatencyHistogram JAVAC_TIME = Metrics.histogram("compile.javacTime");
+    private static final LatencyHistogram TRANSPILE_TIME = Metrics.histogram("compile.transpileTime");
+
     public static final String OPTIONS = "                                                                              \n\r"
             + "                                                                               " + EOL
             + " Compiler Params:                                                              " + EOL
@@ -646,6 +654,26 @@ public final class ZepT implements IConfigure {
 
     public static JavaSourceCodeStringObject transpile(final File file) {
 
+        ZeptorEvents.Transpile event = new ZeptorEvents.Transpile();
+        event.begin();
+        long begin = System.nanoTime();
+
+        JavaSourceCodeStringObject javaObject = ZepT.transpileTokens(file, event);
+
+        TRANSPILE_TIME.recordSince(begin);
+        if (event.shouldCommit()) {
+            event.file = file.getPath();
+            event.size = file.length();
+            event.success = javaObject != JavaSourceCodeStringObject.NIL;
+            event.commit();
+        }//end if
+
+        return javaObject;
+
+    }//end transpile
+
+    private static JavaSourceCodeStringObject transpileTokens(final File file, final ZeptorEvents.Transpile event) {
+
         JavaSourceCodeStringObject javaObject = JavaSourceCodeStringObject.NIL;
 
         final Map<Integer, StringBuilder> list = new HashMap<>();
@@ -663,9 +691,12 @@ public final class ZepT implements IConfigure {
         boolean progBlockFlag = false; //inside program block begin { ... }
         boolean packageFlag = false; //ZeptoN program has package namespace
 
+        int tokens = 0;
+
         while (lex.hasTok()) {
 
             Token tok = lex.getTok();
+            tokens++;
 
             if (isComment(tok)) {
 
@@ -886,9 +917,11 @@ public final class ZepT implements IConfigure {
         //add package namespace under program name to table/map used for running code in Zeptor
         ZepT.packageMap.put(progName, packName);
 
+        event.tokens = tokens;
+
         return javaObject;
 
-    }//end transpile
+    }//end transpileTokens
 
     public static JavaSourceCodeStringObject transpile(final String fileName) {
         return ZepT.transpile(new File(fileName));
@@ -1146,6 +1179,10 @@ public final class ZepT implements IConfigure {
 
         long timeStart = 0, timeClose = 0;
 
+        ZeptorEvents.Compile event = new ZeptorEvents.Compile();
+        event.begin();
+        int diagnostics = 0;
+
         try {
 
             Iterable<? extends JavaFileObject> list = Arrays.asList(zepSrc);
@@ -1178,6 +1215,8 @@ public final class ZepT implements IConfigure {
                 System.exit(ZepT.EXIT_CODE_PROBLEM);
             }//end if
 
+            long javacStart = System.nanoTime();
+
             if (timeFlag) {
                 timeStart = System.currentTimeMillis();
                 statusFlag = task.call();
@@ -1186,6 +1225,12 @@ public final class ZepT implements IConfigure {
                 statusFlag = task.call();
             }//end if
 
+            JAVAC_TIME.recordSince(javacStart);
+            diagnostics = diag.getDiagnostics().size();
+            if (!statusFlag) {
+                COMPILE_FAILURES.increment();
+            }//end if
+
             if (!muteFlag) {
 
                 if (briefFlag) {
@@ -1290,6 +1335,14 @@ public final class ZepT implements IConfigure {
 
         }//end try
 
+        if (event.shouldCommit()) {
+            event.file = fileName;
+            event.javaChars = zepSrc.code.length();
+            event.diagnostics = diagnostics;
+            event.success = statusFlag;
+            event.commit();
+        }//end if
+
         return statusFlag;
 
     }//end compileZeptoN
@@ -0,0 +1,340 @@
+/*
+ * Copyright (c) 2022 by William F. Gilreath (will@zepton.xyz)
+ * All rights reserved.
+ *
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 3 as published
+ * by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 3 for more details. The license is available at the following
+ * link:  https://www.gnu.org/licenses/gpl-3.0.txt.
+ *
+ */
+package xyz.zepton.zeptor.transpiler;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+import xyz.zepton.zeptor.util.Directories;
+import xyz.zepton.zeptor.util.IOutput;
+
+/**
+ * A benchmark of how ZepT scales with the size of a program. For each size a
+ * program is generated by ZeptoNCorpus, and transpile, transpileString and
+ * compileZeptoN are each timed on it, the median of a few runs. The report is
+ * the throughput of each in lines per second, and the peak heap while each
+ * ran.
+ * <p>
+ * The sizes double, so the time of a stage that scales linearly doubles too.
+ * A stage whose time grows faster than lines to the power of the limit from
+ * one size to the next is flagged as super-linear, and the run exits with
+ * status 1. The options are:
+ * <pre>
+ *   -sizes n,n,...   the methods of each program, 50,100,200,400,800
+ *   -depth n         how deep the blocks of a method nest, 3
+ *   -strings share   the share of statements with a string literal, 0.3
+ *   -comments share  the share of statements with a comment, 0.2
+ *   -packages share  the share of statements that use a package, 0.1
+ *   -runs n          the runs of each stage, the median is kept, 3
+ *   -limit power     the power of the lines over which a stage is flagged,
+ *                    1.25
+ *   -nocompile       leave out compileZeptoN
+ * </pre>
+ */
+public final class ZepTScalingBenchmark {
+
+    /**
+     * The output of ZepT, to the standard error
+     */
+    private static final class ErrorOutput implements IOutput {
+
+        public void print(final String str) {
+            System.err.print(str);
+        }
+
+        public void printf(final String fmt, final Object... args) {
+            System.err.printf(fmt, args);
+        }
+
+        public void printFailure(final String str) {
+            print(str);
+        }
+
+        public void printfFailure(final String fmt, final Object... args) {
+            printf(fmt, args);
+        }
+
+        public void printfSuccess(final String fmt, final Object... args) {
+            printf(fmt, args);
+        }
+
+        public void println() {
+            System.err.println();
+        }
+
+        public void println(final String str) {
+            System.err.println(str);
+        }
+
+        public void printlnFailure() {
+            println();
+        }
+
+        public void printlnFailure(final String str) {
+            println(str);
+        }
+
+        public void printlnSuccess() {
+            println();
+        }
+
+        public void printlnSuccess(final String str) {
+            println(str);
+        }
+
+        public void printSuccess(final String str) {
+            print(str);
+        }
+    }//end class ErrorOutput
+
+    /**
+     * The stages timed
+     */
+    private enum Stage {
+        TRANSPILE("transpile"),
+        TRANSPILE_STRING("transpileString"),
+        COMPILE("compileZeptoN");
+
+        private final String label;
+
+        Stage(final String l) {
+            label = l;
+        }
+    }//end enum Stage
+
+    /**
+     * A stage run on a program
+     */
+    private interface Run {
+
+        boolean run() throws IOException;
+    }
+
+    /**
+     * the heap pools, their peaks are the peak heap
+     */
+    private static final List<MemoryPoolMXBean> HEAP = new ArrayList<>();
+
+    static {
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() == MemoryType.HEAP) {
+                HEAP.add(pool);
+            }
+        }
+    }
+
+    /**
+     * the compiler
+     */
+    private final ZepT zept;
+
+    /**
+     * the programs and the class files
+     */
+    private final Path dir;
+
+    /**
+     * the runs of each stage
+     */
+    private final int runs;
+
+    /**
+     * Constructor
+     *
+     * @param d the directory of the programs and class files
+     * @param n the runs of each stage
+     */
+    private ZepTScalingBenchmark(final Path d, final int n) {
+        dir = d;
+        runs = n;
+        zept = new ZepT(new ErrorOutput());
+        zept.setOutputDirPath(d.toString());
+        zept.setMute(true);
+        zept.setParams();
+    }
+
+    /**
+     * time a stage
+     *
+     * @return the median time and the peak heap, in nanoseconds and bytes,
+     * or null if the stage failed
+     */
+    private long[] measure(final Run stage) throws IOException {
+        long[] nanos = new long[runs];
+        long peak = 0;
+        for (int r = 0; r < runs; r++) {
+            System.gc();
+            for (MemoryPoolMXBean pool : HEAP) {
+                pool.resetPeakUsage();
+            }
+            long begin = System.nanoTime();
+            if (!stage.run()) {
+                return null;
+            }
+            nanos[r] = System.nanoTime() - begin;
+            long used = 0;
+            for (MemoryPoolMXBean pool : HEAP) {
+                used += pool.getPeakUsage().getUsed();
+            }
+            peak = Math.max(peak, used);
+        }
+        Arrays.sort(nanos);
+        return new long[]{nanos[runs / 2], peak};
+    }//end measure
+
+    /**
+     * time the stages on a program
+     *
+     * @return the time and the peak heap of each stage, null for a stage
+     * left out or failed
+     */
+    private long[][] measure(final String name, final String program, final boolean compile) throws IOException {
+        final File file = dir.resolve(name + ".zep").toFile();
+        Files.writeString(file.toPath(), program);
+
+        long[][] result = new long[Stage.values().length][];
+        result[Stage.TRANSPILE.ordinal()] = measure(
+                () -> ZepT.transpile(file) != ZepT.JavaSourceCodeStringObject.NIL);
+        result[Stage.TRANSPILE_STRING.ordinal()] = measure(
+                () -> ZepT.transpileString(file.getPath(), program) != ZepT.JavaSourceCodeStringObject.NIL);
+        if (compile) {
+            final ZepT.JavaSourceCodeStringObject code = ZepT.transpile(file);
+            result[Stage.COMPILE.ordinal()] = measure(() -> zept.compileZeptoN(code, file.getPath()));
+        }
+        return result;
+    }//end measure
+
+    /**
+     * Run the benchmark
+     *
+     * @param args the options
+     * @throws IOException if a program cannot be written
+     */
+    public static void main(final String[] args) throws IOException {
+        int[] sizes = {50, 100, 200, 400, 800};
+        int nesting = 3;
+        double stringShare = 0.3;
+        double commentShare = 0.2;
+        double packageShare = 0.1;
+        int n = 3;
+        double limit = 1.25;
+        boolean compile = true;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "-sizes":
+                    sizes = Arrays.stream(args[++i].split(",")).mapToInt(Integer::parseInt).toArray();
+                    break;
+                case "-depth":
+                    nesting = Integer.parseInt(args[++i]);
+                    break;
+                case "-strings":
+                    stringShare = Double.parseDouble(args[++i]);
+                    break;
+                case "-comments":
+                    commentShare = Double.parseDouble(args[++i]);
+                    break;
+                case "-packages":
+                    packageShare = Double.parseDouble(args[++i]);
+                    break;
+                case "-runs":
+                    n = Integer.parseInt(args[++i]);
+                    break;
+                case "-limit":
+                    limit = Double.parseDouble(args[++i]);
+                    break;
+                case "-nocompile":
+                    compile = false;
+                    break;
+                default:
+                    throw new IllegalArgumentException("unknown option: " + args[i]);
+            }
+        }
+
+        Path dir = Files.createTempDirectory("zeptor-scaling");
+        boolean pass = true;
+        try {
+            ZepTScalingBenchmark bench = new ZepTScalingBenchmark(dir, n);
+
+            //warm up on the smallest program, so the first size is not paying for the JIT
+            bench.measure("Warm", new ZeptoNCorpus(sizes[0], nesting, stringShare, commentShare, packageShare, 0)
+                    .generate("Warm"), compile);
+
+            System.out.printf("%8s %8s", "methods", "lines");
+            for (Stage stage : Stage.values()) {
+                System.out.printf(" %22s", stage.label + " lines/s");
+                System.out.printf(" %9s", "heap MiB");
+            }
+            System.out.println();
+
+            StringBuilder flags = new StringBuilder();
+            long[][] previous = null;
+            int previousLines = 0;
+            for (int size : sizes) {
+                String name = "Scale" + size;
+                String program = new ZeptoNCorpus(size, nesting, stringShare, commentShare, packageShare, 1).generate(name);
+                int lines = ZeptoNCorpus.lines(program);
+                long[][] result = bench.measure(name, program, compile);
+
+                System.out.printf(Locale.ROOT, "%8d %8d", size, lines);
+                for (Stage stage : Stage.values()) {
+                    long[] r = result[stage.ordinal()];
+                    if (r == null) {
+                        boolean skipped = stage == Stage.COMPILE && !compile;
+                        System.out.printf(" %22s %9s", skipped ? "-" : "failed", "-");
+                        if (!skipped) {
+                            flags.append(String.format(Locale.ROOT, "FAIL %s: failed on %d lines%n", stage.label, lines));
+                            pass = false;
+                        }
+                        continue;
+                    }
+                    System.out.printf(Locale.ROOT, " %22.0f %9.1f", lines / (r[0] / 1.0e9), r[1] / 1048576.0);
+
+                    long[] p = previous == null ? null : previous[stage.ordinal()];
+                    if (p != null) {
+                        double power = Math.log((double) r[0] / p[0]) / Math.log((double) lines / previousLines);
+                        if (power > limit) {
+                            flags.append(String.format(Locale.ROOT,
+                                    "SUPER-LINEAR %s: time grows as lines^%.2f from %d to %d lines%n",
+                                    stage.label, power, previousLines, lines));
+                            pass = false;
+                        }
+                    }
+                }
+                System.out.println();
+                previous = result;
+                previousLines = lines;
+            }//end for
+
+            System.out.println();
+            System.out.print(flags.length() == 0 ? "PASS\n" : flags);
+        } finally {
+            Directories.delete(dir);
+        }
+        System.exit(pass ? 0 : 1);
+    }//end main
+
+}//end class ZepTScalingBenchmark
@@ -0,0 +1,254 @@
+/*
+ * Copyright (c) 2022 by William F. Gilreath (will@zepton.xyz)
+ * All rights reserved.
+ *
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 3 as published
+ * by the Free Software Foundation.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 3 for more details. The license is available at the following
+ * link:  https://www.gnu.org/licenses/gpl-3.0.txt.
+ *
+ */
+package xyz.zepton.zeptor.transpiler;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * Generates valid ZeptoN programs of a given size, for benchmarking ZepT on
+ * programs much bigger than the samples. A program is a prog of methods each
+ * called from its begin block, and its size is set by:
+ * <ul>
+ * <li>methods, the number of methods</li>
+ * <li>depth, how deep the loops and ifs of a method nest</li>
+ * <li>strings, the share of statements that use a string literal</li>
+ * <li>comments, the share of statements with a line or block comment</li>
+ * <li>packages, the share of statements that use a class of the Java
+ * library by its package, and whether the program is in a package</li>
+ * </ul>
+ * The same settings and seed always give the same program.
+ */
+public final class ZeptoNCorpus {
+
+    /**
+     * the statements of a block
+     */
+    private static final int BLOCK_STATEMENTS = 4;
+
+    /**
+     * the share of statements with a comment
+     */
+    private final double comments;
+
+    /**
+     * how deep the blocks of a method nest
+     */
+    private final int depth;
+
+    /**
+     * the number of methods
+     */
+    private final int methods;
+
+    /**
+     * the share of statements that use a class by its package
+     */
+    private final double packages;
+
+    /**
+     * the share of statements that use a string literal
+     */
+    private final double strings;
+
+    /**
+     * the seed of the programs
+     */
+    private final long seed;
+
+    /**
+     * the variables declared in the method being generated
+     */
+    private int variables;
+
+    /**
+     * Constructor
+     *
+     * @param methodCount the number of methods
+     * @param nesting how deep the blocks of a method nest, 1 or more
+     * @param stringShare the share of statements that use a string literal
+     * @param commentShare the share of statements with a comment
+     * @param packageShare the share of statements that use a class by its
+     * package, the program is in a package unless it is 0
+     * @param randomSeed the seed of the programs
+     */
+    public ZeptoNCorpus(final int methodCount, final int nesting, final double stringShare,
+            final double commentShare, final double packageShare, final long randomSeed) {
+        methods = methodCount;
+        depth = Math.max(1, nesting);
+        strings = stringShare;
+        comments = commentShare;
+        packages = packageShare;
+        seed = randomSeed;
+    }
+
+    /**
+     * generate a block of statements, nesting to level 1
+     */
+    private void block(final StringBuilder b, final Random random, final int level, final String indent) {
+        for (int s = 0; s < BLOCK_STATEMENTS; s++) {
+            if (random.nextDouble() < comments) {
+                if (random.nextBoolean()) {
+                    b.append(indent).append("// add the next term, statement ").append(s).append('\n');
+                } else {
+                    b.append(indent).append("/* the term of level ").append(level)
+                            .append(",\n").append(indent).append("   statement ").append(s).append(" */\n");
+                }
+            }
+            if (level > 1 && s == BLOCK_STATEMENTS / 2) {
+                String loop = "i" + level;
+                if (random.nextBoolean()) {
+                    b.append(indent).append("for (int ").append(loop).append(" = 0; ").append(loop)
+                            .append(" < n; ").append(loop).append("++) {\n");
+                    block(b, random, level - 1, indent + "  ");
+                    b.append(indent).append("}//end for\n");
+                } else {
+                    b.append(indent).append("if (total % ").append(level + 1).append(" == 0) {\n");
+                    block(b, random, level - 1, indent + "  ");
+                    b.append(indent).append("} else {\n");
+                    b.append(indent).append("  total -= ").append(level).append(";\n");
+                    b.append(indent).append("}//end if\n");
+                }
+            } else if (random.nextDouble() < strings) {
+                String v = "text" + variables++;
+                b.append(indent).append("String ").append(v).append(" = \"term ").append(s)
+                        .append(" of level ").append(level).append("\";\n");
+                b.append(indent).append("total += ").append(v).append(".length();\n");
+            } else if (random.nextDouble() < packages) {
+                String v = "list" + variables++;
+                b.append(indent).append("java.util.ArrayList<java.math.BigInteger> ").append(v)
+                        .append(" = new java.util.ArrayList<>();\n");
+                b.append(indent).append(v).append(".add(java.math.BigInteger.valueOf(total));\n");
+                b.append(indent).append("total += ").append(v).append(".size();\n");
+            } else {
+                b.append(indent).append("total += n * ").append(random.nextInt(100)).append(" + ")
+                        .append(s).append(";\n");
+            }
+        }//end for
+    }//end block
+
+    /**
+     * @param name the name of the prog
+     * @return a ZeptoN program
+     */
+    public String generate(final String name) {
+        Random random = new Random(seed);
+        StringBuilder b = new StringBuilder();
+        if (packages > 0) {
+            b.append("package zepton.program.corpus;\n\n");
+        }
+        b.append("prog ").append(name).append(" {\n\n");
+        for (int m = 0; m < methods; m++) {
+            variables = 0;
+            if (random.nextDouble() < comments) {
+                b.append("  /* method ").append(m).append(" adds up the terms of its blocks */\n");
+            }
+            b.append("  int term").append(m).append("(final int n) {\n");
+            b.append("    int total = ").append(m).append(";\n");
+            block(b, random, depth, "    ");
+            b.append("    return total;\n");
+            b.append("  }//end term").append(m).append("\n\n");
+        }
+        b.append("  begin {\n");
+        b.append("    int total = 0;\n");
+        for (int m = 0; m < methods; m++) {
+            b.append("    total += me.term").append(m).append("(2);\n");
+        }
+        b.append("    println(\"total = \" + total);\n");
+        b.append("  }//end begin\n");
+        b.append("}//end prog ").append(name).append('\n');
+        return b.toString();
+    }//end generate
+
+    /**
+     * @return the number of lines of a program
+     */
+    public static int lines(final String program) {
+        int n = 0;
+        for (int i = 0; i < program.length(); i++) {
+            if (program.charAt(i) == '\n') {
+                n++;
+            }
+        }
+        return n;
+    }//end lines
+
+    /**
+     * Write generated programs to a directory, Corpus0.zep and on. The
+     * options are -methods n, -depth n, -strings share, -comments share,
+     * -packages share, -seed n, -count n and -dir directory.
+     *
+     * @param args the options
+     * @throws IOException if a program cannot be written
+     */
+    public static void main(final String[] args) throws IOException {
+        int methodCount = 100;
+        int nesting = 3;
+        double stringShare = 0.3;
+        double commentShare = 0.2;
+        double packageShare = 0.1;
+        long randomSeed = 1;
+        int count = 1;
+        Path dir = Paths.get(".");
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            String value = args[i + 1];
+            switch (args[i]) {
+                case "-methods":
+                    methodCount = Integer.parseInt(value);
+                    break;
+                case "-depth":
+                    nesting = Integer.parseInt(value);
+                    break;
+                case "-strings":
+                    stringShare = Double.parseDouble(value);
+                    break;
+                case "-comments":
+                    commentShare = Double.parseDouble(value);
+                    break;
+                case "-packages":
+                    packageShare = Double.parseDouble(value);
+                    break;
+                case "-seed":
+                    randomSeed = Long.parseLong(value);
+                    break;
+                case "-count":
+                    count = Integer.parseInt(value);
+                    break;
+                case "-dir":
+                    dir = Paths.get(value);
+                    break;
+                default:
+                    throw new IllegalArgumentException("unknown option: " + args[i]);
+            }
+        }
+        Files.createDirectories(dir);
+        for (int c = 0; c < count; c++) {
+            String name = "Corpus" + c;
+            String program = new ZeptoNCorpus(methodCount, nesting, stringShare, commentShare, packageShare,
+                    randomSeed + c).generate(name);
+            Path file = dir.resolve(name + ".zep");
+            Files.writeString(file, program);
+            System.out.printf(Locale.ROOT, "%s: %d lines%n", file, lines(program));
+        }
+    }//end main
+
+}//end class ZeptoNCorpus
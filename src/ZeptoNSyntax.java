@@ -18,6 +18,8 @@
 package xyz.zepton.zeptor.syntax;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 
 /**
  * A class that defines the ZeptoN syntax
@@ -170,6 +172,13 @@ public class ZeptoNSyntax implements Syntax {
         return "" + c;
     }
 
+    /**
+     * @return the key words, sorted
+     */
+    public List<String> getKeywords() {
+        return Collections.unmodifiableList(keywords);
+    }
+
     /**
      * @return the string that indicate start of line comment
      */
@@ -184,6 +193,13 @@ public class ZeptoNSyntax implements Syntax {
         return 2;
     }
 
+    /**
+     * @return the reserved words, sorted
+     */
+    public List<String> getReserved() {
+        return Collections.unmodifiableList(reserved);
+    }
+
     /**
      * @return the string that indicate start and end of string
      */
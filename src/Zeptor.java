@@ -19,18 +19,30 @@ package xyz.zepton.zeptor.editor;
 
 import java.awt.Color;
 import java.awt.Desktop;
+import java.awt.EventQueue;
+import java.awt.Font;
 import java.awt.Toolkit;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.awt.event.ContainerEvent;
 import java.awt.event.ContainerListener;
+import java.awt.event.HierarchyEvent;
+import java.awt.event.HierarchyListener;
+import java.awt.event.InputEvent;
 import java.awt.event.KeyEvent;
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import javax.swing.ButtonGroup;
 import javax.swing.JComponent;
@@ -40,11 +52,15 @@ import javax.swing.JMenuBar;
 import javax.swing.JMenuItem;
 import javax.swing.JOptionPane;
 import javax.swing.JRadioButtonMenuItem;
+import javax.swing.JScrollPane;
 import javax.swing.JTabbedPane;
+import javax.swing.JTextArea;
 import javax.swing.KeyStroke;
 import javax.swing.SwingUtilities;
 import javax.swing.UIManager;
 import javax.swing.WindowConstants;
+import javax.swing.event.MenuEvent;
+import javax.swing.event.MenuListener;
 import javax.tools.JavaCompiler;
 import javax.tools.ToolProvider;
 
@@ -52,14 +68,23 @@ import xyz.zepton.zeptor.gui.AboutDialog;
 import xyz.zepton.zeptor.gui.CompilerDialog;
 import xyz.zepton.zeptor.gui.CompilerOptions;
 import xyz.zepton.zeptor.gui.CreditsDialog;
+import xyz.zepton.zeptor.gui.EdtWatchdog;
 import xyz.zepton.zeptor.gui.MyFileFilter;
 import xyz.zepton.zeptor.gui.MyJFrame;
+import xyz.zepton.zeptor.gui.SwingOutput;
 import xyz.zepton.zeptor.gui.SystemProps;
 import xyz.zepton.zeptor.listener.OpenFileListener;
 import xyz.zepton.zeptor.log.Logger;
+import xyz.zepton.zeptor.log.StartupTimeline;
+import xyz.zepton.zeptor.metrics.FlightRecording;
+import xyz.zepton.zeptor.metrics.Metrics;
 import xyz.zepton.zeptor.run.PlatformConsole;
+import xyz.zepton.zeptor.run.WorkerPool;
 import xyz.zepton.zeptor.run.ZeptorConsole;
+import xyz.zepton.zeptor.text.EditJournal;
+import xyz.zepton.zeptor.text.FindInFilesDialog;
 import xyz.zepton.zeptor.text.MyTextPane;
+import xyz.zepton.zeptor.text.SymbolDialog;
 import xyz.zepton.zeptor.transpiler.ZepT;
 
 /**
@@ -92,6 +117,13 @@ public final class Zeptor extends MyJFrame implements OpenFileListener, Containe
 
     private static final long serialVersionUID = 486811121985687647L;
 
+    //compiles one file at a time off the EDT, ZepT keeps its state in static fields
+    private static final ExecutorService BUILDER = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "ZeptorBuild");
+        t.setDaemon(true);
+        return t;
+    });
+
     private static final String STD_ZEPTON_PROGRAM
             = "package zepton.program." + CONST_USER
             + ";" + CODE_EOLN
@@ -136,9 +168,8 @@ public final class Zeptor extends MyJFrame implements OpenFileListener, Containe
 
         try {
 
-            UIManager.setLookAndFeel(UIManager.getSystemLookAndFeelClassName());
-            Zeptor zep = new Zeptor();
-            zep.setVisible(true);
+            StartupTimeline.mark("main");
+            Zeptor.open(true);
 
         } catch (Exception ex) {
             Logger.LOG.logTrap(ex);
@@ -148,34 +179,42 @@ public final class Zeptor extends MyJFrame implements OpenFileListener, Containe
 
     }// end main
 
+    /**
+     * Open the editor as main does, for main and the class-data sharing
+     * training run
+     *
+     * @param interactive whether to offer to recover the journals left behind
+     * and show the about dialog, not in an unattended run
+     * @return the editor, visible
+     */
+    static Zeptor open(final boolean interactive) {
+
+        Logger.LOG.beginLog(); //log must be in user.home/Zeptor
+
+        //the look and feel is set before the frame is made, so no other is loaded
+        EditorOptions editorOptions = loadOptions();
+        initLookAndFeel(editorOptions);
+        StartupTimeline.mark("look and feel");
+
+        Zeptor zep = new Zeptor(editorOptions, interactive);
+        zep.setVisible(true);
+        EdtWatchdog.start();
+
+        return zep;
+
+    }// end open
+
     private AboutDialog aboutDialog = null;
 
-    private JRadioButtonMenuItem acrylRadioMenuItem,
-            aeroRadioMenuItem,
-            aluminumRadioMenuItem,
-//            bernsteinRadioMenuItem,
-//            darculaRadioMenuItem,
-            fastRadioMenuItem,
-            graphiteRadioMenuItem,
-            hiFiRadioMenuItem,
-            infoNodeRadioMenuItem,
-            intellijRadioMenuItem,
-            lightRadioMenuItem,
-//            lipstikRadioMenuItem,
-//            liquidRadioMenuItem,
-            lunaRadioMenuItem,
-            mcWinRadioMenuItem,
-            metalRadioMenuItem,
-            mintRadioMenuItem,
-            motifRadioMenuItem,
-//            nimbusRadioMenuItem,
-            noireRadioMenuItem,
-            pgsRadioMenuItem,
-            plasticRadioMenuItem,
-            platformRadioMenuItem,
-            smartRadioMenuItem,
-            textureRadioMenuItem;
-//            tonicRadioMenuItem;
+    /**
+     * whether the first tab has been editable
+     */
+    private boolean firstTabEditable = false;
+
+    /**
+     * the items of the Theme menu, null until the menu is first opened
+     */
+    private EnumMap<ZeptorLAF, JRadioButtonMenuItem> themeMenuItems = null;
 
     /**
      * a vector to store all files being edited
@@ -211,6 +250,16 @@ public final class Zeptor extends MyJFrame implements OpenFileListener, Containe
 
     public boolean finalFlag = false;
 
+    /**
+     * the find in files dialog, created when first used
+     */
+    private FindInFilesDialog findInFilesDialog = null;
+
+    /**
+     * the go to symbol and find usages dialog, created when first used
+     */
+    private SymbolDialog symbolDialog = null;
+
     public boolean hushFlag = false;
 
     /**
@@ -264,12 +313,25 @@ public final class Zeptor extends MyJFrame implements OpenFileListener, Containe
 
     /**
      * Constructor
+     *
+     * @param editorOptions the editor options
      */
-    public Zeptor() {
+    public Zeptor(final EditorOptions editorOptions) {
+        this(editorOptions, true);
+    }
 
-        Logger.LOG.beginLog(); //log must be in user.home/Zeptor
+    /**
+     * Constructor
+     *
+     * @param editorOptions the editor options
+     * @param interactive whether to offer to recover the journals left behind
+     * and show the about dialog
+     */
+    Zeptor(final EditorOptions editorOptions, final boolean interactive) {
 
-        init();
+        this.options = editorOptions;
+
+        init(interactive);
 
         this.setDefaultCloseOperation(WindowConstants.EXIT_ON_CLOSE);
     }
@@ -329,10 +391,34 @@ public final class Zeptor extends MyJFrame implements OpenFileListener, Containe
     }// end buildClean
 
     public void buildMake() {
+        make();
+    }// end buildMake
+
+    //build, then start the program in the Zeptor console as soon as its classes are written
+    public void buildMakeStart() {
 
         try {
 
-            MyTextPane t = allFiles.get(tabbedPane.getSelectedIndex());
+            final MyTextPane t = allFiles.get(tabbedPane.getSelectedIndex());
+
+            make().thenAcceptAsync(statusFlag -> {
+                if (statusFlag) {
+                    start(t);
+                }
+            }, EventQueue::invokeLater);
+
+        } catch (Exception ex) {
+            Logger.LOG.logTrap(ex);
+        }//end try
+
+    }// end buildMakeStart
+
+    //compile the current file on the build thread, the future completes on the EDT
+    CompletableFuture<Boolean> make() {
+
+        try {
+
+            final MyTextPane t = allFiles.get(tabbedPane.getSelectedIndex());
 
             if (t.getText().length() > 0) {
                 t.save();
@@ -350,48 +436,65 @@ public final class Zeptor extends MyJFrame implements OpenFileListener, Containe
             );
 
             jcon.printf("%s", jdkVersionCompiler);
- 
-            // create compiler instance
-            ZepT zept = new ZepT(jcon);
 
-            zept.setDebug(!this.finalFlag);
-            zept.setDump(this.dumpFlag);
-            zept.setEcho(this.dumpFlag);
-            zept.setPanic(this.panicFlag);
-            zept.setTime(this.timeFlag);
-            zept.setHush(this.hushFlag);
-            zept.setMute(this.muteFlag);
-            zept.setBrief(this.briefFlag);
+            jcon.setVisible(true);
 
-            zept.setOutputDirPath(outputPath);
+            final String filePath = t.getFile().getPath();
 
-            zept.setParams();
+            return CompletableFuture.supplyAsync(() -> {
 
-            jcon.setVisible(true);
+                // create compiler instance, its output goes back to the EDT
+                ZepT zept = new ZepT(new SwingOutput(jcon));
 
-            boolean statusFlag = zept.compileFile(t.getFile().getPath());
+                zept.setDebug(!this.finalFlag);
+                zept.setDump(this.dumpFlag);
+                zept.setEcho(this.dumpFlag);
+                zept.setPanic(this.panicFlag);
+                zept.setTime(this.timeFlag);
+                zept.setHush(this.hushFlag);
+                zept.setMute(this.muteFlag);
+                zept.setBrief(this.briefFlag);
 
-            t.setCompileStatus(statusFlag);
+                zept.setOutputDirPath(outputPath);
 
-            jcon.println();
+                zept.setParams();
 
-            if (statusFlag) {
+                return zept.compileFile(filePath);
 
-                jcon.printfSuccess("ZeptoN Transpile Success!%n");
+            }, BUILDER).handleAsync((statusFlag, trap) -> {
 
-            } else {
+                if (trap != null) {
+                    Logger.LOG.logTrap(new Exception(trap));
+                    statusFlag = false;
+                }
 
-                jcon.printfFailure("ZeptoN Transpile Failure!%n");
+                t.setCompileStatus(statusFlag);
 
-            } // end if
+                jcon.println();
+
+                if (statusFlag) {
+
+                    jcon.printfSuccess("ZeptoN Transpile Success!%n");
+
+                } else {
 
-            jcon.println();
+                    jcon.printfFailure("ZeptoN Transpile Failure!%n");
+
+                } // end if
+
+                jcon.println();
+
+                return statusFlag;
+
+            }, EventQueue::invokeLater);
 
         } catch (Exception ex) {
             Logger.LOG.logTrap(ex);
         }//end try
 
-    }// end buildMake
+        return CompletableFuture.completedFuture(false);
+
+    }// end make
 
     public void buildRun() {
 
@@ -432,7 +535,18 @@ public final class Zeptor extends MyJFrame implements OpenFileListener, Containe
 
         try {
 
-            MyTextPane t = allFiles.get(tabbedPane.getSelectedIndex());
+            start(allFiles.get(tabbedPane.getSelectedIndex()));
+
+        } catch (Exception ex) {
+            Logger.LOG.logTrap(ex);
+        }//end try
+
+    }//end buildStart
+
+    //run a compiled program in the Zeptor console
+    private void start(final MyTextPane t) {
+
+        try {
 
             String fileNameExt = t.getFile().getName();
 
@@ -444,7 +558,7 @@ public final class Zeptor extends MyJFrame implements OpenFileListener, Containe
                 String packName = ZepT.getPackName(progName);
 
                 try {
-                    ZeptorConsole.runCommand(outputPath, packName, progName);
+                    ZeptorConsole.runCommand(options, outputPath, packName, progName);
 
                 } catch (Exception ex) {
                     Logger.LOG.logTrap(ex);
@@ -460,13 +574,35 @@ public final class Zeptor extends MyJFrame implements OpenFileListener, Containe
             Logger.LOG.logTrap(ex);
         }//end try
 
-    }//end buildStart
+    }//end start
 
     /**
      * as defined in container listener
      */
     public void componentAdded(ContainerEvent e) {
-    }
+        if (this.firstTabEditable || !(e.getChild() instanceof JComponent)) {
+            return;
+        }
+
+        //the first tab is editable once it is showing, and the events ahead of it are handled
+        final JComponent tab = (JComponent) e.getChild();
+        tab.addHierarchyListener(new HierarchyListener() {
+            public void hierarchyChanged(HierarchyEvent event) {
+                if ((event.getChangeFlags() & HierarchyEvent.SHOWING_CHANGED) == 0 || !tab.isShowing()) {
+                    return;
+                }
+                tab.removeHierarchyListener(this);
+                if (!firstTabEditable) {
+                    firstTabEditable = true;
+                    EventQueue.invokeLater(() -> {
+                        StartupTimeline.mark("first tab editable");
+                        StartupTimeline.log();
+                    });
+                }
+            }//end hierarchyChanged
+        }//end new HierarchyListener
+        );
+    }//end componentAdded
 
     /**
      * as defined in container listener
@@ -518,6 +654,59 @@ public final class Zeptor extends MyJFrame implements OpenFileListener, Containe
         }//end try
     }
 
+    void editFindInFiles() {
+        try {
+
+            if (findInFilesDialog == null) {
+                findInFilesDialog = new FindInFilesDialog(this);
+            }
+            findInFilesDialog.setVisible(true);
+
+        } catch (Exception ex) {
+            Logger.LOG.logTrap(ex);
+        }//end try
+    }//end editFindInFiles
+
+    /**
+     * go to a symbol, or find the usages of the identifier at the caret, in
+     * the directory of the current file
+     *
+     * @param usages whether to find usages
+     */
+    void editSymbol(boolean usages) {
+        try {
+
+            File dir = new File(System.getProperty("user.dir"));
+            String name = "";
+            if (!notSelectedIndex()) {
+                MyTextPane t = allFiles.get(tabbedPane.getSelectedIndex());
+                if (t.getFile() != null && t.getFile().getParentFile() != null) {
+                    dir = t.getFile().getParentFile();
+                }
+                name = t.getWordAtCaret();
+            }
+
+            if (symbolDialog == null) {
+                symbolDialog = new SymbolDialog(this);
+            }
+            symbolDialog.show(dir, name, usages);
+
+        } catch (Exception ex) {
+            Logger.LOG.logTrap(ex);
+        }//end try
+    }//end editSymbol
+
+    void editComplete() {
+        try {
+
+            MyTextPane t = allFiles.get(tabbedPane.getSelectedIndex());
+            t.complete();
+
+        } catch (Exception ex) {
+            Logger.LOG.logTrap(ex);
+        }//end try
+    }//end editComplete
+
     void editGoto() {
         try {
 
@@ -656,6 +845,15 @@ public final class Zeptor extends MyJFrame implements OpenFileListener, Containe
      * create a new file
      */
     private void fileNew() {
+        fileNew(DEFAULT_ZEPTON_HEADER + STD_ZEPTON_PROGRAM);
+    }//end fileNew
+
+    /**
+     * create a new file with the given text
+     *
+     * @param text the text of the new file
+     */
+    private void fileNew(final String text) {
 
         numNewFiles++;
         String title = "myProgram.zep";
@@ -663,7 +861,7 @@ public final class Zeptor extends MyJFrame implements OpenFileListener, Containe
 
         textPane.setTitle(title);
 
-        textPane.setText(DEFAULT_ZEPTON_HEADER + STD_ZEPTON_PROGRAM);
+        textPane.setText(text);
 
         textPane.setCaretPosition(0);
 
@@ -696,8 +894,7 @@ public final class Zeptor extends MyJFrame implements OpenFileListener, Containe
 
             int returnVal = chooser.showOpenDialog(this);
             if (returnVal == JFileChooser.APPROVE_OPTION) {
-                File f = chooser.getSelectedFile().getAbsoluteFile();
-                openFile(f);
+                openFiles(chooser.getSelectedFiles());
             }//end if
 
         } catch (Exception ex) {
@@ -729,6 +926,51 @@ public final class Zeptor extends MyJFrame implements OpenFileListener, Containe
         }
     }
 
+    /**
+     * recover the unsaved edits journalled by a previous session
+     */
+    private void fileRecover() {
+
+        File[] journals = EditJournal.listJournals();
+
+        if (journals.length == 0) {
+            return;
+        }//end if
+
+        int answer = JOptionPane.showConfirmDialog(this,
+                String.format("Found unsaved edits to %d ZeptoN file(s) from a previous session.%nRecover them?", journals.length),
+                "Recover Files",
+                JOptionPane.YES_NO_OPTION, JOptionPane.PLAIN_MESSAGE);
+
+        for (File journal : journals) {
+
+            try {
+
+                if (answer == JOptionPane.YES_OPTION) {
+
+                    EditJournal.Recovery r = EditJournal.recover(journal);
+
+                    if (r != null) {
+                        File f = r.getFile();
+                        if (f != null && openFile(f, false, false)) {
+                            allFiles.get(tabbedPane.getSelectedIndex()).setText(r.getText());
+                        } else {
+                            fileNew(r.getText());
+                        }//end if
+                    }//end if
+
+                }//end if
+
+                Files.deleteIfExists(journal.toPath());
+
+            } catch (Exception ex) {
+                Logger.LOG.logTrap(ex);
+            }//end try
+
+        }//end for
+
+    }//end fileRecover
+
     void fileSave() {
         try {
 
@@ -805,6 +1047,75 @@ public final class Zeptor extends MyJFrame implements OpenFileListener, Containe
 
     }// end helpCredits
 
+    //show the metrics as they are now, and log them
+    void helpMetrics() {
+        try {
+
+            String snapshot = Metrics.snapshot();
+            Logger.LOG.logText(snapshot);
+
+            JTextArea textArea = new JTextArea(snapshot, 24, 120);
+            textArea.setEditable(false);
+            textArea.setFont(new Font(Font.MONOSPACED, Font.PLAIN, 12));
+            JOptionPane.showMessageDialog(this, new JScrollPane(textArea), "Metrics Snapshot", JOptionPane.PLAIN_MESSAGE);
+
+        } catch (Exception ex) {
+            Logger.LOG.logTrap(ex);
+        }//end try
+    }//end helpMetrics
+
+    //start a JFR recording, or stop it and write it to the .jfr file chosen, off the EDT as JFR is slow to start
+    void helpRecording(final JMenuItem recordingMenuItem) {
+
+        if (!FlightRecording.isRecording()) {
+
+            recordingMenuItem.setEnabled(false);
+            CompletableFuture.runAsync(() -> {
+                try {
+                    FlightRecording.start();
+                } catch (Exception ex) {
+                    throw new CompletionException(ex);
+                }
+            }).whenComplete((ignore, trap) -> EventQueue.invokeLater(() -> {
+                recordingMenuItem.setEnabled(true);
+                if (trap != null) {
+                    Logger.LOG.logTrap(new Exception(trap));
+                    JOptionPane.showMessageDialog(this, "Can not start a flight recording.", "Error", JOptionPane.WARNING_MESSAGE);
+                } else {
+                    recordingMenuItem.setText("Stop Flight Recording...");
+                }
+            }));
+            return;
+        }//end if
+
+        JFileChooser chooser = new JFileChooser();
+        chooser.setDialogTitle("Save Flight Recording");
+        chooser.setSelectedFile(new File(System.getProperty("user.home"), "zeptor-" + LocalDate.now() + ".jfr"));
+        if (chooser.showSaveDialog(this) != JFileChooser.APPROVE_OPTION) {
+            return; //still recording
+        }
+        final Path file = chooser.getSelectedFile().toPath();
+
+        recordingMenuItem.setEnabled(false);
+        CompletableFuture.runAsync(() -> {
+            try {
+                FlightRecording.stop(file);
+            } catch (IOException ex) {
+                throw new CompletionException(ex);
+            }
+        }).whenComplete((ignore, trap) -> EventQueue.invokeLater(() -> {
+            recordingMenuItem.setEnabled(true);
+            recordingMenuItem.setText("Start Flight Recording");
+            if (trap != null) {
+                Logger.LOG.logTrap(new Exception(trap));
+                JOptionPane.showMessageDialog(this, "Can not write the flight recording.", "Error", JOptionPane.WARNING_MESSAGE);
+            } else {
+                JOptionPane.showMessageDialog(this, "Flight recording written to " + file, "Flight Recording", JOptionPane.INFORMATION_MESSAGE);
+            }
+        }));
+
+    }//end helpRecording
+
     void helpProperties() {
         try {
 
@@ -830,14 +1141,15 @@ public final class Zeptor extends MyJFrame implements OpenFileListener, Containe
                 // do not show error msg
                 openFile(file, false, false);
             }
-            // find the correct text pane
+            // find the correct text pane, an untitled one has no file
             int len = allFiles.size();
             for (int j = 0; j < len; j++) {
-                MyTextPane f = allFiles.get(j);
-                String filename = f.getFile().toString();
-                if (filename.equals(file.toString())) {
+                MyTextPane t = allFiles.get(j);
+                File f = t.getFile();
+                if ((f != null) && (file.compareTo(f) == 0)) {
                     tabbedPane.setSelectedIndex(j);
-                    f.gotoLine(line);
+                    t.gotoLine(line);
+                    break;
                 }
             }
         }
@@ -845,8 +1157,11 @@ public final class Zeptor extends MyJFrame implements OpenFileListener, Containe
 
     /**
      * initialize the frame
+     *
+     * @param interactive whether to offer to recover the journals left behind
+     * and show the about dialog
      */
-    private void init() {
+    private void init(final boolean interactive) {
 
         try {
 
@@ -868,23 +1183,7 @@ public final class Zeptor extends MyJFrame implements OpenFileListener, Containe
         this.desktop = Desktop.getDesktop();
 
         allFiles = new ArrayList<>();
-
-        try {
-
-            File configFile = new File("zeptor-conf.yaml"); //class constant for config file name 10-19-2021
-
-            if (configFile.exists()) {
-                options = EditorOptions.fileImportYAML(configFile);
-            } else {
-                options = new EditorOptions();
-                options.fileExportYAML(configFile);
-            }//end if
-
-        } catch (Exception ex) {
-
-            Logger.LOG.logTrap(ex);
-
-        }//end try
+        Metrics.gauge("editor.openDocuments", () -> allFiles.size());
 
         this.setTitle(CONST_TITLE);
         this.setResizable(true);
@@ -894,27 +1193,77 @@ public final class Zeptor extends MyJFrame implements OpenFileListener, Containe
         this.setContentPane(tabbedPane);
 
         initMenuBar();
+        StartupTimeline.mark("menus");
 
         if (PlatformConsole.isMacOS) {
             desktop.setDefaultMenuBar(menuBar);
         }
 
-        try {
+        this.setVisible(true);
+        StartupTimeline.mark("frame visible");
+        StartupTimeline.log();
+
+        if (interactive) {
 
-            ZeptorLAF.initMapEnum();
-            int zeplaf_index = options.getLookAndFeel();
-            ZeptorLAF laf = ZeptorLAF.getZeptorLAF(zeplaf_index);
-            this.setLAF(this.zeptorFrame, laf);
+            this.fileRecover();
 
+            this.helpAbout();
+
+        }//end if
+
+    }// end init
+
+    /**
+     * Set the look and feel of the options, the platform one if it cannot be
+     * set, before the frame is made
+     *
+     * @param editorOptions the editor options
+     */
+    private static void initLookAndFeel(final EditorOptions editorOptions) {
+
+        ZeptorLAF.initMapEnum();
+        ZeptorLAF laf = ZeptorLAF.getZeptorLAF(editorOptions.getLookAndFeel());
+
+        try {
+            UIManager.setLookAndFeel(laf.getImage());
         } catch (Exception ex) {
             Logger.LOG.logTrap(ex);
-        }
+            try {
+                UIManager.setLookAndFeel(ZeptorLAF.PLATFORM.getImage());
+            } catch (Exception platformEx) {
+                Logger.LOG.logTrap(platformEx);
+            }//end try
+        }//end try
 
-        this.setVisible(true);
+    }//end initLookAndFeel
 
-        this.helpAbout();
+    /**
+     * Load the editor options, written with the defaults if there are none
+     *
+     * @return the editor options
+     */
+    private static EditorOptions loadOptions() {
 
-    }// end init
+        try {
+
+            File configFile = new File("zeptor-conf.yaml"); //class constant for config file name 10-19-2021
+
+            if (configFile.exists()) {
+                return EditorOptions.fileImportYAML(configFile);
+            }//end if
+
+            EditorOptions editorOptions = new EditorOptions();
+            editorOptions.fileExportYAML(configFile);
+            return editorOptions;
+
+        } catch (Exception ex) {
+
+            Logger.LOG.logTrap(ex);
+            return new EditorOptions();
+
+        }//end try
+
+    }//end loadOptions
 
     void initBuildMenu() {
         try {
@@ -936,6 +1285,19 @@ public final class Zeptor extends MyJFrame implements OpenFileListener, Containe
 
             buildMenu.add(buildMakeMenuItem);
 
+            JMenuItem buildMakeStartMenuItem = new JMenuItem("Build & Run");
+            buildMakeStartMenuItem.setToolTipText("Compile ZeptoN Source, then Run in Zeptor Console");
+            buildMakeStartMenuItem.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_B,
+                    Toolkit.getDefaultToolkit().getMenuShortcutKeyMaskEx() | InputEvent.SHIFT_DOWN_MASK));
+
+            buildMakeStartMenuItem.addActionListener(new ActionListener() {
+                public void actionPerformed(ActionEvent e) {
+                    buildMakeStart();
+                }
+            });
+
+            buildMenu.add(buildMakeStartMenuItem);
+
             buildMenu.addSeparator();
 
             JMenuItem buildRunMenuItem = new JMenuItem("Run"); // Run IT' run in terminal
@@ -964,6 +1326,34 @@ public final class Zeptor extends MyJFrame implements OpenFileListener, Containe
 
             buildMenu.add(startMenuItem);
 
+            JMenu startModeMenu = new JMenu("Start Mode");
+            startModeMenu.setToolTipText("How Start and Build & Run Launch the Program");
+            ButtonGroup startModeGroup = new ButtonGroup();
+
+            String[] startModes = {"New JVM", "Worker JVM Pool", "In-Process"};
+            int[] runModes = {EditorOptions.RUN_NEW_JVM, EditorOptions.RUN_WORKER_POOL, EditorOptions.RUN_IN_PROCESS};
+
+            for (int i = 0; i < startModes.length; i++) {
+                final int runMode = runModes[i];
+                JRadioButtonMenuItem startModeMenuItem = new JRadioButtonMenuItem(startModes[i], options.getRunMode() == runMode);
+                startModeMenuItem.addActionListener(new ActionListener() {
+                    public void actionPerformed(ActionEvent e) {
+                        options.setRunMode(runMode);
+                        if (runMode == EditorOptions.RUN_WORKER_POOL) {
+                            WorkerPool.getPool(options.getWorkerPoolSize()); //warm the workers now
+                        }
+                    }
+                });
+                startModeGroup.add(startModeMenuItem);
+                startModeMenu.add(startModeMenuItem);
+            }//end for
+
+            if (options.getRunMode() == EditorOptions.RUN_WORKER_POOL) {
+                WorkerPool.getPool(options.getWorkerPoolSize());
+            }
+
+            buildMenu.add(startModeMenu);
+
             buildMenu.addSeparator();
 
             JMenuItem buildCleanMenuItem = new JMenuItem("Clean");
@@ -1111,6 +1501,18 @@ public final class Zeptor extends MyJFrame implements OpenFileListener, Containe
         });
         editMenu.add(replaceMenuItem);
 
+        JMenuItem findInFilesMenuItem = new JMenuItem("Find in Files");
+        findInFilesMenuItem.setToolTipText("Find in the open tabs and the ZeptoN source files of a directory");
+        findInFilesMenuItem.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_F,
+                Toolkit.getDefaultToolkit().getMenuShortcutKeyMaskEx() | InputEvent.SHIFT_DOWN_MASK));
+
+        findInFilesMenuItem.addActionListener(new ActionListener() {
+            public void actionPerformed(ActionEvent e) {
+                editFindInFiles();
+            }
+        });
+        editMenu.add(findInFilesMenuItem);
+
         editMenu.addSeparator();
 
         JMenuItem gotoMenuItem = new JMenuItem("Goto");
@@ -1125,6 +1527,41 @@ public final class Zeptor extends MyJFrame implements OpenFileListener, Containe
         });
         editMenu.add(gotoMenuItem);
 
+        JMenuItem gotoSymbolMenuItem = new JMenuItem("Go to Symbol");
+        gotoSymbolMenuItem.setToolTipText("Go to a prog, method or variable declared in the ZeptoN files of this directory");
+        gotoSymbolMenuItem.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_G,
+                Toolkit.getDefaultToolkit().getMenuShortcutKeyMaskEx() | InputEvent.SHIFT_DOWN_MASK));
+
+        gotoSymbolMenuItem.addActionListener(new ActionListener() {
+            public void actionPerformed(ActionEvent e) {
+                editSymbol(false);
+            }
+        });
+        editMenu.add(gotoSymbolMenuItem);
+
+        JMenuItem findUsagesMenuItem = new JMenuItem("Find Usages");
+        findUsagesMenuItem.setToolTipText("Find the uses of the identifier at the caret in the ZeptoN files of this directory");
+        findUsagesMenuItem.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_U,
+                Toolkit.getDefaultToolkit().getMenuShortcutKeyMaskEx() | InputEvent.SHIFT_DOWN_MASK));
+
+        findUsagesMenuItem.addActionListener(new ActionListener() {
+            public void actionPerformed(ActionEvent e) {
+                editSymbol(true);
+            }
+        });
+        editMenu.add(findUsagesMenuItem);
+
+        JMenuItem completeMenuItem = new JMenuItem("Complete Word");
+        completeMenuItem.setToolTipText("Complete the keyword, runtime method or identifier before the caret");
+        completeMenuItem.setAccelerator(KeyStroke.getKeyStroke(KeyEvent.VK_SPACE, InputEvent.CTRL_DOWN_MASK));
+
+        completeMenuItem.addActionListener(new ActionListener() {
+            public void actionPerformed(ActionEvent e) {
+                editComplete();
+            }
+        });
+        editMenu.add(completeMenuItem);
+
         editMenu.addSeparator();
 
         JMenuItem refreshMenuItem = new JMenuItem("Refresh");
@@ -1294,6 +1731,26 @@ public final class Zeptor extends MyJFrame implements OpenFileListener, Containe
 
         helpMenu.add(propMenuItem);
 
+        JMenuItem metricsMenuItem = new JMenuItem("Metrics Snapshot");
+        metricsMenuItem.setToolTipText("Editor and Compiler Metrics, also in JConsole");
+        metricsMenuItem.addActionListener(new ActionListener() {
+            public void actionPerformed(ActionEvent e) {
+                helpMetrics();
+            }
+        });
+
+        helpMenu.add(metricsMenuItem);
+
+        final JMenuItem recordingMenuItem = new JMenuItem("Start Flight Recording");
+        recordingMenuItem.setToolTipText("Record Zeptor and JVM Events to a .jfr File");
+        recordingMenuItem.addActionListener(new ActionListener() {
+            public void actionPerformed(ActionEvent e) {
+                helpRecording(recordingMenuItem);
+            }
+        });
+
+        helpMenu.add(recordingMenuItem);
+
         menuBar.add(helpMenu);
 
     }//end initHelpMenu
@@ -1402,6 +1859,40 @@ public final class Zeptor extends MyJFrame implements OpenFileListener, Containe
         return openFile(f, true, false);
     }
 
+    /**
+     * open files, the last one selected and the others in background tabs,
+     * which read their file once first shown
+     *
+     * @param files the files to be open
+     */
+    public void openFiles(File[] files) {
+        if (files.length == 0) {
+            return;
+        }
+        long begin = System.nanoTime();
+        int deferred = 0;
+        long deferredBytes = 0;
+        for (int i = 0; i < files.length - 1; i++) {
+            File f = files[i].getAbsoluteFile();
+            if (!f.isFile() || fileOpened(f)) {
+                continue;
+            }
+            MyTextPane textPane = new MyTextPane(this, null);
+            textPane.readLater(f);
+            tabbedPane.addTab(f.toString(), textPane);
+            tabbedPane.setForeground(Color.DARK_GRAY);
+            allFiles.add(textPane);
+            outputPath = f.getParent();
+            deferred++;
+            deferredBytes += f.length();
+        }
+        openFile(files[files.length - 1].getAbsoluteFile());
+        if (deferred > 0) {
+            Logger.LOG.logText(String.format(Locale.ROOT, "Opened %d files in %.1f ms, %d of them, %d bytes, read once first shown",
+                    deferred + 1, (System.nanoTime() - begin) / 1.0e6, deferred, deferredBytes));
+        }
+    }//end openFiles
+
     /**
      * open file
      *
@@ -1460,276 +1951,69 @@ public final class Zeptor extends MyJFrame implements OpenFileListener, Containe
     private void optionsTheme() {
         try {
 
-            JMenu optionThemeSettingsMenuItem = new JMenu("Theme");
+            final JMenu optionThemeSettingsMenuItem = new JMenu("Theme");
 
             optionThemeSettingsMenuItem.setToolTipText("Set Theme of Zeptor");
 
-            ButtonGroup buttonGroup = new ButtonGroup();
-
-            acrylRadioMenuItem = new JRadioButtonMenuItem("Acryl");
-
-            acrylRadioMenuItem.addActionListener(new ActionListener() {
-                public void actionPerformed(ActionEvent event) {
-                    setLAF(zeptorFrame, ZeptorLAF.ACRYL);
-                }//end actionPerformed
-            }//end new ActionListener
-            );
-
-            aeroRadioMenuItem = new JRadioButtonMenuItem("Aero");
-
-            aeroRadioMenuItem.addActionListener(new ActionListener() {
-                public void actionPerformed(ActionEvent event) {
-                    setLAF(zeptorFrame, ZeptorLAF.AERO);
-                }//end actionPerformed
-            }//end new ActionListener
-            );
-
-            aluminumRadioMenuItem = new JRadioButtonMenuItem("Aluminum");
-
-            aluminumRadioMenuItem.addActionListener(new ActionListener() {
-                public void actionPerformed(ActionEvent event) {
-                    setLAF(zeptorFrame, ZeptorLAF.ALUMINUM);
-                }//end actionPerformed
-            }//end new ActionListener
-            );
-
-//            darculaRadioMenuItem = new JRadioButtonMenuItem("Darcula");
-//
-//            darculaRadioMenuItem.addActionListener(new ActionListener() {
-//                public void actionPerformed(ActionEvent event) {
-//                    setLAF(zeptorFrame, ZeptorLAF.DARCULA);
-//
-//                }//end actionPerformed
-//            }//end new ActionListener
-//            );
-
-            fastRadioMenuItem = new JRadioButtonMenuItem("Fast");
-
-            fastRadioMenuItem.addActionListener(new ActionListener() {
-                public void actionPerformed(ActionEvent event) {
-                    setLAF(zeptorFrame, ZeptorLAF.FAST);
-                }//end actionPerformed
-            }//end new ActionListener
-            );
-
-            graphiteRadioMenuItem = new JRadioButtonMenuItem("Graphite");
-
-            graphiteRadioMenuItem.addActionListener(new ActionListener() {
-                public void actionPerformed(ActionEvent event) {
-                    setLAF(zeptorFrame, ZeptorLAF.GRAPHITE);
-
-                }//end actionPerformed
-            }//end new ActionListener
-            );
-
-            hiFiRadioMenuItem = new JRadioButtonMenuItem("HiFi");
-
-            hiFiRadioMenuItem.addActionListener(new ActionListener() {
-                public void actionPerformed(ActionEvent event) {
-                    setLAF(zeptorFrame, ZeptorLAF.HIFI);
-
-                }//end actionPerformed
-            }//end new ActionListener
-            );
-
-            intellijRadioMenuItem = new JRadioButtonMenuItem("IntelliJ");
-
-            intellijRadioMenuItem.addActionListener(new ActionListener() {
-                public void actionPerformed(ActionEvent event) {
-                    setLAF(zeptorFrame, ZeptorLAF.INTELLIJ);
-
-                }//end actionPerformed
-            }//end new ActionListener
-            );
-
-            lightRadioMenuItem = new JRadioButtonMenuItem(("Light"));
-
-            lightRadioMenuItem.addActionListener(new ActionListener() {
-                public void actionPerformed(ActionEvent event) {
-                    setLAF(zeptorFrame, ZeptorLAF.LIGHT);
-
-                }//end actionPerformed
-            }//end new ActionListener
-            );
-
-            lunaRadioMenuItem = new JRadioButtonMenuItem("Luna");
-
-            lunaRadioMenuItem.addActionListener(new ActionListener() {
-                public void actionPerformed(ActionEvent event) {
-                    setLAF(zeptorFrame, ZeptorLAF.LUNA);
-
-                }//end actionPerformed
-            }//end new ActionListener
-            );
-
-            mcWinRadioMenuItem = new JRadioButtonMenuItem("McWin");
-
-            mcWinRadioMenuItem.addActionListener(new ActionListener() {
-                public void actionPerformed(ActionEvent event) {
-                    setLAF(zeptorFrame, ZeptorLAF.MCWIN);
-
-                }//end actionPerformed
-            }//end new ActionListener
-            );
-
-            metalRadioMenuItem = new JRadioButtonMenuItem("Metal");
-
-            metalRadioMenuItem.addActionListener(new ActionListener() {
-                public void actionPerformed(ActionEvent event) {
-                    setLAF(zeptorFrame, ZeptorLAF.METAL);
-
-                }//end actionPerformed
-            }//end new ActionListener
-            );
-
-            mintRadioMenuItem = new JRadioButtonMenuItem("Mint");
-
-            mintRadioMenuItem.addActionListener(new ActionListener() {
-                public void actionPerformed(ActionEvent event) {
-                    setLAF(zeptorFrame, ZeptorLAF.MINT);
-
-                }//end actionPerformed
-            }//end new ActionListener
-            );
-
-            motifRadioMenuItem = new JRadioButtonMenuItem("Motif");
-
-            motifRadioMenuItem.addActionListener(new ActionListener() {
-                public void actionPerformed(ActionEvent event) {
-                    setLAF(zeptorFrame, ZeptorLAF.MOTIF);
-
-                }//end actionPerformed
-            }//end new ActionListener
-            );
-
-            noireRadioMenuItem = new JRadioButtonMenuItem("Noire");
-
-            noireRadioMenuItem.addActionListener(new ActionListener() {
-                public void actionPerformed(ActionEvent event) {
-                    setLAF(zeptorFrame, ZeptorLAF.NOIRE);
-
-                }//end actionPerformed
-            }//end new ActionListener
-            );
-
-            platformRadioMenuItem = new JRadioButtonMenuItem("Platform", true);
-
-            platformRadioMenuItem.addActionListener(new ActionListener() {
-                public void actionPerformed(ActionEvent event) {
-                    setLAF(zeptorFrame, ZeptorLAF.PLATFORM);
-
-                }//end actionPerformed
-            }//end new ActionListener
-            );
-
-            smartRadioMenuItem = new JRadioButtonMenuItem("Smart");
+            //the items, and the classes of the themes, are only looked up once the menu is opened
+            optionThemeSettingsMenuItem.addMenuListener(new MenuListener() {
+                public void menuSelected(MenuEvent event) {
+                    if (themeMenuItems == null) {
+                        themeMenuItems = initThemeMenuItems(optionThemeSettingsMenuItem);
+                    }
+                }//end menuSelected
 
-            smartRadioMenuItem.addActionListener(new ActionListener() {
-                public void actionPerformed(ActionEvent event) {
-                    setLAF(zeptorFrame, ZeptorLAF.SMART);
+                public void menuDeselected(MenuEvent event) {
+                }
 
-                }//end actionPerformed
-            }//end new ActionListener
+                public void menuCanceled(MenuEvent event) {
+                }
+            }//end new MenuListener
             );
 
-            textureRadioMenuItem = new JRadioButtonMenuItem("Texture");
+            optionsMenu.add(optionThemeSettingsMenuItem);
 
-            textureRadioMenuItem.addActionListener(new ActionListener() {
-                public void actionPerformed(ActionEvent event) {
-                    setLAF(zeptorFrame, ZeptorLAF.TEXTURE);
+        } catch (Exception ex) {
+            Logger.LOG.logTrap(ex);
+        }//end try
 
-                }//end actionPerformed
-            }//end new ActionListener
-            );
+    }//end optionsTheme
 
-            infoNodeRadioMenuItem = new JRadioButtonMenuItem("InfoNode");
+    /**
+     * Add an item for each theme to the Theme menu, those whose classes are
+     * not found disabled, and the current one selected
+     *
+     * @param themeMenu the Theme menu
+     * @return the items of the themes
+     */
+    private EnumMap<ZeptorLAF, JRadioButtonMenuItem> initThemeMenuItems(final JMenu themeMenu) {
 
-            infoNodeRadioMenuItem.addActionListener(new ActionListener() {
-                public void actionPerformed(ActionEvent event) {
-                    setLAF(zeptorFrame, ZeptorLAF.INFONODE);
+        EnumMap<ZeptorLAF, JRadioButtonMenuItem> items = new EnumMap<>(ZeptorLAF.class);
+        ButtonGroup buttonGroup = new ButtonGroup();
 
-                }//end actionPerformed
-            }//end new ActionListener
-            );
+        for (final ZeptorLAF laf : ZeptorLAF.values()) {
 
-            pgsRadioMenuItem = new JRadioButtonMenuItem("PGS");
+            JRadioButtonMenuItem item = new JRadioButtonMenuItem(laf.getLabel());
+            item.setEnabled(laf.isAvailable());
 
-            pgsRadioMenuItem.addActionListener(new ActionListener() {
+            item.addActionListener(new ActionListener() {
                 public void actionPerformed(ActionEvent event) {
-                    setLAF(zeptorFrame, ZeptorLAF.PGS);
-
+                    setLAF(zeptorFrame, laf);
                 }//end actionPerformed
             }//end new ActionListener
             );
 
-            plasticRadioMenuItem = new JRadioButtonMenuItem("Plastic");
+            buttonGroup.add(item);
+            themeMenu.add(item);
+            items.put(laf, item);
 
-            plasticRadioMenuItem.addActionListener(new ActionListener() {
-                public void actionPerformed(ActionEvent event) {
-                    setLAF(zeptorFrame, ZeptorLAF.PLASTIC);
+        }//end for
 
-                }//end actionPerformed
-            }//end new ActionListener
-            );
+        items.get(ZeptorLAF.getZeptorLAF(options.getLookAndFeel())).setSelected(true);
 
-            buttonGroup.add(acrylRadioMenuItem);
-            buttonGroup.add(aeroRadioMenuItem);
-            buttonGroup.add(aluminumRadioMenuItem);
-
-//            buttonGroup.add(darculaRadioMenuItem);
-            buttonGroup.add(fastRadioMenuItem);
-
-            buttonGroup.add(graphiteRadioMenuItem);
-
-            buttonGroup.add(hiFiRadioMenuItem);
-            buttonGroup.add(infoNodeRadioMenuItem);
-            buttonGroup.add(intellijRadioMenuItem);
-            buttonGroup.add(lightRadioMenuItem);
-            buttonGroup.add(lunaRadioMenuItem);
-            buttonGroup.add(mcWinRadioMenuItem);
-            buttonGroup.add(metalRadioMenuItem);
-            buttonGroup.add(mintRadioMenuItem);
-            buttonGroup.add(motifRadioMenuItem);
-            buttonGroup.add(noireRadioMenuItem);
-            buttonGroup.add(plasticRadioMenuItem);
-
-            buttonGroup.add(pgsRadioMenuItem);
-
-            buttonGroup.add(platformRadioMenuItem);
-
-            buttonGroup.add(smartRadioMenuItem);
-            buttonGroup.add(textureRadioMenuItem);
-
-            optionThemeSettingsMenuItem.add(acrylRadioMenuItem);
-            optionThemeSettingsMenuItem.add(aeroRadioMenuItem);
-            optionThemeSettingsMenuItem.add(aluminumRadioMenuItem);
-
-//            optionThemeSettingsMenuItem.add(darculaRadioMenuItem);
-            optionThemeSettingsMenuItem.add(fastRadioMenuItem);
-            optionThemeSettingsMenuItem.add(graphiteRadioMenuItem);
-            optionThemeSettingsMenuItem.add(hiFiRadioMenuItem);
-            optionThemeSettingsMenuItem.add(infoNodeRadioMenuItem);
-            optionThemeSettingsMenuItem.add(intellijRadioMenuItem);
-            optionThemeSettingsMenuItem.add(lightRadioMenuItem);
-            optionThemeSettingsMenuItem.add(lunaRadioMenuItem);
-            optionThemeSettingsMenuItem.add(mcWinRadioMenuItem);
-            optionThemeSettingsMenuItem.add(mintRadioMenuItem);
-            optionThemeSettingsMenuItem.add(metalRadioMenuItem);
-            optionThemeSettingsMenuItem.add(motifRadioMenuItem);
-            optionThemeSettingsMenuItem.add(noireRadioMenuItem);
-            optionThemeSettingsMenuItem.add(pgsRadioMenuItem);
-            optionThemeSettingsMenuItem.add(plasticRadioMenuItem);
-            optionThemeSettingsMenuItem.add(platformRadioMenuItem);
-            optionThemeSettingsMenuItem.add(smartRadioMenuItem);
-            optionThemeSettingsMenuItem.add(textureRadioMenuItem);
+        return items;
 
-            optionsMenu.add(optionThemeSettingsMenuItem);
-
-        } catch (Exception ex) {
-            Logger.LOG.logTrap(ex);
-        }//end try
-
-    }//end optionsTheme
+    }//end initThemeMenuItems
 
     private void optionsTranspiler() {
 
@@ -1773,96 +2057,11 @@ public final class Zeptor extends MyJFrame implements OpenFileListener, Containe
     }//end setLAF
 
     private final void setRadioMenuSelected(final ZeptorLAF lafTheme) {
-        
-    	switch (lafTheme.getIndex()) {
-            case 0:
-                this.acrylRadioMenuItem.setSelected(true);
-                break;
-
-            case 1:
-                this.aeroRadioMenuItem.setSelected(true);
-                break;
 
-            case 2:
-                this.aluminumRadioMenuItem.setSelected(true);
-                break;
-
-//            case 3:
-//                this.darculaRadioMenuItem.setSelected(true);
-//                break;
-
-            case 5:
-                this.fastRadioMenuItem.setSelected(true);
-                break;
-
-            case 6:
-                this.graphiteRadioMenuItem.setSelected(true);
-                break;
-
-            case 7:
-                this.hiFiRadioMenuItem.setSelected(true);
-                break;
-
-            case 8:
-                this.infoNodeRadioMenuItem.setSelected(true);
-                break;
-
-            case 9:
-                this.intellijRadioMenuItem.setSelected(true);
-                break;
-
-            case 10:
-                this.lightRadioMenuItem.setSelected(true);
-                break;
-
-            case 11:
-                this.lunaRadioMenuItem.setSelected(true);
-                break;
-
-            case 12:
-                this.mcWinRadioMenuItem.setSelected(true);
-                break;
-
-            case 13:
-                this.metalRadioMenuItem.setSelected(true);
-                break;
-
-            case 14:
-                this.mintRadioMenuItem.setSelected(true);
-                break;
-
-            case 15:
-                this.motifRadioMenuItem.setSelected(true);
-                break;
-
-            case 16:
-                this.noireRadioMenuItem.setSelected(true);
-                break;
-
-            case 17:
-                this.pgsRadioMenuItem.setSelected(true);
-                break;
-
-            case 18:
-                this.plasticRadioMenuItem.setSelected(true);
-                break;
-
-            case 19:
-                this.platformRadioMenuItem.setSelected(true);
-                break;
-
-            case 20:
-                this.smartRadioMenuItem.setSelected(true);
-                break;
-
-            case 21:
-                this.textureRadioMenuItem.setSelected(true);
-                break;
-
-            default:
-                break;
+        if (this.themeMenuItems != null) { //else the menu selects it when it is made
+            this.themeMenuItems.get(lafTheme).setSelected(true);
+        }
 
-        }//end switch
     }//end setRadioMenuItem
 
     /**
@@ -1887,16 +2086,15 @@ public final class Zeptor extends MyJFrame implements OpenFileListener, Containe
 
         EditorOptionsDialog d = new EditorOptionsDialog(this);
         if (!d.isCancelled()) {
-            // update all the text frames
-            int len = allFiles.size();
-            for (int i = 0; i < len; i++) {
-                MyTextPane f = allFiles.get(i);
-                f.setEditorOptions(options);
-
-                int zeplaf_index = options.getLookAndFeel();
-                ZeptorLAF laf = ZeptorLAF.getZeptorLAF(zeplaf_index);
+            //the look and feel once, and only if it changed, as it updates every component
+            ZeptorLAF laf = ZeptorLAF.getZeptorLAF(options.getLookAndFeel());
+            if (!UIManager.getLookAndFeel().getClass().getName().equals(laf.getImage())) {
                 this.setLAF(this.zeptorFrame, laf);
-                f.refresh(); // automatically refresh
+            }
+
+            //the styles of each document change in place and the text repaints, it is not highlighted again
+            for (MyTextPane f : allFiles) {
+                f.setEditorOptions(options);
             }
         }
     }//end syntaxConfig
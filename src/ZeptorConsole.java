@@ -20,52 +20,98 @@ package xyz.zepton.zeptor.run;
 import java.awt.BorderLayout;
 import java.awt.Color;
 import java.awt.EventQueue;
+import java.awt.FlowLayout;
 import java.awt.Font;
 import java.awt.FontMetrics;
 import java.awt.Graphics;
 import java.awt.event.ActionEvent;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
 import java.awt.geom.Rectangle2D;
+import java.io.BufferedWriter;
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BitSet;
 import java.util.List;
 import java.util.StringJoiner;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
 
 import javax.swing.AbstractAction;
 import javax.swing.Action;
 import javax.swing.ActionMap;
+import javax.swing.BorderFactory;
+import javax.swing.JButton;
 import javax.swing.JFrame;
+import javax.swing.JLabel;
 import javax.swing.JPanel;
 import javax.swing.JScrollPane;
+import javax.swing.JTabbedPane;
 import javax.swing.JTextArea;
 import javax.swing.SwingUtilities;
+import javax.swing.Timer;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
 import javax.swing.text.AbstractDocument;
 import javax.swing.text.AttributeSet;
 import javax.swing.text.BadLocationException;
 import javax.swing.text.DefaultCaret;
+import javax.swing.text.DefaultHighlighter;
+import javax.swing.text.Document;
 import javax.swing.text.DocumentFilter;
+import javax.swing.text.Element;
+import javax.swing.text.Highlighter;
 import javax.swing.text.JTextComponent;
 
+import xyz.zepton.zeptor.editor.EditorOptions;
 import xyz.zepton.zeptor.log.Logger;
+import xyz.zepton.zeptor.metrics.Counter;
+import xyz.zepton.zeptor.metrics.Metrics;
+import xyz.zepton.zeptor.metrics.ZeptorEvents;
 
 public final class ZeptorConsole {
 
-    public class AppendTask implements Runnable {
+    //the size of the buffer a program's output is read into
+    private static final int BUFFER_SIZE = 8192;
 
-        private Terminal terminal;
-        private String text;
+    //output is moved into the console at most once per frame
+    private static final int FRAME_MSEC = 16;
 
-        public AppendTask(Terminal textArea, String text) {
-            this.terminal = textArea;
-            this.text = text;
-        }
+    //a program writing faster than the console can show waits past this many chars
+    private static final int MAX_PENDING = 1 << 20;
 
-        @Override
-        public void run() {
-            terminal.appendText(text);
-        }
-    }
+    //the bytes programs write to the console, and their rate
+    private static final Counter CONSOLE_BYTES = Metrics.counter("console.bytes");
+
+    //the background of what a program writes to its standard error
+    private static final Color ERROR_BACKGROUND = new Color(255, 205, 205);
+
+    //the charset a program run from the console writes its output in
+    private static final Charset OUTPUT_CHARSET = Charset.forName(
+            System.getProperty("native.encoding", Charset.defaultCharset().name()));
+
+    //the stream pumps of every session, on virtual threads where the runtime has them
+    private static final ExecutorService PUMPS = newPumpExecutor();
+
+    //the window of console sessions, one tab each, used on the EDT only
+    private static JTabbedPane sessions = null;
+
+    private static JFrame window = null;
 
     @SuppressWarnings("serial")
     public static final class BlockCaret extends DefaultCaret {
@@ -144,7 +190,7 @@ public final class ZeptorConsole {
         public void execute(String cmd) {
 
         	  if (cmd.contentEquals("exit")) {
-                ZeptorConsole.this.frame.dispose();
+                EventQueue.invokeLater(ZeptorConsole.this::close);
                 return;
               }//end if
         	
@@ -190,9 +236,30 @@ public final class ZeptorConsole {
 
         }
 
+        public void destroy() {
+            if (runner != null) {
+                runner.destroy();
+            }
+        }
+
+        //run a compiled program in a worker of the pool, or inside the editor if none
+        public void start(final WorkerPool pool, final File dir, final String className) {
+            List<String> cmds = List.of("java", "-cp", dir.getPath(), className);
+            if (pool == null) {
+                runner = new ProcessRunner(listener, cmds, () -> InProcessProgram.start(dir, className, OUTPUT_CHARSET));
+                return;
+            }
+            runner = new ProcessRunner(listener, cmds, () -> {
+                Process p = pool.launch(dir, className);
+                listener.commandOutput(String.format("Worker pool: %d runs, %d%% warm, %.1f ms average launch%n%n",
+                        pool.getRuns(), pool.getHitRate(), pool.getLaunchMillis()));
+                return p;
+            });
+        }
+
         public boolean isRunning() {
 
-            return runner != null && runner.isAlive();
+            return runner != null && runner.isRunning();
 
         }
 
@@ -205,6 +272,8 @@ public final class ZeptorConsole {
 
         public void commandCompleted(String cmd, int result);
 
+        public void commandError(String text);
+
         public void commandFailed(Exception exp);
 
         public void commandOutput(String text);
@@ -214,7 +283,18 @@ public final class ZeptorConsole {
     @SuppressWarnings("serial")
     public class ConsolePane extends JPanel implements CommandListener, Terminal {
 
+        private boolean closed; //guarded by pending
         private Command cmd;
+        private int errorEnd;
+        private Highlighter.HighlightPainter errorPainter;
+        private int errorStart;
+        private Object errorTag;
+        private ProtectedDocumentFilter filter;
+        private Timer flushTimer;
+        private final StringBuilder pending = new StringBuilder();
+        private final BitSet pendingErrors = new BitSet();
+        private File spillFile;
+        private Writer spillWriter;
         private JTextArea textArea;
         private int userInputStart = 0;
 
@@ -222,6 +302,9 @@ public final class ZeptorConsole {
 
             cmd = new Command(this);
 
+            flushTimer = new Timer(FRAME_MSEC, (ActionEvent e) -> flushOutput());
+            flushTimer.setRepeats(false);
+
             setLayout(new BorderLayout());
             textArea = new JTextArea(40, 80);
 
@@ -235,7 +318,27 @@ public final class ZeptorConsole {
 
             textArea.setCaretColor(Color.BLACK); //cursor is invisible
 
-            ((AbstractDocument) textArea.getDocument()).setDocumentFilter(new ProtectedDocumentFilter(this));
+            errorPainter = new DefaultHighlighter.DefaultHighlightPainter(ERROR_BACKGROUND);
+            textArea.getDocument().addDocumentListener(new DocumentListener() {
+                @Override
+                public void changedUpdate(DocumentEvent e) {
+                }
+
+                //a mark ending where text is inserted grows with it, so it is put back
+                @Override
+                public void insertUpdate(DocumentEvent e) {
+                    if (errorTag != null && e.getOffset() >= errorEnd) {
+                        markError();
+                    }
+                }
+
+                @Override
+                public void removeUpdate(DocumentEvent e) {
+                }
+            });
+
+            filter = new ProtectedDocumentFilter(this);
+            ((AbstractDocument) textArea.getDocument()).setDocumentFilter(filter);
             add(new JScrollPane(textArea));
 
             ActionMap am = textArea.getActionMap();
@@ -269,10 +372,66 @@ public final class ZeptorConsole {
         public void appendText(String text) {
             textArea.append(text);
             updateUserInputPos();
+            trimScrollback();
         }
 
+        //append standard error text, marked so it stands apart from the output
+        public void appendError(String text) {
+            appendText(text);
+            int end = textArea.getDocument().getLength();
+            int start = end - text.length(); //the text is at the end, even if some was trimmed
+            if (errorTag == null || errorEnd != start) {
+                errorTag = null;
+                errorStart = start;
+            }
+            errorEnd = end;
+            markError();
+        }//end appendError
+
+        //stop the program, if still running, and release the session
+        public void close() {
+            synchronized (pending) {
+                closed = true;
+                pending.notifyAll(); //a pump waiting for room drops its text instead
+            }
+            cmd.destroy();
+            flushTimer.stop();
+            closeSpill();
+        }//end close
+
+        public void closeSpill() {
+            synchronized (pending) {
+                if (spillWriter != null) {
+                    try {
+                        spillWriter.close();
+                    } catch (IOException ex) {
+                        Logger.LOG.logTrap(ex);
+                    }
+                    spillWriter = null;
+                }
+            }
+        }//end closeSpill
+
         @Override
         public void commandCompleted(String cmd, int result) {
+            synchronized (pending) {
+                if (spillWriter != null) {
+                    try {
+                        spillWriter.flush();
+                    } catch (IOException ex) {
+                        Logger.LOG.logTrap(ex);
+                    }
+                }
+            }
+            if (spillFile != null) {
+                commandOutput("Full output saved to: " + spillFile.getPath() + System.lineSeparator());
+            }
+            ZeptorConsole.this.showTitle(" [" + result + "]");
+        }//end commandCompleted
+
+        @Override
+        public void commandError(String text) {
+            queue(text, true);
         }
 
         @Override
@@ -281,13 +440,87 @@ public final class ZeptorConsole {
 
         @Override
         public void commandOutput(String text) {
-            SwingUtilities.invokeLater(new AppendTask(this, text));
+            queue(text, false);
         }
 
+        //mark the latest run of error text
+        private void markError() {
+            try {
+                if (errorTag == null) {
+                    errorTag = textArea.getHighlighter().addHighlight(errorStart, errorEnd, errorPainter);
+                } else {
+                    textArea.getHighlighter().changeHighlight(errorTag, errorStart, errorEnd);
+                }
+            } catch (BadLocationException ex) {
+                Logger.LOG.logTrap(ex);
+            }
+        }//end markError
+
+        //called off the EDT, the output is coalesced and flushed once per frame, and dropped once closed
+        private void queue(String text, boolean error) {
+            boolean schedule;
+            synchronized (pending) {
+                try {
+                    while (!closed && pending.length() > MAX_PENDING) {
+                        pending.wait();
+                    }
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+                if (closed) {
+                    return;
+                }
+                schedule = pending.length() == 0;
+                if (error) {
+                    pendingErrors.set(pending.length(), pending.length() + text.length());
+                }
+                pending.append(text);
+                spill(text);
+            }
+            if (schedule) {
+                SwingUtilities.invokeLater(flushTimer::restart);
+            }
+        }//end queue
+
         public void exec(final String cmd) {
             this.cmd.execute(cmd);
         }
 
+        public void start(final WorkerPool pool, final File dir, final String className) {
+            this.cmd.start(pool, dir, className);
+        }
+
+        public ZeptorConsole getConsole() {
+            return ZeptorConsole.this;
+        }
+
+        protected void flushOutput() {
+            String text;
+            BitSet errors;
+            synchronized (pending) {
+                text = pending.toString();
+                errors = (BitSet) pendingErrors.clone();
+                pending.setLength(0);
+                pendingErrors.clear();
+                pending.notifyAll();
+            }
+            //runs of output and of errors, in the order they came
+            int start = 0;
+            while (start < text.length()) {
+                boolean error = errors.get(start);
+                int end = error ? errors.nextClearBit(start) : errors.nextSetBit(start);
+                if (end < 0 || end > text.length()) {
+                    end = text.length();
+                }
+                if (error) {
+                    appendError(text.substring(start, end));
+                } else {
+                    appendText(text.substring(start, end));
+                }
+                start = end;
+            }
+        }//end flushOutput
+
         public JTextArea getTextArea() {
             return this.textArea;
         }
@@ -297,45 +530,181 @@ public final class ZeptorConsole {
             return userInputStart;
         }
 
+        //called holding the pending lock, so the file has the output in order
+        private void spill(String text) {
+            if (!scrollbackSpill) {
+                return;
+            }
+            try {
+                if (spillFile == null) {
+                    spillFile = File.createTempFile("zeptor-console-", ".log");
+                    spillWriter = new BufferedWriter(Files.newBufferedWriter(spillFile.toPath(), StandardCharsets.UTF_8));
+                }
+                if (spillWriter != null) {
+                    spillWriter.write(text);
+                }
+            } catch (IOException ex) {
+                Logger.LOG.logTrap(ex);
+                closeSpill();
+            }
+        }//end spill
+
+        //drop the oldest whole lines once over the limit, down to three quarters of it
+        protected void trimScrollback() {
+            Document doc = textArea.getDocument();
+            Element root = doc.getDefaultRootElement();
+            int lines = root.getElementCount();
+            int length = doc.getLength();
+            if (lines <= scrollbackLines && length <= scrollbackChars) {
+                return;
+            }
+
+            int cut = 0;
+            if (length > scrollbackChars) {
+                cut = length - scrollbackChars / 4 * 3;
+            }
+            if (lines > scrollbackLines) {
+                cut = Math.max(cut, root.getElement(lines - scrollbackLines / 4 * 3).getStartOffset());
+            }
+            Element line = root.getElement(root.getElementIndex(cut));
+            if (line.getStartOffset() < cut && line.getEndOffset() <= userInputStart) {
+                cut = line.getEndOffset();
+            }
+            cut = Math.min(cut, userInputStart); //the user's input is kept
+            if (cut <= 0) {
+                return;
+            }
+
+            try {
+                filter.removeProtected(doc, cut);
+                userInputStart -= cut;
+                errorStart = Math.max(0, errorStart - cut);
+                errorEnd -= cut;
+            } catch (BadLocationException ex) {
+                Logger.LOG.logTrap(ex);
+            }
+
+            //the error marks that were trimmed away are left empty at the start
+            Highlighter highlighter = textArea.getHighlighter();
+            for (Highlighter.Highlight h : highlighter.getHighlights()) {
+                if (h.getEndOffset() == 0) {
+                    highlighter.removeHighlight(h);
+                }
+            }
+            if (errorEnd <= 0) {
+                errorTag = null;
+            }
+        }//end trimScrollback
+
         protected void updateUserInputPos() {
             int pos = textArea.getCaretPosition();
-            textArea.setCaretPosition(textArea.getText().length());
+            textArea.setCaretPosition(textArea.getDocument().getLength());
             userInputStart = pos;
 
         }// end updateUserInputPos
     }
 
-    public class ProcessRunner extends Thread {
+    public class ProcessRunner implements Runnable {
 
         private List<String> cmds;
+        private final Future<?> future;
+        private final Callable<Process> launcher;
+        private final LinkedBlockingQueue<String> input = new LinkedBlockingQueue<>();
         private CommandListener listener;
 
-        private Process process;
+        private volatile Process process;
 
         public ProcessRunner(CommandListener listener, List<String> cmds) {
+            this(listener, cmds, () -> new ProcessBuilder(cmds).start());
+        }
+
+        public ProcessRunner(CommandListener listener, List<String> cmds, Callable<Process> launcher) {
             this.cmds = cmds;
             this.listener = listener;
-            start();
+            this.launcher = launcher;
+            future = PUMPS.submit(this);
         }
 
+        public void destroy() {
+            future.cancel(true);
+            Process p = process;
+            if (p != null) {
+                p.destroy();
+            }
+        }//end destroy
+
+        public boolean isRunning() {
+            return !future.isDone();
+        }
+
+        //write what the user types to the program, so the EDT never blocks on a full pipe
+        private void pumpInput() {
+            try (OutputStream os = process.getOutputStream()) {
+                while (true) {
+                    os.write(input.take().getBytes(OUTPUT_CHARSET));
+                    os.flush();
+                }
+            } catch (InterruptedException ignore) {
+                //the program ended
+            } catch (IOException ex) {
+                listener.commandError("!! Failed to send input to process: " + ex.getMessage() + System.lineSeparator());
+            }
+        }//end pumpInput
+
         @Override
         public void run() {
             try {
-                ProcessBuilder pb = new ProcessBuilder(cmds);
-                pb.redirectErrorStream();
-                StreamReader reader = null;
+                //standard output and error are pumped apart, and shown apart
                 int result = -1;
+                long total = 0;
+                long first = 0;
+                long begin = System.nanoTime();
+                Future<?> inPump = null;
                 try {
-                    process = pb.start();
+                    ZeptorEvents.Launch event = new ZeptorEvents.Launch();
+                    event.begin();
+                    process = launcher.call();
+                    if (event.shouldCommit()) {
+                        event.command = String.join(" ", cmds);
+                        event.commit();
+                    }
+
+                    StreamReader out = new StreamReader(listener, process.getInputStream(), false);
+                    StreamReader err = new StreamReader(listener, process.getErrorStream(), true);
+                    Future<?> outPump = PUMPS.submit(out);
+                    Future<?> errPump = PUMPS.submit(err);
+                    inPump = PUMPS.submit(this::pumpInput);
 
-                    reader = new StreamReader(listener, process.getInputStream());
                     result = process.waitFor();
 
-                    // Terminate the stream writer
-                    reader.join();
+                    // drain what the program wrote before it ended
+                    outPump.get();
+                    errPump.get();
+                    total = out.getBytesRead() + err.getBytesRead();
+                    first = firstOf(out.getFirstReadTime(), err.getFirstReadTime());
+
+                } catch (InterruptedException ex) {
+                    if (process != null) {
+                        process.destroy(); //the session was closed
+                    }
+                    return;
+                } catch (Exception ex) {
+                    listener.commandError(ex.getMessage() + System.lineSeparator());
+                } finally {
+                    if (inPump != null) {
+                        inPump.cancel(true);
+                    }
+                }
 
-                } catch (Exception ignored) {
+                double sec = Math.max(System.nanoTime() - begin, 1) / 1.0e9;
+                listener.commandOutput(System.lineSeparator());
+                if (first != 0) {
+                    listener.commandOutput(String.format("First output after %.1f ms%n", (first - begin) / 1.0e6));
                 }
+                listener.commandOutput(String.format("Output: %d bytes in %.2f s (%.0f bytes/s)%n", total, sec, total / sec));
+                listener.commandOutput("Type 'exit' to close console . . .");
+                listener.commandOutput(System.lineSeparator());
+                listener.commandOutput(System.lineSeparator());
 
                 StringJoiner sj = new StringJoiner(" ");
                 cmds.stream().forEach((cmd) -> {
@@ -349,16 +718,24 @@ public final class ZeptorConsole {
             } // end try
         }// end run
 
+        //the earlier of two read times, 0 for none
+        private long firstOf(long a, long b) {
+            if (a == 0 || b == 0) {
+                return a + b;
+            }
+            return a - b < 0 ? a : b;
+        }//end firstOf
+
         public void write(String text) throws IOException {
             if (process != null && process.isAlive()) {
-                process.getOutputStream().write(text.getBytes());
-                process.getOutputStream().flush();
+                input.add(text);
             } // end if
         }// end write
     }// end ProcessRunner
 
     public class ProtectedDocumentFilter extends DocumentFilter {
 
+        private boolean unprotected;
         private UserInput userInput;
 
         public ProtectedDocumentFilter(UserInput userInput) {
@@ -379,7 +756,7 @@ public final class ZeptorConsole {
 
         @Override
         public void remove(FilterBypass fb, int offset, int length) throws BadLocationException {
-            if (offset >= getUserInput().getUserInputStart()) {
+            if (unprotected || offset >= getUserInput().getUserInputStart()) {
                 super.remove(fb, offset, length); // To change body of generated methods, choose Tools | Templates.
             }
         }
@@ -392,36 +769,90 @@ public final class ZeptorConsole {
                 // Templates.
             } // end if
         }// end replace
+
+        //remove the start of the output, which the user cannot
+        public void removeProtected(Document doc, int length) throws BadLocationException {
+            unprotected = true;
+            try {
+                doc.remove(0, length);
+            } finally {
+                unprotected = false;
+            }
+        }//end removeProtected
     }// end class ProtectedDocumentFilter
 
-    public class StreamReader extends Thread {
+    public class StreamReader implements Runnable {
 
+        private volatile long bytesRead;
+        private final boolean error;
+        private volatile long firstReadTime;
         private InputStream is;
         private CommandListener listener;
         
-        public StreamReader(CommandListener listener, InputStream is) {
+        public StreamReader(CommandListener listener, InputStream is, boolean error) {
             this.is = is;
             this.listener = listener;
-            start();
+            this.error = error;
+        }
+
+        public long getBytesRead() {
+            return bytesRead;
+        }
+
+        //System.nanoTime() of the first bytes read, 0 if none yet
+        public long getFirstReadTime() {
+            return firstReadTime;
         }
 
         @Override
         public void run() {
             try {
-                int value = -1;
-                while ((value = is.read()) != -1) {
-                    listener.commandOutput(Character.toString((char) value));
+                CharsetDecoder decoder = OUTPUT_CHARSET.newDecoder()
+                        .onMalformedInput(CodingErrorAction.REPLACE)
+                        .onUnmappableCharacter(CodingErrorAction.REPLACE);
+                ByteBuffer in = ByteBuffer.allocate(BUFFER_SIZE);
+                CharBuffer out = CharBuffer.allocate(BUFFER_SIZE);
+
+                int count;
+                while ((count = is.read(in.array(), in.position(), in.remaining())) != -1) {
+                    if (bytesRead == 0 && count > 0) {
+                        firstReadTime = System.nanoTime();
+                    }
+                    bytesRead += count;
+                    CONSOLE_BYTES.add(count);
+                    in.position(in.position() + count);
+                    in.flip();
+                    decode(decoder, in, out, false); //an incomplete char is kept for the next read
+                    in.compact();
                 }
-
-                listener.commandOutput(System.lineSeparator());
-                listener.commandOutput("Type 'exit' to close console . . .");
-                listener.commandOutput(System.lineSeparator());
-                listener.commandOutput(System.lineSeparator());
+                in.flip();
+                decode(decoder, in, out, true);
+                decoder.flush(out);
+                emit(out);
                 
             } catch (IOException exp) {
                 exp.printStackTrace();
             }
         }//end run
+
+        private void decode(CharsetDecoder decoder, ByteBuffer in, CharBuffer out, boolean endOfInput) {
+            while (decoder.decode(in, out, endOfInput).isOverflow()) {
+                emit(out);
+            }
+            emit(out);
+        }//end decode
+
+        private void emit(CharBuffer out) {
+            out.flip();
+            if (out.hasRemaining()) {
+                if (error) {
+                    listener.commandError(out.toString());
+                } else {
+                    listener.commandOutput(out.toString());
+                }
+            }
+            out.clear();
+        }//end emit
     }
 
     public interface Terminal extends UserInput {
@@ -434,43 +865,71 @@ public final class ZeptorConsole {
         public int getUserInputStart();
     }
 
+    //close every session when the window is closed
+    private static void closeAll() {
+        while (sessions.getTabCount() > 0) {
+            ((ConsolePane) sessions.getComponentAt(0)).getConsole().close();
+        }
+    }//end closeAll
+
     public static final void doCommand(final String cmd) {
         ZeptorConsole con = new ZeptorConsole();
         con.exec(cmd);
     }//end doCommand
 
+    public static final void doCommand(final EditorOptions options, final String cmd) {
+        ZeptorConsole con = new ZeptorConsole(options);
+        con.exec(cmd);
+    }//end doCommand
+
     public static final ZeptorConsole getConsole(final String cmd) {
         ZeptorConsole con = new ZeptorConsole();
         con.exec(cmd);
         return con;
     }//end getConsole
 
-    public static void runCommand(final String outputPath,
+    //Executors.newVirtualThreadPerTaskExecutor() where the runtime has it, daemon threads otherwise
+    private static ExecutorService newPumpExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException | UnsupportedOperationException ex) {
+            return Executors.newCachedThreadPool((Runnable r) -> {
+                Thread t = new Thread(r, "ConsolePump");
+                t.setDaemon(true);
+                return t;
+            });
+        }
+    }//end newPumpExecutor
+
+    //run a compiled program as the options say, in a new JVM, a pooled worker JVM, or the editor
+    public static void runCommand(final EditorOptions options,
+            final String outputPath,
             final String packageName,
             final String programName) {
 
-        String execCmd = "";
-
-        String outPath = outputPath;
+        String className = programName;
 
-        if (PlatformConsole.isWindows) {
-            outPath = String.format("\"%s\"", outPath);
-        }
-
-        if (packageName == null || packageName.equals("")) {
-            execCmd = outPath + " " + programName;
-        } else {
-            execCmd = outPath + " " + packageName + "." + programName;
+        if (packageName != null && !packageName.equals("")) {
+            className = packageName + "." + programName;
         }//end if
 
-        try {
-            Thread.sleep(1100);
-        } catch (Exception ignore) {
-        }
-
         try {
 
-            ZeptorConsole.doCommand("java -cp " + execCmd);
+            switch (options.getRunMode()) {
+                case EditorOptions.RUN_WORKER_POOL:
+                    new ZeptorConsole(options).start(WorkerPool.getPool(options.getWorkerPoolSize()),
+                            new File(outputPath), className);
+                    break;
+                case EditorOptions.RUN_IN_PROCESS:
+                    new ZeptorConsole(options).start(null, new File(outputPath), className);
+                    break;
+                default:
+                    String outPath = outputPath;
+                    if (PlatformConsole.isWindows) {
+                        outPath = String.format("\"%s\"", outPath);
+                    }
+                    ZeptorConsole.doCommand(options, "java -cp " + outPath + " " + className);
+            }//end switch
 
         } catch (Exception ex) {
             Logger.LOG.logTrap(ex);
@@ -482,7 +941,29 @@ public final class ZeptorConsole {
 
     public JFrame frame = null;
 
+    private final int scrollbackChars;
+
+    private final int scrollbackLines;
+
+    private final boolean scrollbackSpill;
+
+    private JLabel tabLabel = null;
+
+    private volatile String title = "Console";
+
     public ZeptorConsole() {
+        this(EditorOptions.DEFAULT_SCROLLBACK_LINES, EditorOptions.DEFAULT_SCROLLBACK_KB * 1024, false);
+    }// end constructor
+
+    public ZeptorConsole(final EditorOptions options) {
+        this(options.getScrollbackLines(), options.getScrollbackChars(), options.getScrollbackSpill());
+    }// end constructor
+
+    private ZeptorConsole(final int lines, final int chars, final boolean spill) {
+
+        scrollbackLines = Math.max(lines, 4);
+        scrollbackChars = Math.max(chars, 4);
+        scrollbackSpill = spill;
 
         EventQueue.invokeLater(new Runnable() {
             @Override
@@ -490,13 +971,31 @@ public final class ZeptorConsole {
 
                 try {
 
-                    frame = new JFrame("Zeptor Console");
-                    frame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
-                    frame.setLayout(new BorderLayout());
-                    frame.add(ZeptorConsole.this.console);
-                    frame.pack();
-                    frame.setLocationRelativeTo(null);
-                    frame.setVisible(true);
+                    if (window == null) {
+                        window = new JFrame("Zeptor Console");
+                        window.setDefaultCloseOperation(JFrame.DO_NOTHING_ON_CLOSE);
+                        window.addWindowListener(new WindowAdapter() {
+                            @Override
+                            public void windowClosing(WindowEvent e) {
+                                closeAll();
+                            }
+                        });
+                        sessions = new JTabbedPane(JTabbedPane.TOP, JTabbedPane.SCROLL_TAB_LAYOUT);
+                        window.setLayout(new BorderLayout());
+                        window.add(sessions);
+                    }//end if
+
+                    sessions.addTab(title, ZeptorConsole.this.console);
+                    sessions.setTabComponentAt(sessions.indexOfComponent(ZeptorConsole.this.console), createTab());
+                    sessions.setSelectedComponent(ZeptorConsole.this.console);
+
+                    if (!window.isVisible()) {
+                        window.pack();
+                        window.setLocationRelativeTo(null);
+                    }//end if
+                    window.setVisible(true);
+                    window.toFront();
+                    frame = window;
 
                 } catch (Exception ex) {
                     Logger.LOG.logTrap(ex);
@@ -507,8 +1006,54 @@ public final class ZeptorConsole {
 
     }// end constructor
 
+    //stop the session's program and remove its tab, the window goes with the last tab
+    public void close() {
+        console.close();
+        if (sessions != null && sessions.indexOfComponent(console) >= 0) {
+            sessions.remove(console);
+            if (sessions.getTabCount() == 0) {
+                window.dispose();
+            }
+        }
+    }//end close
+
+    private JPanel createTab() {
+        JPanel tab = new JPanel(new FlowLayout(FlowLayout.LEFT, 4, 0));
+        tab.setOpaque(false);
+        tabLabel = new JLabel(title);
+        tab.add(tabLabel);
+        JButton closeButton = new JButton("x");
+        closeButton.setToolTipText("Stop the program and close the session");
+        closeButton.setBorder(BorderFactory.createEmptyBorder(0, 2, 0, 2));
+        closeButton.setContentAreaFilled(false);
+        closeButton.setFocusable(false);
+        closeButton.addActionListener((ActionEvent e) -> close());
+        tab.add(closeButton);
+        return tab;
+    }//end createTab
+
     public void exec(final String cmd) {
+        String[] words = cmd.trim().split(" ");
+        title = words[words.length - 1]; //the program name
+        showTitle("");
         this.console.exec(cmd);
     }
 
+    //run a compiled program in a worker of the pool, or inside the editor if none
+    public void start(final WorkerPool pool, final File dir, final String className) {
+        title = className.substring(className.lastIndexOf('.') + 1) + (pool == null ? " (in-process)" : " (worker)");
+        showTitle("");
+        this.console.start(pool, dir, className);
+    }
+
+    //show the title of the session, with a suffix such as the exit code
+    private void showTitle(final String suffix) {
+        final String text = title + suffix;
+        EventQueue.invokeLater(() -> {
+            if (tabLabel != null) {
+                tabLabel.setText(text);
+            }
+        });
+    }//end showTitle
+
 }//end class ZeptorConsole